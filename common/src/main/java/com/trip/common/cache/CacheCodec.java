@@ -0,0 +1,172 @@
+package com.trip.common.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存值编解码
+ *
+ * 存入 Redis 的格式：第一个字节为格式标记（低 4 位为编码格式，0x10 表示 LZ4 压缩），
+ * 压缩时随后 4 字节为原始长度，之后是编码（或压缩后）的内容。
+ * 编码后超过 compressThreshold 且压缩后更小时才压缩。
+ * 读取时按标记选择格式，与当前配置无关，切换格式不影响已有缓存；
+ * 第一个字节不小于 0x20 的是之前写入的 JSON 文本，按 JSON 解析。
+ */
+public class CacheCodec {
+
+    /**
+     * 编码格式
+     */
+    public enum Format {
+        JSON(0x01),
+        /**
+         * Jackson Smile 二进制 JSON，字段名和短字符串会被回引，比 JSON 更小、解析更快
+         */
+        SMILE(0x02);
+
+        private final int id;
+
+        Format(int id) {
+            this.id = id;
+        }
+    }
+
+    private static final int FORMAT_MASK = 0x0F;
+    private static final int FLAG_LZ4 = 0x10;
+    private static final int LEGACY_TEXT_MIN = 0x20;
+    // 每编码 N 次用 JSON 编码一次，估算相对 JSON 节省的字节数
+    private static final int JSON_SAMPLE_INTERVAL = 64;
+
+    private final Format format;
+    private final int compressThreshold;
+    private final Map<Format, ObjectMapper> mappers = new EnumMap<>(Format.class);
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    private final LongAdder encodes = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder decodes = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder compressedValues = new LongAdder();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final LongAdder sampledJsonBytes = new LongAdder();
+    private final LongAdder sampledStoredBytes = new LongAdder();
+
+    /**
+     * @param objectMapper 应用的 ObjectMapper，Smile 使用其副本以保持相同的模块和配置
+     * @param compressThreshold 压缩阈值（字节），不大于 0 时不压缩
+     */
+    public CacheCodec(ObjectMapper objectMapper, Format format, int compressThreshold) {
+        this.format = format;
+        this.compressThreshold = compressThreshold;
+        mappers.put(Format.JSON, objectMapper);
+        mappers.put(Format.SMILE, objectMapper.copyWith(new SmileFactory()));
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public byte[] encode(Object value) throws IOException {
+        long start = System.nanoTime();
+        byte[] payload = mappers.get(format).writeValueAsBytes(value);
+        byte[] stored = frame(payload);
+        encodeNanos.add(System.nanoTime() - start);
+        encodes.increment();
+        encodedBytes.add(payload.length);
+        storedBytes.add(stored.length);
+
+        if (format != Format.JSON && sampleCounter.getAndIncrement() % JSON_SAMPLE_INTERVAL == 0) {
+            sampledJsonBytes.add(mappers.get(Format.JSON).writeValueAsBytes(value).length);
+            sampledStoredBytes.add(stored.length);
+        }
+        return stored;
+    }
+
+    public <T> T decode(byte[] bytes, JavaType type) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int marker = bytes[0] & 0xFF;
+            if (marker >= LEGACY_TEXT_MIN) {
+                return mappers.get(Format.JSON).readValue(bytes, type);
+            }
+            ObjectMapper mapper = mapperOf(marker & FORMAT_MASK);
+            if ((marker & FLAG_LZ4) == 0) {
+                return mapper.readValue(bytes, 1, bytes.length - 1, type);
+            }
+            int length = ByteBuffer.wrap(bytes, 1, 4).getInt();
+            byte[] payload = new byte[length];
+            decompressor.decompress(bytes, 5, payload, 0, length);
+            return mapper.readValue(payload, type);
+        } finally {
+            decodeNanos.add(System.nanoTime() - start);
+            decodes.increment();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long encodeCount = encodes.sum();
+        long decodeCount = decodes.sum();
+        long encoded = encodedBytes.sum();
+        long stored = storedBytes.sum();
+        long sampledJson = sampledJsonBytes.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("format", format.name());
+        stats.put("compressThreshold", compressThreshold);
+        stats.put("encodes", encodeCount);
+        stats.put("avgEncodeMicros", encodeCount > 0 ? encodeNanos.sum() / 1000.0 / encodeCount : 0);
+        stats.put("decodes", decodeCount);
+        stats.put("avgDecodeMicros", decodeCount > 0 ? decodeNanos.sum() / 1000.0 / decodeCount : 0);
+        stats.put("compressedValues", compressedValues.sum());
+        stats.put("encodedBytes", encoded);
+        stats.put("storedBytes", stored);
+        stats.put("compressionSavedBytes", encoded - stored);
+        // 相对 JSON 文本节省的比例（抽样估算，包括编码格式和压缩两部分）
+        stats.put("savedRatioVsJson", sampledJson > 0 ? 1 - (double) sampledStoredBytes.sum() / sampledJson : 0);
+        return stats;
+    }
+
+    private byte[] frame(byte[] payload) {
+        if (compressThreshold > 0 && payload.length > compressThreshold) {
+            byte[] compressed = new byte[5 + compressor.maxCompressedLength(payload.length)];
+            int length = compressor.compress(payload, 0, payload.length, compressed, 5, compressed.length - 5);
+            if (length + 5 < payload.length + 1) {
+                compressed[0] = (byte) (format.id | FLAG_LZ4);
+                ByteBuffer.wrap(compressed, 1, 4).putInt(payload.length);
+                compressedValues.increment();
+                return Arrays.copyOf(compressed, length + 5);
+            }
+        }
+        byte[] result = new byte[payload.length + 1];
+        result[0] = (byte) format.id;
+        System.arraycopy(payload, 0, result, 1, payload.length);
+        return result;
+    }
+
+    private ObjectMapper mapperOf(int id) throws IOException {
+        for (Format candidate : Format.values()) {
+            if (candidate.id == id) {
+                return mappers.get(candidate);
+            }
+        }
+        throw new IOException("未知的缓存编码格式: " + id);
+    }
+}
@@ -0,0 +1,17 @@
+package com.trip.common.cache;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * 带软过期时间的缓存值（stale-while-revalidate 使用）
+ * @param value 缓存值
+ * @param softExpireAt 软过期时间（毫秒）
+ * @param computeMillis 上次计算耗时（毫秒）
+ * @param absent 空值缓存：数据不存在（value 为 null），没有该字段的旧条目为 false
+ */
+public record CacheEntry<T>(@JsonProperty("v") T value,
+                            @JsonProperty("e") long softExpireAt,
+                            @JsonProperty("c") long computeMillis,
+                            @JsonProperty("n") @JsonInclude(JsonInclude.Include.NON_DEFAULT) boolean absent) {
+}
@@ -0,0 +1,221 @@
+package com.trip.common.cache;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地缓存跨节点失效总线
+ *
+ * 两级缓存写入或删除 Redis 后调用 publish，失效的键先在本节点按缓存名合并，
+ * 经过 batch-window 后每个缓存发布一条消息（键过多时拆成多条）到 Redis 频道；
+ * 每个节点订阅该频道，收到其他节点的消息后删除对应的本地缓存（本节点发出的消息已在本地处理，直接忽略）。
+ * 消息只影响 L1，丢失时本地缓存最迟在 l1-ttl 后过期。
+ */
+@Slf4j
+public class CacheInvalidationBus implements MessageListener {
+
+    /**
+     * 失效消息
+     * @param node 发送节点
+     * @param time 发送时间（毫秒），用于统计传播延迟
+     * @param cache 缓存名
+     * @param keys 失效的键，all 为 true 时为空
+     * @param all 是否清空整个缓存
+     */
+    public record InvalidationMessage(@JsonProperty("n") String node,
+                                      @JsonProperty("t") long time,
+                                      @JsonProperty("c") String cache,
+                                      @JsonProperty("k") List<String> keys,
+                                      @JsonProperty("a") boolean all) {
+    }
+
+    /**
+     * 收到失效消息后的处理（由 TwoTierCacheManager 删除本地缓存）
+     */
+    public interface Handler {
+        void invalidateLocal(String cacheName, Collection<String> keys, boolean all);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TwoTierCacheProperties.Invalidation config;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 等待发布的失效键（缓存名 → 键），以及等待发布的整体清空
+    private final Map<String, Set<String>> pendingKeys = new HashMap<>();
+    private final Set<String> pendingClears = new HashSet<>();
+    private boolean flushScheduled;
+
+    private volatile Handler handler;
+
+    // 统计
+    private final AtomicLong publishedMessages = new AtomicLong();
+    private final AtomicLong publishedKeys = new AtomicLong();
+    private final AtomicLong publishFailures = new AtomicLong();
+    private final AtomicLong receivedMessages = new AtomicLong();
+    private final AtomicLong invalidatedKeys = new AtomicLong();
+    private final AtomicLong totalDelayMillis = new AtomicLong();
+    private final AtomicLong maxDelayMillis = new AtomicLong();
+    private volatile long lastDelayMillis;
+
+    public CacheInvalidationBus(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                                TwoTierCacheProperties.Invalidation config) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.config = config;
+    }
+
+    public void setHandler(Handler handler) {
+        this.handler = handler;
+    }
+
+    public String getChannel() {
+        return config.getChannel();
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 通知其他节点删除指定键的本地缓存（合并后异步发布）
+     */
+    public void publish(String cacheName, Collection<String> keys) {
+        if (!config.isEnabled() || keys.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (!pendingClears.contains(cacheName)) {
+                pendingKeys.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).addAll(keys);
+            }
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 通知其他节点清空指定缓存的本地缓存
+     */
+    public void publishClear(String cacheName) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            pendingKeys.remove(cacheName);
+            pendingClears.add(cacheName);
+            scheduleFlush();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        InvalidationMessage msg;
+        try {
+            msg = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), InvalidationMessage.class);
+        } catch (Exception e) {
+            log.warn("解析缓存失效消息失败: error={}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(msg.node()) || handler == null) {
+            return;
+        }
+        long delay = Math.max(0, System.currentTimeMillis() - msg.time());
+        receivedMessages.incrementAndGet();
+        totalDelayMillis.addAndGet(delay);
+        maxDelayMillis.accumulateAndGet(delay, Math::max);
+        lastDelayMillis = delay;
+
+        List<String> keys = msg.keys() != null ? msg.keys() : Collections.emptyList();
+        handler.invalidateLocal(msg.cache(), keys, msg.all());
+        invalidatedKeys.addAndGet(keys.size());
+        log.debug("收到缓存失效消息: cache={}, keys={}, all={}, delay={}ms", msg.cache(), keys.size(), msg.all(), delay);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long received = receivedMessages.get();
+        stats.put("enabled", config.isEnabled());
+        stats.put("nodeId", nodeId);
+        stats.put("publishedMessages", publishedMessages.get());
+        stats.put("publishedKeys", publishedKeys.get());
+        stats.put("publishFailures", publishFailures.get());
+        stats.put("receivedMessages", received);
+        stats.put("invalidatedKeys", invalidatedKeys.get());
+        stats.put("avgDelayMillis", received > 0 ? (double) totalDelayMillis.get() / received : 0);
+        stats.put("maxDelayMillis", maxDelayMillis.get());
+        stats.put("lastDelayMillis", lastDelayMillis);
+        return stats;
+    }
+
+    /**
+     * 关闭时立即发布未发送的消息
+     */
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            try {
+                flusher.schedule(this::flush, config.getBatchWindow().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // 已关闭
+                flushScheduled = false;
+            }
+        }
+    }
+
+    private void flush() {
+        Map<String, Set<String>> keys;
+        Set<String> clears;
+        synchronized (this) {
+            keys = new HashMap<>(pendingKeys);
+            clears = new HashSet<>(pendingClears);
+            pendingKeys.clear();
+            pendingClears.clear();
+            flushScheduled = false;
+        }
+        long now = System.currentTimeMillis();
+        for (String cacheName : clears) {
+            send(new InvalidationMessage(nodeId, now, cacheName, null, true));
+        }
+        int batchSize = Math.max(1, config.getMaxKeysPerMessage());
+        keys.forEach((cacheName, cacheKeys) -> {
+            List<String> list = new ArrayList<>(cacheKeys);
+            for (int from = 0; from < list.size(); from += batchSize) {
+                List<String> batch = list.subList(from, Math.min(from + batchSize, list.size()));
+                send(new InvalidationMessage(nodeId, now, cacheName, batch, false));
+            }
+        });
+    }
+
+    private void send(InvalidationMessage message) {
+        try {
+            stringRedisTemplate.convertAndSend(config.getChannel(), objectMapper.writeValueAsString(message));
+            publishedMessages.incrementAndGet();
+            publishedKeys.addAndGet(message.keys() != null ? message.keys().size() : 0);
+        } catch (Exception e) {
+            // 发布失败时其他节点的本地缓存最迟在 l1-ttl 后过期
+            publishFailures.incrementAndGet();
+            log.warn("发布缓存失效消息失败: cache={}, error={}", message.cache(), e.getMessage());
+        }
+    }
+}
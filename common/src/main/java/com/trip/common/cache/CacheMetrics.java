@@ -0,0 +1,227 @@
+package com.trip.common.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 缓存指标
+ *
+ * 每个缓存（两级缓存、单独使用 Redis 的缓存服务、@Cacheable 缓存）一个 Recorder，按缓存名打标签注册 Micrometer 指标：
+ * - trip.cache.gets：读取次数，result=hit|miss，命中时 tier=local|remote
+ * - trip.cache.puts / trip.cache.evictions：写入条数、删除条数（cause=explicit 为主动删除，cause=size 为本地缓存容量淘汰）
+ * - trip.cache.get.latency：读取耗时（直方图 + p50/p95/p99）
+ * - trip.cache.load：未命中后加载耗时，即同一线程中未命中到写入同一个键的间隔，调用方不需要额外计时
+ * getStats 把同样的数据整理为 JSON，用于 /api/cache/stats。
+ */
+public class CacheMetrics {
+
+    private static final String PREFIX = "trip.cache.";
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    // 未命中后超过该时间才写入的不计为加载（例如结果为空未缓存，之后同一线程又写入了同一个键）
+    private static final long MAX_LOAD_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 获取（首次调用时注册）指定缓存的指标
+     */
+    public Recorder recorder(String cacheName) {
+        return recorders.computeIfAbsent(cacheName, Recorder::new);
+    }
+
+    /**
+     * @return 缓存名到指标的映射（按缓存名排序）
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        recorders.forEach((name, recorder) -> stats.put(name, recorder.getStats()));
+        return stats;
+    }
+
+    /**
+     * 未命中的键及时间，用于计算加载耗时
+     */
+    private record PendingLoad(Collection<String> keys, long startNanos) {
+    }
+
+    /**
+     * 单个缓存的指标
+     */
+    public class Recorder {
+
+        private final String cacheName;
+        private final Counter localHits;
+        private final Counter remoteHits;
+        private final Counter misses;
+        private final Counter puts;
+        private final Counter evictions;
+        private final Timer getLatency;
+        private final Timer loadTime;
+        private final ThreadLocal<PendingLoad> pending = new ThreadLocal<>();
+        private volatile FunctionCounter sizeEvictions;
+
+        private Recorder(String cacheName) {
+            this.cacheName = cacheName;
+            this.localHits = Counter.builder(PREFIX + "gets").tags("cache", cacheName, "result", "hit", "tier", "local")
+                    .description("缓存读取次数").register(registry);
+            this.remoteHits = Counter.builder(PREFIX + "gets").tags("cache", cacheName, "result", "hit", "tier", "remote")
+                    .description("缓存读取次数").register(registry);
+            this.misses = Counter.builder(PREFIX + "gets").tags("cache", cacheName, "result", "miss", "tier", "none")
+                    .description("缓存读取次数").register(registry);
+            this.puts = Counter.builder(PREFIX + "puts").tag("cache", cacheName)
+                    .description("缓存写入条数").register(registry);
+            this.evictions = Counter.builder(PREFIX + "evictions").tags("cache", cacheName, "cause", "explicit")
+                    .description("缓存删除条数").register(registry);
+            this.getLatency = Timer.builder(PREFIX + "get.latency").tag("cache", cacheName)
+                    .description("缓存读取耗时")
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(1000))
+                    .maximumExpectedValue(Duration.ofSeconds(5))
+                    .register(registry);
+            this.loadTime = Timer.builder(PREFIX + "load").tag("cache", cacheName)
+                    .description("缓存未命中后的加载耗时")
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        /**
+         * 记录一次读取
+         * @param key 读取的键，未命中时记下，之后同一线程写入该键时计为一次加载
+         * @param tier 命中的层级，未命中时为 null
+         */
+        public void recordGet(String key, Tier tier, long elapsedNanos) {
+            getLatency.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (tier == null) {
+                misses.increment();
+                pending.set(new PendingLoad(Collections.singleton(key), System.nanoTime()));
+            } else {
+                hit(tier, 1);
+                pending.remove();
+            }
+        }
+
+        /**
+         * 记录一次批量读取
+         * @param missingKeys 未命中的键
+         */
+        public void recordGetAll(int localHitCount, int remoteHitCount, Collection<String> missingKeys, long elapsedNanos) {
+            getLatency.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            hit(Tier.LOCAL, localHitCount);
+            hit(Tier.REMOTE, remoteHitCount);
+            if (missingKeys.isEmpty()) {
+                pending.remove();
+            } else {
+                misses.increment(missingKeys.size());
+                pending.set(new PendingLoad(new HashSet<>(missingKeys), System.nanoTime()));
+            }
+        }
+
+        /**
+         * 记录写入，写入的键是本线程之前未命中的键时记录加载耗时（批量写入只记录一次）
+         */
+        public void recordPut(Collection<String> keys) {
+            puts.increment(keys.size());
+            PendingLoad load = pending.get();
+            if (load == null) {
+                return;
+            }
+            long elapsed = System.nanoTime() - load.startNanos();
+            if (elapsed > MAX_LOAD_NANOS) {
+                pending.remove();
+                return;
+            }
+            for (String key : keys) {
+                if (load.keys().contains(key)) {
+                    loadTime.record(elapsed, TimeUnit.NANOSECONDS);
+                    pending.remove();
+                    return;
+                }
+            }
+        }
+
+        public void recordPut(String key) {
+            recordPut(Collections.singleton(key));
+        }
+
+        public void recordEvictions(long count) {
+            if (count > 0) {
+                evictions.increment(count);
+            }
+        }
+
+        /**
+         * 注册本地缓存容量淘汰数（由缓存自身统计，例如 Caffeine 的 evictionCount）
+         */
+        public <T> void bindSizeEvictions(T source, ToDoubleFunction<T> count) {
+            sizeEvictions = FunctionCounter.builder(PREFIX + "evictions", source, count)
+                    .tags("cache", cacheName, "cause", "size")
+                    .description("缓存删除条数")
+                    .register(registry);
+        }
+
+        public Map<String, Object> getStats() {
+            long local = (long) localHits.count();
+            long remote = (long) remoteHits.count();
+            long missed = (long) misses.count();
+            long gets = local + remote + missed;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("gets", gets);
+            stats.put("localHits", local);
+            stats.put("remoteHits", remote);
+            stats.put("misses", missed);
+            stats.put("hitRatio", gets > 0 ? (double) (local + remote) / gets : 0);
+            stats.put("puts", (long) puts.count());
+            stats.put("evictions", (long) evictions.count());
+            FunctionCounter size = sizeEvictions;
+            if (size != null) {
+                stats.put("sizeEvictions", (long) size.count());
+            }
+            stats.put("getLatencyMs", timerStats(getLatency));
+            stats.put("loadMs", timerStats(loadTime));
+            return stats;
+        }
+
+        private void hit(Tier tier, int count) {
+            if (count > 0) {
+                (tier == Tier.LOCAL ? localHits : remoteHits).increment(count);
+            }
+        }
+    }
+
+    /**
+     * 命中的层级：本地（进程内）或远程（Redis）
+     */
+    public enum Tier {
+        LOCAL, REMOTE
+    }
+
+    private static Map<String, Object> timerStats(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", snapshot.count());
+        stats.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            stats.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        stats.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+        return stats;
+    }
+}
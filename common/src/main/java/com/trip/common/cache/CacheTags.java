@@ -0,0 +1,20 @@
+package com.trip.common.cache;
+
+/**
+ * 缓存标签
+ * 缓存条目按其包含的数据登记标签，数据变化时按标签清除所有相关条目（见 TwoTierCacheManager.evictTags）
+ */
+public class CacheTags {
+
+    public static String post(Long postId) {
+        return "post:" + postId;
+    }
+
+    public static String user(Long userId) {
+        return "user:" + userId;
+    }
+
+    public static String trip(Long tripId) {
+        return "trip:" + tripId;
+    }
+}
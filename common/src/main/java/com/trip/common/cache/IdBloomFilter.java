@@ -0,0 +1,124 @@
+package com.trip.common.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 自增ID的布隆过滤器（防缓存穿透）
+ *
+ * 建立时放入不大于 maxId 的全部有效ID；判断时大于 maxId 的ID一律视为可能存在（建立之后新增的数据），
+ * 所以新增数据不需要通知各节点，只有删除要等到下次重建才会从过滤器中消失（期间由空值缓存兜底）。
+ * 哈希使用 64 位混合函数加双重哈希（h1 + i × h2）。建立完成后只读，可以在线程间共享。
+ */
+public class IdBloomFilter {
+
+    private static final int HEADER_BYTES = 4 + 8 + 8;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long maxId;
+    private final long builtAt;
+
+    private IdBloomFilter(long[] bits, int hashCount, long maxId, long builtAt) {
+        this.bits = bits;
+        this.bitCount = (long) bits.length * Long.SIZE;
+        this.hashCount = hashCount;
+        this.maxId = maxId;
+        this.builtAt = builtAt;
+    }
+
+    /**
+     * 建立过滤器
+     * @param ids 不大于 maxId 的全部有效ID
+     * @param maxId 建立时的ID上界，通常为扫描到的最大ID
+     * @param fpp 期望误判率
+     */
+    public static IdBloomFilter build(long[] ids, int count, long maxId, double fpp) {
+        int expected = Math.max(count, 1);
+        long bitCount = Math.max(Long.SIZE, (long) (-expected * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+        IdBloomFilter filter = new IdBloomFilter(new long[(int) ((bitCount + Long.SIZE - 1) / Long.SIZE)],
+                hashCount, maxId, System.currentTimeMillis());
+        for (int i = 0; i < count; i++) {
+            filter.put(ids[i]);
+        }
+        return filter;
+    }
+
+    public boolean mightContain(long id) {
+        if (id > maxId) {
+            return true;
+        }
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * 格式：哈希函数个数(4) | maxId(8) | 建立时间(8) | 位数组
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bits.length * Long.BYTES);
+        buffer.putInt(hashCount).putLong(maxId).putLong(builtAt);
+        buffer.asLongBuffer().put(bits);
+        return buffer.array();
+    }
+
+    public static IdBloomFilter fromBytes(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES + Long.BYTES || (bytes.length - HEADER_BYTES) % Long.BYTES != 0) {
+            throw new IllegalArgumentException("布隆过滤器数据长度错误: " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int hashCount = buffer.getInt();
+        long maxId = buffer.getLong();
+        long builtAt = buffer.getLong();
+        long[] bits = new long[(bytes.length - HEADER_BYTES) / Long.BYTES];
+        buffer.asLongBuffer().get(bits);
+        return new IdBloomFilter(bits, hashCount, maxId, builtAt);
+    }
+
+    private void put(long id) {
+        long hash = mix(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * MurmurHash3 的 64 位收尾混合，连续的自增ID也能均匀分布
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93e53cae387L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
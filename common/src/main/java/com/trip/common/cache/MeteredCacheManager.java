@@ -0,0 +1,144 @@
+package com.trip.common.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 记录缓存指标的 Spring CacheManager 包装（@Cacheable 使用的缓存）
+ * 每个缓存的读取、写入、删除记录到 CacheMetrics 中同名的 Recorder；
+ * Spring 的 @Cacheable 未命中后在同一线程中执行方法并写入结果，写入时自动记录加载耗时
+ */
+public class MeteredCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final CacheMetrics cacheMetrics;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public MeteredCacheManager(CacheManager delegate, CacheMetrics cacheMetrics) {
+        this.delegate = delegate;
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = delegate.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new MeteredCache(target, cacheMetrics.recorder(n)));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    /**
+     * 远程缓存（Redis）的命中都按 remote 记录
+     */
+    static class MeteredCache implements Cache {
+
+        private final Cache target;
+        private final CacheMetrics.Recorder metrics;
+
+        MeteredCache(Cache target, CacheMetrics.Recorder metrics) {
+            this.target = target;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            long start = System.nanoTime();
+            ValueWrapper value = target.get(key);
+            metrics.recordGet(String.valueOf(key), value != null ? CacheMetrics.Tier.REMOTE : null,
+                    System.nanoTime() - start);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            long start = System.nanoTime();
+            T value = target.get(key, type);
+            metrics.recordGet(String.valueOf(key), value != null ? CacheMetrics.Tier.REMOTE : null,
+                    System.nanoTime() - start);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            String name = String.valueOf(key);
+            long start = System.nanoTime();
+            boolean[] loaded = new boolean[1];
+            T value = target.get(key, () -> {
+                loaded[0] = true;
+                metrics.recordGet(name, null, System.nanoTime() - start);
+                return valueLoader.call();
+            });
+            if (loaded[0]) {
+                metrics.recordPut(name);
+            } else {
+                metrics.recordGet(name, CacheMetrics.Tier.REMOTE, System.nanoTime() - start);
+            }
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+            metrics.recordPut(String.valueOf(key));
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existing = target.putIfAbsent(key, value);
+            if (existing == null) {
+                metrics.recordPut(String.valueOf(key));
+            }
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            target.evict(key);
+            metrics.recordEvictions(1);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = target.evictIfPresent(key);
+            if (evicted) {
+                metrics.recordEvictions(1);
+            }
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return target.invalidate();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.trip.common.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.trip.common.redis.RedisScanUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 两级缓存：本地 Caffeine（L1）+ Redis（L2）
+ *
+ * L1 保存反序列化后的对象，命中时没有网络往返和反序列化；按条数或按编码后长度估算的容量淘汰，写入后短时间过期。
+ * L2 保存 CacheCodec 编码的字节（默认 Smile，较大的值 LZ4 压缩），多节点共享。读取顺序 L1 → L2（命中后回填 L1）→ 未命中；
+ * 写入只写 L2 并使本节点 L1 失效（下次读取时回填），调用方之后修改写入的对象不会影响 L1；删除同时作用于两级。
+ * 写入和删除 Redis 之后通过 CacheInvalidationBus 通知其他节点删除各自的 L1。
+ * L1 中的对象在多个请求间共享，调用方不能修改返回值，需要修改时先复制。
+ *
+ * 设置 tagger 后，写入时把键登记到值对应的标签集合 "cache:tag:{缓存名}:{标签}"（Redis SET），
+ * 数据变化时按标签删除相关条目（evictTags），不需要遍历键空间；清空缓存使用 SCAN 分批删除。
+ * 命中、未命中、写入、删除和读取耗时记录到 CacheMetrics（同名的 Recorder）。
+ */
+@Slf4j
+public class TwoTierCache<V> {
+
+    private static final String TAG_PREFIX = "cache:tag:";
+
+    private final String name;
+    private final String keyPrefix;
+    private final Duration ttl;
+    private final JavaType type;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheCodec codec;
+    // 未启用本地缓存时为 null
+    private final Cache<String, Local<V>> local;
+    // 没有本地缓存时无需通知其他节点，为 null
+    private final CacheInvalidationBus invalidationBus;
+    // 值 → 标签，为 null 时不登记标签
+    private volatile Function<V, Collection<String>> tagger;
+    private final CacheMetrics.Recorder metrics;
+
+    /**
+     * 本地缓存的值及其估算大小
+     */
+    record Local<V>(V value, int weight) {
+    }
+
+    TwoTierCache(String name, String keyPrefix, Duration ttl, JavaType type, StringRedisTemplate stringRedisTemplate,
+                 CacheCodec codec, Cache<String, Local<V>> local, CacheInvalidationBus invalidationBus,
+                 CacheMetrics.Recorder metrics) {
+        this.name = name;
+        this.keyPrefix = keyPrefix;
+        this.ttl = ttl;
+        this.type = type;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.codec = codec;
+        this.local = local;
+        this.invalidationBus = invalidationBus;
+        this.metrics = metrics;
+        if (local != null) {
+            metrics.bindSizeEvictions(local, cache -> cache.stats().evictionCount());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * 设置写入时登记的标签（如 CacheTags.post(postId)），需要在写入前设置
+     */
+    public void setTagger(Function<V, Collection<String>> tagger) {
+        this.tagger = tagger;
+    }
+
+    /**
+     * 读取单个键
+     * @return 缓存值，未命中或解析失败时返回 null
+     */
+    public V get(String key) {
+        long start = System.nanoTime();
+        if (local != null) {
+            Local<V> hit = local.getIfPresent(key);
+            if (hit != null) {
+                metrics.recordGet(key, CacheMetrics.Tier.LOCAL, System.nanoTime() - start);
+                return hit.value();
+            }
+        }
+        byte[] rawKey = rawKey(key);
+        V value = decode(key, stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(rawKey)));
+        metrics.recordGet(key, value != null ? CacheMetrics.Tier.REMOTE : null, System.nanoTime() - start);
+        return value;
+    }
+
+    /**
+     * 批量读取，L1 未命中的部分用一次 MGET 读取
+     * @return 命中的键到值的映射（可修改）
+     */
+    public Map<String, V> getAll(List<String> keys) {
+        Map<String, V> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+        long start = System.nanoTime();
+        List<String> remote = keys;
+        if (local != null) {
+            local.getAllPresent(keys).forEach((key, hit) -> result.put(key, hit.value()));
+            remote = keys.stream().filter(key -> !result.containsKey(key)).toList();
+        }
+        int localHits = result.size();
+        if (remote.isEmpty()) {
+            metrics.recordGetAll(localHits, 0, Collections.emptyList(), System.nanoTime() - start);
+            return result;
+        }
+        byte[][] rawKeys = remote.stream().map(TwoTierCache::rawKey).toArray(byte[][]::new);
+        List<byte[]> cached = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(rawKeys));
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < remote.size(); i++) {
+            V value = decode(remote.get(i), cached != null ? cached.get(i) : null);
+            if (value != null) {
+                result.put(remote.get(i), value);
+            } else {
+                missing.add(remote.get(i));
+            }
+        }
+        metrics.recordGetAll(localHits, result.size() - localHits, missing, System.nanoTime() - start);
+        return result;
+    }
+
+    public void put(String key, V value) {
+        putAll(Collections.singletonMap(key, value), ttl);
+    }
+
+    public void put(String key, V value, Duration ttl) {
+        putAll(Collections.singletonMap(key, value), ttl);
+    }
+
+    /**
+     * 批量写入（Redis一次pipeline，包括标签登记）
+     * 标签集合的过期时间取本次写入与缓存默认过期时间中较大者，集合中残留已过期的键不影响按标签删除
+     * @param ttl Redis过期时间
+     */
+    public void putAll(Map<String, V> values, Duration ttl) {
+        if (values.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> serialized = new LinkedHashMap<>();
+        Map<String, List<String>> tagged = new HashMap<>();
+        Function<V, Collection<String>> tagger = this.tagger;
+        values.forEach((key, value) -> {
+            try {
+                serialized.put(key, codec.encode(value));
+                if (tagger != null && value != null) {
+                    for (String tag : tagger.apply(value)) {
+                        tagged.computeIfAbsent(tagKey(tag), k -> new ArrayList<>()).add(key);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("序列化缓存失败: cache={}, key={}", name, key, e);
+            }
+        });
+        invalidateLocal(serialized.keySet());
+        long ttlSeconds = Math.max(1, ttl.getSeconds());
+        long tagTtlSeconds = Math.max(ttlSeconds, this.ttl.getSeconds());
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            serialized.forEach((key, bytes) -> conn.stringCommands().setEx(rawKey(key), ttlSeconds, bytes));
+            tagged.forEach((tagKey, keys) -> {
+                conn.sAdd(tagKey, keys.toArray(new String[0]));
+                conn.expire(tagKey, tagTtlSeconds);
+            });
+            return null;
+        });
+        metrics.recordPut(serialized.keySet());
+        publishInvalidation(serialized.keySet());
+    }
+
+    /**
+     * @return Redis中是否存在并已删除
+     */
+    public boolean evict(String key) {
+        return evictAll(Collections.singletonList(key)) > 0;
+    }
+
+    /**
+     * 删除两级缓存中的指定键
+     * @return Redis中实际删除的数量
+     */
+    public long evictAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        invalidateLocal(keys);
+        Long deleted = stringRedisTemplate.delete(keys);
+        publishInvalidation(keys);
+        metrics.recordEvictions(deleted != null ? deleted : 0);
+        return deleted != null ? deleted : 0;
+    }
+
+    /**
+     * 删除登记了任一指定标签的条目（两级），并从标签集合中移除
+     * @return Redis中实际删除的数量
+     */
+    public long evictTags(Collection<String> tags) {
+        if (tagger == null || tags.isEmpty()) {
+            return 0;
+        }
+        List<String> tagKeys = tags.stream().distinct().map(this::tagKey).toList();
+        List<Object> members = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            tagKeys.forEach(conn::sMembers);
+            return null;
+        });
+        Set<String> keys = new LinkedHashSet<>();
+        Map<String, String[]> removed = new HashMap<>();
+        for (int i = 0; i < tagKeys.size(); i++) {
+            if (members.get(i) instanceof Set<?> set && !set.isEmpty()) {
+                String[] tagged = set.stream().map(String::valueOf).toArray(String[]::new);
+                keys.addAll(Arrays.asList(tagged));
+                removed.put(tagKeys.get(i), tagged);
+            }
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        long deleted = evictAll(keys);
+        // 只移除读到的成员，期间新登记的键保留在集合中
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            removed.forEach(conn::sRem);
+            return null;
+        });
+        return deleted;
+    }
+
+    /**
+     * 清空该缓存（本地全部失效，Redis按前缀用 SCAN 分批删除，包括标签集合）
+     * @return Redis中删除的缓存条目数量
+     */
+    public long clear() {
+        invalidateLocalAll();
+        long deleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, keyPrefix + "*");
+        RedisScanUtil.deleteByPattern(stringRedisTemplate, TAG_PREFIX + name + ":*");
+        metrics.recordEvictions(deleted);
+        if (invalidationBus != null) {
+            invalidationBus.publishClear(name);
+        }
+        return deleted;
+    }
+
+    /**
+     * 只使本节点的 L1 失效
+     */
+    public void invalidateLocal(Collection<String> keys) {
+        if (local != null) {
+            local.invalidateAll(keys);
+        }
+    }
+
+    public void invalidateLocalAll() {
+        if (local != null) {
+            local.invalidateAll();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("keyPrefix", keyPrefix);
+        stats.put("ttlSeconds", ttl.getSeconds());
+        if (local != null) {
+            stats.put("l1Size", local.estimatedSize());
+        }
+        stats.putAll(metrics.getStats());
+        return stats;
+    }
+
+    private String tagKey(String tag) {
+        return TAG_PREFIX + name + ":" + tag;
+    }
+
+    private void publishInvalidation(Collection<String> keys) {
+        if (invalidationBus != null) {
+            invalidationBus.publish(name, keys);
+        }
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private V decode(String key, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            V value = codec.decode(bytes, type);
+            putLocal(key, value, bytes.length);
+            return value;
+        } catch (Exception e) {
+            // 解析失败按未命中处理，重新查询后覆盖
+            log.error("解析缓存失败: cache={}, key={}", name, key, e);
+            return null;
+        }
+    }
+
+    private void putLocal(String key, V value, int size) {
+        if (local != null && value != null) {
+            local.put(key, new Local<>(value, key.length() + size));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.trip.common.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+@ConfigurationPropertiesScan("com.trip.common.cache")
+public class TwoTierCacheConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                                                     TwoTierCacheProperties properties) {
+        return new CacheInvalidationBus(stringRedisTemplate, objectMapper, properties.getInvalidation());
+    }
+
+    @Bean
+    public CacheCodec cacheCodec(ObjectMapper objectMapper, TwoTierCacheProperties properties) {
+        TwoTierCacheProperties.Codec codec = properties.getCodec();
+        return new CacheCodec(objectMapper, codec.getFormat(), (int) codec.getCompressThreshold().toBytes());
+    }
+
+    /**
+     * 缓存指标，注册到应用的 MeterRegistry（actuator 提供），没有时使用独立的 SimpleMeterRegistry，只用于统计接口
+     */
+    @Bean
+    public CacheMetrics cacheMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new CacheMetrics(meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @Bean
+    public TwoTierCacheManager twoTierCacheManager(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                                                   TwoTierCacheProperties properties, CacheInvalidationBus cacheInvalidationBus,
+                                                   CacheCodec cacheCodec, CacheMetrics cacheMetrics) {
+        TwoTierCacheManager manager = new TwoTierCacheManager(stringRedisTemplate, objectMapper, properties,
+                cacheInvalidationBus, cacheCodec, cacheMetrics);
+        cacheInvalidationBus.setHandler(manager::invalidateLocal);
+        return manager;
+    }
+
+    /**
+     * 订阅缓存失效频道
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                           CacheInvalidationBus cacheInvalidationBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        if (cacheInvalidationBus.isEnabled()) {
+            container.addMessageListener(cacheInvalidationBus, new ChannelTopic(cacheInvalidationBus.getChannel()));
+        }
+        return container;
+    }
+}
@@ -0,0 +1,132 @@
+package com.trip.common.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 两级缓存管理器
+ * 按缓存名创建并登记 TwoTierCache，本地缓存的容量和过期时间取 TwoTierCacheProperties 中同名的配置；
+ * 其他节点的失效消息（见 CacheInvalidationBus）按缓存名转给对应缓存删除本地条目
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class TwoTierCacheManager {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TwoTierCacheProperties properties;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final CacheCodec cacheCodec;
+    private final CacheMetrics cacheMetrics;
+
+    private final ConcurrentMap<String, TwoTierCache<?>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 获取（不存在时创建）缓存
+     * @param name 缓存名，对应配置 cache.two-tier.caches.{name}
+     * @param keyPrefix Redis键前缀，清空缓存时按前缀删除
+     * @param ttl Redis过期时间
+     * @param type 值类型
+     */
+    public <V> TwoTierCache<V> getCache(String name, String keyPrefix, Duration ttl, Class<V> type) {
+        return getCache(name, keyPrefix, ttl, objectMapper.constructType(type));
+    }
+
+    public <V> TwoTierCache<V> getCache(String name, String keyPrefix, Duration ttl, TypeReference<V> type) {
+        return getCache(name, keyPrefix, ttl, objectMapper.getTypeFactory().constructType(type));
+    }
+
+    /**
+     * 获取值为 CacheEntry&lt;V&gt; 的缓存（stale-while-revalidate 使用）
+     */
+    public <V> TwoTierCache<CacheEntry<V>> getEntryCache(String name, String keyPrefix, Duration ttl, Class<V> type) {
+        return getCache(name, keyPrefix, ttl,
+                objectMapper.getTypeFactory().constructParametricType(CacheEntry.class, type));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> TwoTierCache<V> getCache(String name, String keyPrefix, Duration ttl, JavaType type) {
+        return (TwoTierCache<V>) caches.computeIfAbsent(name, n -> create(n, keyPrefix, ttl, type));
+    }
+
+    public Collection<TwoTierCache<?>> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    /**
+     * 在所有缓存中删除登记了任一指定标签的条目（见 CacheTags）
+     * @return Redis中实际删除的数量
+     */
+    public long evictTags(Collection<String> tags) {
+        long deleted = 0;
+        for (TwoTierCache<?> cache : caches.values()) {
+            try {
+                deleted += cache.evictTags(tags);
+            } catch (Exception e) {
+                log.error("按标签清除缓存失败: cache={}, tags={}", cache.getName(), tags, e);
+            }
+        }
+        if (deleted > 0) {
+            log.info("已按标签清除缓存: tags={}, deleted={}", tags, deleted);
+        }
+        return deleted;
+    }
+
+    public long evictTag(String tag) {
+        return evictTags(Collections.singletonList(tag));
+    }
+
+    /**
+     * 删除本节点指定缓存的本地条目（收到其他节点的失效消息时调用）
+     */
+    public void invalidateLocal(String cacheName, Collection<String> keys, boolean all) {
+        TwoTierCache<?> cache = caches.get(cacheName);
+        if (cache == null) {
+            return;
+        }
+        if (all) {
+            cache.invalidateLocalAll();
+        } else {
+            cache.invalidateLocal(keys);
+        }
+    }
+
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.getStats()));
+        return stats;
+    }
+
+    private <V> TwoTierCache<V> create(String name, String keyPrefix, Duration ttl, JavaType type) {
+        Cache<String, TwoTierCache.Local<V>> local = null;
+        TwoTierCacheProperties.Spec spec = properties.resolve(name);
+        if (properties.isEnabled()) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+            if (spec.getL1Ttl() != null) {
+                builder.expireAfterWrite(spec.getL1Ttl());
+            }
+            if (spec.getL1MaxEntries() != null) {
+                local = builder.maximumSize(spec.getL1MaxEntries()).build();
+            } else {
+                local = builder.maximumWeight(spec.getL1MaxBytes() != null ? spec.getL1MaxBytes() : 0)
+                        .<String, TwoTierCache.Local<V>>weigher((key, value) -> value.weight())
+                        .build();
+            }
+        }
+        log.info("两级缓存已创建: name={}, prefix={}, ttl={}s, l1MaxEntries={}, l1MaxBytes={}, l1Ttl={}",
+                name, keyPrefix, ttl.getSeconds(), spec.getL1MaxEntries(), spec.getL1MaxBytes(), spec.getL1Ttl());
+        return new TwoTierCache<>(name, keyPrefix, ttl, type, stringRedisTemplate, cacheCodec, local,
+                local != null ? cacheInvalidationBus : null, cacheMetrics.recorder(name));
+    }
+}
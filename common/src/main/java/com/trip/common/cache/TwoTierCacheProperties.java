@@ -0,0 +1,95 @@
+package com.trip.common.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 两级缓存配置
+ * cache.two-tier.defaults 为所有缓存的默认值，cache.two-tier.caches.{name} 按缓存名覆盖
+ */
+@Data
+@ConfigurationProperties(prefix = "cache.two-tier")
+public class TwoTierCacheProperties {
+
+    /**
+     * 是否启用本地缓存（L1），关闭后只读写Redis
+     */
+    private boolean enabled = true;
+
+    private Spec defaults = new Spec(null, 8L * 1024 * 1024, Duration.ofSeconds(30));
+
+    private Map<String, Spec> caches = new HashMap<>();
+
+    private Invalidation invalidation = new Invalidation();
+
+    private Codec codec = new Codec();
+
+    /**
+     * Redis中缓存值的编码
+     */
+    @Data
+    public static class Codec {
+        private CacheCodec.Format format = CacheCodec.Format.SMILE;
+        /**
+         * 编码后超过该大小时使用 LZ4 压缩，0 表示不压缩
+         */
+        private DataSize compressThreshold = DataSize.ofKilobytes(1);
+    }
+
+    /**
+     * 跨节点本地缓存失效（Redis pub/sub）
+     */
+    @Data
+    public static class Invalidation {
+        private boolean enabled = true;
+        private String channel = "cache:invalidate";
+        /**
+         * 合并失效键的时间窗口，窗口内同一缓存的失效只发一条消息
+         */
+        private Duration batchWindow = Duration.ofMillis(10);
+        private int maxKeysPerMessage = 500;
+    }
+
+    @Data
+    public static class Spec {
+        /**
+         * 本地缓存最大条数，设置后忽略 l1MaxBytes
+         */
+        private Long l1MaxEntries;
+        /**
+         * 本地缓存最大容量（按编码后长度估算）
+         */
+        private Long l1MaxBytes;
+        /**
+         * 本地缓存写入后的过期时间，决定其他节点修改后本节点最长读到旧值的时间
+         */
+        private Duration l1Ttl;
+
+        public Spec() {
+        }
+
+        public Spec(Long l1MaxEntries, Long l1MaxBytes, Duration l1Ttl) {
+            this.l1MaxEntries = l1MaxEntries;
+            this.l1MaxBytes = l1MaxBytes;
+            this.l1Ttl = l1Ttl;
+        }
+    }
+
+    /**
+     * 合并默认值和指定缓存的配置
+     */
+    public Spec resolve(String name) {
+        Spec spec = caches.get(name);
+        if (spec == null) {
+            return defaults;
+        }
+        return new Spec(spec.getL1MaxEntries() != null ? spec.getL1MaxEntries() : defaults.getL1MaxEntries(),
+                spec.getL1MaxBytes() != null ? spec.getL1MaxBytes() : defaults.getL1MaxBytes(),
+                spec.getL1Ttl() != null ? spec.getL1Ttl() : defaults.getL1Ttl());
+    }
+}
@@ -16,4 +16,48 @@ public class RedisConstant {
     public static final Integer APP_LOGIN_CODE_RESEND_TIME_SEC = 60;
     public static final Integer APP_LOGIN_CODE_TTL_SEC = 60 * 10;
     public static final String APP_ROOM_PREFIX = "app:room:";
-}
\ No newline at end of file
+
+    // 帖子点赞
+    public static final String POST_LIKE_COUNT_PREFIX = "post:like:count:";
+    public static final String POST_LIKE_USER_PREFIX = "post:like:user:";
+    // 点赞用户集合已从MySQL完整加载的标记，存在时集合才是权威数据
+    public static final String POST_LIKE_LOADED_PREFIX = "post:like:loaded:";
+    // 单个帖子从MySQL预热的锁，避免并发预热覆盖已写入的点赞
+    public static final String POST_LIKE_WARM_LOCK_PREFIX = "post:like:warm:";
+    // bitmap 存储模式下的点赞用户分片位图前缀 post:like:bm:{postId}:{chunk}
+    public static final String POST_LIKE_BITMAP_PREFIX = "post:like:bm:";
+    // 旧版 List 变更队列，仅用于升级时消费遗留记录
+    public static final String POST_LIKE_CHANGES_KEY = "post:like:changes";
+    // 点赞计数已分片的帖子ID集合，分片 key 为 post:like:count:{postId}:s:{i}
+    public static final String POST_LIKE_STRIPED_KEY = "post:like:striped";
+    public static final String POST_LIKE_STREAM_KEY = "post:like:stream";
+    public static final String POST_LIKE_STREAM_GROUP = "post-like-sync";
+    // 单个帖子在变更流中尚未写回MySQL的记录数，由点赞脚本递增、写回确认时递减
+    public static final String POST_LIKE_PENDING_PREFIX = "post:like:pending:";
+    public static final Long POST_LIKE_CACHE_TTL_DAYS = 7L;
+    // 点赞对账游标与执行锁
+    public static final String POST_LIKE_RECONCILE_CURSOR_KEY = "post:like:reconcile:cursor";
+    public static final String POST_LIKE_RECONCILE_LOCK_KEY = "post:like:reconcile:lock";
+
+    // 社区时间线：帖子ID（补零到19位）按创建时间排序的 ZSET，以及加载标记与重建锁
+    // v2：成员改为补零的帖子ID，与旧格式混用会打乱同一时间帖子的顺序，新key在首次读取时重建
+    public static final String COMMUNITY_TIMELINE_KEY = "community:timeline:v2";
+    public static final String COMMUNITY_TIMELINE_LOADED_KEY = "community:timeline:v2:loaded";
+    public static final String COMMUNITY_TIMELINE_LOCK_KEY = "community:timeline:v2:lock";
+    // 按地区的社区时间线（地区取行程 region），以及被截断过（末尾需回源MySQL）的地区集合
+    // 地区是用户填写的文本，地区 ZSET 单独使用 "z:" 命名空间，任何地区名都不会与截断集合同名
+    public static final String COMMUNITY_TIMELINE_REGION_PREFIX = "community:timeline:v2:region:z:";
+    public static final String COMMUNITY_TIMELINE_REGION_TRIMMED_KEY = "community:timeline:v2:region:trimmed";
+    // 社区热门榜：按时间衰减互动分数排序的 ZSET，以及分数的基准时间（秒）
+    public static final String COMMUNITY_TRENDING_KEY = "community:trending";
+    public static final String COMMUNITY_TRENDING_EPOCH_KEY = "community:trending:epoch";
+
+    // 帖子/用户ID布隆过滤器：序列化后的过滤器 bloom:id:{post|user}、建立时间与重建锁
+    public static final String ID_BLOOM_PREFIX = "bloom:id:";
+    public static final String ID_BLOOM_BUILT_AT_SUFFIX = ":built-at";
+    public static final String ID_BLOOM_LOCK_SUFFIX = ":lock";
+
+    // 缓存预热的执行锁与上次完成时间（毫秒）
+    public static final String CACHE_WARMUP_LOCK_KEY = "cache:warmup:lock";
+    public static final String CACHE_WARMUP_LAST_KEY = "cache:warmup:last";
+}
@@ -1,5 +1,8 @@
 package com.trip.common.redis;
 
+import com.trip.common.cache.CacheMetrics;
+import com.trip.common.cache.MeteredCacheManager;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -13,7 +16,7 @@ import java.time.Duration;
 @Configuration
 public class RedisCacheManagerConfig {
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory factory) {
+    public CacheManager cacheManager(RedisConnectionFactory factory, CacheMetrics cacheMetrics) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .serializeValuesWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(
@@ -21,8 +24,11 @@ public class RedisCacheManagerConfig {
                         )
                 )
                 .entryTtl(Duration.ofHours(1)); // TTL 1小时
-        return RedisCacheManager.builder(factory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(factory)
                 .cacheDefaults(config)
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        // 记录 @Cacheable 缓存（如 suggestions）的命中、加载耗时等指标
+        return new MeteredCacheManager(redisCacheManager, cacheMetrics);
     }
 }
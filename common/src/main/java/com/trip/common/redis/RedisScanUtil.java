@@ -0,0 +1,70 @@
+package com.trip.common.redis;
+
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 按模式遍历/删除键
+ *
+ * 使用 SCAN 代替 KEYS：KEYS 一次遍历整个键空间，期间 Redis 不能处理其他命令；
+ * SCAN 每次只遍历一小段，遍历结果分批交给调用方，删除使用 UNLINK 在后台释放内存。
+ * SCAN 不保证一致性：遍历期间新增的键可能不在结果中，同一个键可能返回多次。
+ */
+public class RedisScanUtil {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * 分批遍历匹配的键
+     * @param pattern 匹配模式，如 "post:detail:*"
+     * @param batchSize 每批数量，同时作为 SCAN 的 COUNT
+     * @param consumer 处理一批键
+     * @return 遍历到的键数量
+     */
+    public static long scan(StringRedisTemplate stringRedisTemplate, String pattern, int batchSize,
+                            Consumer<List<String>> consumer) {
+        long total = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    total += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+            total += batch.size();
+        }
+        return total;
+    }
+
+    /**
+     * 统计匹配的键数量
+     */
+    public static long count(StringRedisTemplate stringRedisTemplate, String pattern) {
+        return scan(stringRedisTemplate, pattern, DEFAULT_BATCH_SIZE, batch -> {});
+    }
+
+    /**
+     * 分批删除匹配的键
+     * @return 删除的数量
+     */
+    public static long deleteByPattern(StringRedisTemplate stringRedisTemplate, String pattern) {
+        long[] deleted = {0};
+        scan(stringRedisTemplate, pattern, DEFAULT_BATCH_SIZE, batch -> {
+            Long count = stringRedisTemplate.unlink(batch);
+            deleted[0] += count != null ? count : 0;
+        });
+        return deleted[0];
+    }
+}
@@ -0,0 +1,42 @@
+package com.trip.common.result;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 已序列化的 JSON 响应
+ * 由若干字节片段（可以是缓存中共享的数组）按顺序拼接，写出时直接写入输出流，不再经过 Jackson，
+ * 也不复制成一个完整的数组。片段数组写入后不能修改。
+ */
+public class RenderedJson {
+
+    private final List<byte[]> arrays = new ArrayList<>();
+    private final List<int[]> ranges = new ArrayList<>();
+    private int length;
+
+    public RenderedJson append(byte[] bytes) {
+        return append(bytes, 0, bytes.length);
+    }
+
+    public RenderedJson append(byte[] bytes, int offset, int len) {
+        if (len > 0) {
+            arrays.add(bytes);
+            ranges.add(new int[]{offset, len});
+            length += len;
+        }
+        return this;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < arrays.size(); i++) {
+            int[] range = ranges.get(i);
+            out.write(arrays.get(i), range[0], range[1]);
+        }
+    }
+}
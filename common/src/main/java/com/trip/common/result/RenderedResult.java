@@ -0,0 +1,28 @@
+package com.trip.common.result;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * 已预序列化为 JSON 的返回结果
+ * 控制器方法保持 Result<T> 的返回类型，响应体是与 Result.ok(data) 结构相同的 RenderedJson，
+ * 写出时由 RenderedResultAdvice 直接写入响应流，不经过 Jackson。
+ */
+public class RenderedResult<T> extends Result<T> {
+
+    private final RenderedJson json;
+
+    private RenderedResult(RenderedJson json) {
+        this.json = json;
+        setCode(ResultCodeEnum.SUCCESS.getCode());
+        setMessage(ResultCodeEnum.SUCCESS.getMessage());
+    }
+
+    public static <T> RenderedResult<T> of(RenderedJson json) {
+        return new RenderedResult<>(json);
+    }
+
+    @JsonIgnore
+    public RenderedJson getJson() {
+        return json;
+    }
+}
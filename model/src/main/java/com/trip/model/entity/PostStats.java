@@ -0,0 +1,34 @@
+package com.trip.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 帖子统计（浏览量等计数的持久化）
+ * @TableName post_stats
+ */
+@TableName(value = "post_stats")
+@Data
+public class PostStats {
+    /**
+     * 帖子ID post.id
+     */
+    @Schema(description = "帖子ID")
+    @TableId(value = "post_id", type = IdType.INPUT)
+    private Long postId;
+
+    @Schema(description = "浏览量")
+    private Long viewCount;
+
+    @Schema(description = "更新时间")
+    @TableField("update_time")
+    @JsonIgnore
+    private Date updateTime;
+}
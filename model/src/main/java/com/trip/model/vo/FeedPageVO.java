@@ -15,6 +15,8 @@ public class FeedPageVO {
     private Integer size;
     private Long total;
     private List<FeedItemVO> list;
+    // 下一页游标（"score:postId"），没有更多数据时为 null
+    private String nextCursor;
 
     @Data
     public static class FeedItemVO {
@@ -0,0 +1,77 @@
+package com.trip.web.config;
+
+import com.trip.common.login.LoginUser;
+import com.trip.common.login.LoginUserHolder;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 并行查询线程池
+ * 用于缓存未命中时并行执行相互独立的数据库/Redis查询。
+ * 有界队列满时由调用线程自己执行（退化为串行，不会丢任务）；
+ * 任务执行时带上提交线程的 MDC 和登录用户，执行后恢复。
+ */
+@Configuration
+public class QueryExecutorConfig {
+
+    @Value("${query-executor.core-size:8}")
+    private int coreSize;
+
+    @Value("${query-executor.max-size:16}")
+    private int maxSize;
+
+    @Value("${query-executor.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Bean("queryExecutor")
+    public ThreadPoolTaskExecutor queryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(Math.max(maxSize, coreSize));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(contextPropagatingDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    private static TaskDecorator contextPropagatingDecorator() {
+        return runnable -> {
+            Map<String, String> mdc = MDC.getCopyOfContextMap();
+            LoginUser loginUser = LoginUserHolder.getLoginUser();
+            return () -> {
+                // 队列满时任务在提交线程中执行，结束后需要恢复原来的上下文
+                Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+                LoginUser previousUser = LoginUserHolder.getLoginUser();
+                setContext(mdc, loginUser);
+                try {
+                    runnable.run();
+                } finally {
+                    setContext(previousMdc, previousUser);
+                }
+            };
+        };
+    }
+
+    private static void setContext(Map<String, String> mdc, LoginUser loginUser) {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        } else {
+            MDC.clear();
+        }
+        if (loginUser != null) {
+            LoginUserHolder.setLoginUser(loginUser);
+        } else {
+            LoginUserHolder.clear();
+        }
+    }
+}
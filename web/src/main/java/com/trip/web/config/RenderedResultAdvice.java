@@ -0,0 +1,46 @@
+package com.trip.web.config;
+
+import com.trip.common.result.RenderedJson;
+import com.trip.common.result.RenderedResult;
+import com.trip.common.result.Result;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.io.IOException;
+
+/**
+ * 已序列化响应（RenderedResult）的输出
+ * 控制器返回 RenderedResult 时直接把片段写入响应流并返回 null（不再交给消息转换器），其他返回值仍由 Jackson 序列化
+ */
+@RestControllerAdvice
+public class RenderedResultAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return Result.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(body instanceof RenderedResult<?> rendered)) {
+            return body;
+        }
+        RenderedJson json = rendered.getJson();
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(json.getLength());
+        try {
+            json.writeTo(response.getBody());
+        } catch (IOException e) {
+            throw new HttpMessageNotWritableException("写出预序列化响应失败", e);
+        }
+        return null;
+    }
+}
@@ -84,9 +84,9 @@ public class BaiduRouteController {
      * 获取缓存统计信息
      */
     @GetMapping("/cache/stats")
-    public Result<String> getCacheStats() {
+    public Result<Map<String, Object>> getCacheStats() {
         try {
-            String stats = baiduRouteCacheService.getCacheStats();
+            Map<String, Object> stats = baiduRouteCacheService.getCacheStats();
             return Result.ok(stats);
         } catch (Exception e) {
             log.error("获取缓存统计信息失败", e);
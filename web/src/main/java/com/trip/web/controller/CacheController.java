@@ -1,11 +1,19 @@
 package com.trip.web.controller;
 
+import com.trip.common.cache.CacheCodec;
+import com.trip.common.cache.CacheInvalidationBus;
+import com.trip.common.cache.CacheMetrics;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.common.result.Result;
 import com.trip.web.service.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * 缓存管理控制器
  * 用于调试和手动管理缓存
@@ -22,6 +30,14 @@ public class CacheController {
     private final UserProfileCacheService userProfileCacheService;
     private final SearchCacheService searchCacheService;
     private final CommentsCacheService commentsCacheService;
+    private final TwoTierCacheManager twoTierCacheManager;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final CacheCodec cacheCodec;
+    private final CacheMetrics cacheMetrics;
+    private final ResponseRenderService responseRenderService;
+    private final IdBloomFilterService idBloomFilterService;
+    private final CacheLoaderService cacheLoaderService;
+    private final CacheWarmupService cacheWarmupService;
 
     /**
      * 清除指定用户的行程缓存
@@ -138,20 +154,59 @@ public class CacheController {
 
     /**
      * 获取缓存统计信息
+     * 按缓存名返回命中（本地/Redis）、未命中、命中率、写入、删除次数及读取、加载耗时（平均值、p50/p95/p99、最大值，毫秒），
+     * 包括两级缓存、单独使用 Redis 的缓存服务和 @Cacheable 缓存；同样的数据以 trip.cache.* 指标注册到 Micrometer
      */
     @GetMapping("/stats")
-    public Result<String> getCacheStats() {
-        // 这里可以添加更详细的缓存统计信息
-        return Result.ok("缓存统计功能待实现");
+    public Result<Map<String, Map<String, Object>>> getCacheStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>(cacheMetrics.getStats());
+        // 两级缓存另外包含键前缀、TTL 和本地条数
+        stats.putAll(twoTierCacheManager.getStats());
+        return Result.ok(stats);
+    }
+
+    /**
+     * 获取缓存值编码的统计信息（编解码耗时、压缩及相对JSON节省的字节）
+     */
+    @GetMapping("/stats/codec")
+    public Result<Map<String, Object>> getCodecStats() {
+        return Result.ok(cacheCodec.getStats());
+    }
+
+    /**
+     * 获取预序列化响应片段的统计信息（片段数、命中、未命中）
+     */
+    @GetMapping("/stats/render")
+    public Result<Map<String, Object>> getRenderStats() {
+        return Result.ok(responseRenderService.getStats());
+    }
+
+    /**
+     * 获取防缓存穿透的统计信息（ID布隆过滤器拦截数、空值缓存命中数）
+     */
+    @GetMapping("/stats/penetration")
+    public Result<Map<String, Object>> getPenetrationStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bloom", idBloomFilterService.getStats());
+        stats.put("loader", cacheLoaderService.getStats());
+        return Result.ok(stats);
+    }
+
+    /**
+     * 获取跨节点本地缓存失效的统计信息（发布/接收消息数、传播延迟）
+     */
+    @GetMapping("/stats/invalidation")
+    public Result<Map<String, Object>> getInvalidationStats() {
+        return Result.ok(cacheInvalidationBus.getStats());
     }
 
     /**
-     * 预热社区缓存
+     * 预热社区缓存：动态流前 pages 页，热门帖子的详情、点赞数、评论树
      */
     @PostMapping("/warmup/community")
-    public Result<String> warmupCommunityCache() {
-        log.info("开始预热社区缓存...");
-        // 可以在这里预加载热门页面的缓存
-        return Result.ok("社区缓存预热完成");
+    public Result<Map<String, Object>> warmupCommunityCache(@RequestParam(defaultValue = "5") int pages,
+                                                            @RequestParam(defaultValue = "100") int topK) {
+        log.info("开始预热社区缓存: pages={}, topK={}", pages, topK);
+        return Result.ok(cacheWarmupService.warmupCommunity(pages, topK));
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.trip.web.controller;
 
 import com.trip.common.login.LoginUser;
 import com.trip.common.login.LoginUserHolder;
+import com.trip.common.result.RenderedJson;
+import com.trip.common.result.RenderedResult;
 import com.trip.common.result.Result;
 import com.trip.model.dto.CommentDTO;
 import com.trip.model.dto.TripDTO;
@@ -10,11 +12,14 @@ import com.trip.model.entity.Trip;
 import com.trip.model.vo.*;
 import com.trip.web.mapper.CommunityMapper;
 import com.trip.web.service.CommentService;
+import com.trip.web.service.CommunityFeedCacheService;
 import com.trip.web.service.CommunityService;
+import com.trip.web.service.IdBloomFilterService;
 import com.trip.web.service.PostService;
 import com.trip.web.service.PostViewService;
 import com.trip.web.service.PostLikeService;
 import com.trip.web.service.PostCollectService;
+import com.trip.web.service.ResponseRenderService;
 import com.trip.web.service.TripService;
 import com.trip.web.service.UserService;
 import jakarta.annotation.Resource;
@@ -52,22 +57,54 @@ public class CommunityController {
     private PostCollectService postCollectService;
     @Autowired
     private TripService tripService;
+    @Autowired
+    private CommunityFeedCacheService communityFeedCacheService;
+    @Autowired
+    private ResponseRenderService responseRenderService;
+    @Autowired
+    private IdBloomFilterService idBloomFilterService;
 
     // 1. 内容流 Feed
+    // 开启 response-render 时返回预序列化的同结构 JSON（RenderedResult）
     @GetMapping("/feed")
     public Result<FeedPageVO> getFeed(@RequestParam(defaultValue = "1") Integer page,
-                                      @RequestParam(defaultValue = "10") Integer size) {
-        return Result.ok(communityService.getFeed(page, size));
+                                      @RequestParam(defaultValue = "10") Integer size,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) String region) {
+        if (responseRenderService.isEnabled()) {
+            return RenderedResult.of(communityService.renderFeed(page, size, cursor, region));
+        }
+        return Result.ok(communityService.getFeed(page, size, cursor, region));
+    }
+
+    // 1.1 热门 Feed
+    @GetMapping("/feed/hot")
+    public Result<FeedPageVO> getTrendingFeed(@RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "10") Integer size) {
+        if (responseRenderService.isEnabled()) {
+            return RenderedResult.of(communityService.renderTrendingFeed(cursor, size));
+        }
+        return Result.ok(communityService.getTrendingFeed(cursor, size));
     }
 
     // 2. 帖子详情
+    // 开启 response-render 时返回预序列化的同结构 JSON（RenderedResult）
     @GetMapping("/post/{postId}")
     public Result<PostDetailVO> getPostDetail(@PathVariable Long postId) {
+        // 一定不存在的帖子直接返回，不计浏览量
+        if (!idBloomFilterService.mightContainPost(postId)) {
+            return Result.ok(null);
+        }
         // 增加浏览量
         LoginUser loginUser = LoginUserHolder.getLoginUser();
         Long userId = loginUser != null ? loginUser.getUserId() : null;
         Long viewCount = postViewService.incrementViewCount(postId, userId);
-        
+
+        if (responseRenderService.isEnabled()) {
+            RenderedJson rendered = communityService.renderPostDetail(postId, viewCount.intValue());
+            return rendered != null ? RenderedResult.of(rendered) : Result.ok(null);
+        }
+
         PostDetailVO vo = communityService.getPostDetail(postId);
         // 更新浏览量到返回结果中
         if (vo != null) {
@@ -96,7 +133,7 @@ public class CommunityController {
     // 4. 删除帖子
     @DeleteMapping("/post/{postId}")
     public Result<PostDeletedVO> deletePost(@PathVariable Long postId) {
-        postService.removeById(postId);
+        communityService.deletePost(postId);
         return Result.ok();
     }
 
@@ -128,6 +165,9 @@ public class CommunityController {
         trip.setName(dto.getName());
         trip.setDescription(dto.getDescription());
         tripService.updateById(trip);
+
+        // 清除该帖子的动态项缓存
+        communityFeedCacheService.evictFeedOnPostChange(postId);
         
         return Result.ok();
     }
@@ -199,6 +239,12 @@ public class CommunityController {
         return Result.ok(viewCount);
     }
 
+    // 6.6.1 获取帖子浏览统计（原始浏览量、独立访客数）
+    @GetMapping("/post/{postId}/views/stats")
+    public Result<Map<String, Object>> getPostViewStats(@PathVariable Long postId) {
+        return Result.ok(postViewService.getViewStats(postId));
+    }
+
     // 6.7 获取帖子统计信息
     @GetMapping("/post/{postId}/stats")
     public Result<StatVO> getPostStats(@PathVariable Long postId) {
@@ -9,6 +9,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 /**
  * LLM缓存管理控制器
  * 提供所有LLM相关缓存的管理和监控功能
@@ -27,9 +29,9 @@ public class LLMCacheController {
      * 获取百度地图路线规划缓存统计信息
      */
     @GetMapping("/baidu-route/stats")
-    public Result<String> getBaiduRouteCacheStats() {
+    public Result<Map<String, Object>> getBaiduRouteCacheStats() {
         try {
-            String stats = baiduRouteCacheService.getCacheStats();
+            Map<String, Object> stats = baiduRouteCacheService.getCacheStats();
             return Result.ok(stats);
         } catch (Exception e) {
             log.error("获取百度地图路线规划缓存统计信息失败", e);
@@ -55,9 +57,9 @@ public class LLMCacheController {
      * 获取路径规划缓存统计信息
      */
     @GetMapping("/route-plan/stats")
-    public Result<String> getRoutePlanCacheStats() {
+    public Result<Map<String, Object>> getRoutePlanCacheStats() {
         try {
-            String stats = routePlanCacheService.getCacheStats();
+            Map<String, Object> stats = routePlanCacheService.getCacheStats();
             return Result.ok(stats);
         } catch (Exception e) {
             log.error("获取路径规划缓存统计信息失败", e);
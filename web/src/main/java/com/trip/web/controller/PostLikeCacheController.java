@@ -1,11 +1,18 @@
 package com.trip.web.controller;
 
 import com.trip.common.result.Result;
+import com.trip.web.service.CacheWarmupService;
+import com.trip.web.service.PostLikeMemberService;
+import com.trip.web.service.PostLikeRebuildService;
+import com.trip.web.service.PostLikeReconcileService;
 import com.trip.web.service.PostLikeService;
+import com.trip.web.service.PostLikeWriteBehindService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 /**
  * 帖子点赞缓存管理控制器
  * 用于管理Redis中的点赞数据缓存
@@ -17,6 +24,11 @@ import org.springframework.web.bind.annotation.*;
 public class PostLikeCacheController {
 
     private final PostLikeService postLikeService;
+    private final PostLikeWriteBehindService postLikeWriteBehindService;
+    private final PostLikeMemberService postLikeMemberService;
+    private final PostLikeRebuildService postLikeRebuildService;
+    private final PostLikeReconcileService postLikeReconcileService;
+    private final CacheWarmupService cacheWarmupService;
 
     /**
      * 从MySQL同步点赞数据到Redis
@@ -37,6 +49,60 @@ public class PostLikeCacheController {
         }
     }
 
+    /**
+     * 后台全量重建点赞缓存（键集分页读取MySQL，线程池批量写入Redis）
+     */
+    @PostMapping("/rebuild")
+    public Result<String> startRebuild() {
+        if (!postLikeRebuildService.startAsync()) {
+            return Result.error("点赞缓存重建任务正在运行");
+        }
+        log.info("点赞缓存全量重建已启动");
+        return Result.ok("点赞缓存全量重建已启动");
+    }
+
+    /**
+     * 获取全量重建进度（已读取行数、已写入帖子数、吞吐量等）
+     */
+    @GetMapping("/rebuild/progress")
+    public Result<Object> getRebuildProgress() {
+        return Result.ok(postLikeRebuildService.getProgress());
+    }
+
+    /**
+     * 取消正在运行的全量重建
+     */
+    @PostMapping("/rebuild/cancel")
+    public Result<String> cancelRebuild() {
+        postLikeRebuildService.cancel();
+        return Result.ok("已请求取消点赞缓存重建");
+    }
+
+    /**
+     * 获取对账漂移统计（检查帖子数、各类不一致数、修复数等）
+     */
+    @GetMapping("/reconcile/stats")
+    public Result<Object> getReconcileStats() {
+        try {
+            return Result.ok(postLikeReconcileService.getStats());
+        } catch (Exception e) {
+            log.error("获取点赞对账统计失败: error={}", e.getMessage());
+            return Result.error("获取统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 立即从当前游标继续对账若干块
+     */
+    @PostMapping("/reconcile/run")
+    public Result<String> runReconcile(@RequestParam(defaultValue = "5") int chunks) {
+        int checked = postLikeReconcileService.runOnce(chunks);
+        if (checked < 0) {
+            return Result.error("点赞对账正在其他节点执行");
+        }
+        return Result.ok(String.format("点赞对账完成，已检查 %d 个帖子", checked));
+    }
+
     /**
      * 将Redis中的点赞数据同步到MySQL
      */
@@ -87,16 +153,54 @@ public class PostLikeCacheController {
         }
     }
 
+    /**
+     * 获取点赞变更流的积压与消费指标（流长度、待确认数、写回延迟等）
+     */
+    @GetMapping("/stream/stats")
+    public Result<Object> getStreamStats() {
+        try {
+            return Result.ok(postLikeWriteBehindService.getStreamStats());
+        } catch (Exception e) {
+            log.error("获取点赞变更流统计失败: error={}", e.getMessage());
+            return Result.error("获取统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 将现有的点赞用户集合迁移为分片位图（需配置 post-like.storage-mode=bitmap）
+     */
+    @PostMapping("/storage/migrate-to-bitmap")
+    public Result<Object> migrateToBitmap(@RequestParam(defaultValue = "500") int scanCount) {
+        try {
+            return Result.ok(postLikeMemberService.migrateSetsToBitmap(scanCount));
+        } catch (Exception e) {
+            log.error("点赞集合迁移为位图失败: error={}", e.getMessage());
+            return Result.error("迁移失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 对比 set 与 bitmap 两种存储方式的内存占用（抽样）
+     */
+    @GetMapping("/storage/memory-report")
+    public Result<Object> getMemoryReport(@RequestParam(defaultValue = "200") int sampleSize) {
+        try {
+            return Result.ok(postLikeMemberService.memoryReport(sampleSize));
+        } catch (Exception e) {
+            log.error("获取点赞存储内存报告失败: error={}", e.getMessage());
+            return Result.error("获取报告失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 预热缓存 - 将热门帖子的点赞数据加载到Redis
      */
     @PostMapping("/warmup")
-    public Result<String> warmupCache(@RequestParam(defaultValue = "100") int topN) {
+    public Result<Map<String, Object>> warmupCache(@RequestParam(defaultValue = "100") int topN) {
         try {
-            // 这里可以根据实际需求实现预热逻辑
-            // 比如加载最近N天的热门帖子数据到Redis
-            log.info("缓存预热完成: topN={}", topN);
-            return Result.ok(String.format("缓存预热完成，已加载前 %d 个热门帖子", topN));
+            Map<String, Object> report = cacheWarmupService.warmupLikeCounts(topN);
+            log.info("点赞缓存预热完成: topN={}", topN);
+            return Result.ok(report);
         } catch (Exception e) {
             log.error("缓存预热失败: topN={}, error={}", topN, e.getMessage());
             return Result.error("预热失败: " + e.getMessage());
@@ -155,9 +155,9 @@ public class TransportInfoController {
      * 获取缓存统计信息
      */
     @GetMapping("/cache/stats")
-    public Result<String> getCacheStats() {
+    public Result<Map<String, Object>> getCacheStats() {
         try {
-            String stats = transportInfoCacheService.getCacheStats();
+            Map<String, Object> stats = transportInfoCacheService.getCacheStats();
             return Result.ok(stats);
         } catch (Exception e) {
             log.error("获取缓存统计信息失败", e);
@@ -24,6 +24,14 @@ public interface PostLikeMapper extends BaseMapper<PostLike> {
     Integer countByPostId(Long postId);
 
     List<AuthorVO> getPostLikeUserByPostId(Long postId);
+
+    /**
+     * 查询用户在给定帖子中已点赞的帖子ID（批量点赞状态查询）
+     * @param userId 用户ID
+     * @param postIds 帖子ID列表
+     * @return 已点赞的帖子ID
+     */
+    List<Long> selectLikedPostIds(@Param("userId") Long userId, @Param("postIds") List<Long> postIds);
     
     /**
      * 获取不同的帖子ID列表（用于数据同步）
@@ -32,6 +40,38 @@ public interface PostLikeMapper extends BaseMapper<PostLike> {
      * @return 帖子ID列表
      */
     List<Long> getDistinctPostIds(@Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * 点赞数最多的帖子ID（用于缓存预热）
+     * @param limit 数量
+     * @return 帖子ID（按点赞数倒序，不含已删除的帖子）
+     */
+    List<Long> selectMostLikedPostIds(@Param("limit") int limit);
+
+    /**
+     * 按 (post_id, user_id) 键集分页读取有效点赞记录（用于全量重建缓存）
+     * @param lastPostId 上一页最后一条记录的帖子ID，首页传 0
+     * @param lastUserId 上一页最后一条记录的用户ID，首页传 0
+     * @param limit 每页数量
+     * @return 点赞记录（仅包含 postId、userId）
+     */
+    List<PostLike> selectLikesAfter(@Param("lastPostId") long lastPostId,
+                                    @Param("lastUserId") long lastUserId,
+                                    @Param("limit") int limit);
+
+    /**
+     * 批量写入点赞记录（依赖 uk_post_user 唯一索引，已存在的记录恢复为未删除）
+     * @param likes 点赞记录（仅使用 postId、userId）
+     * @return 影响行数
+     */
+    int batchUpsertLikes(@Param("list") List<PostLike> likes);
+
+    /**
+     * 批量逻辑删除点赞记录
+     * @param likes 点赞记录（仅使用 postId、userId）
+     * @return 影响行数
+     */
+    int batchSoftDeleteLikes(@Param("list") List<PostLike> likes);
 }
 
 
@@ -9,6 +9,9 @@ import com.trip.model.vo.StatVO;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.lang.Nullable;
 
+import java.util.Date;
+import java.util.List;
+
 /**
 * @author 26423
 * @description 针对表【post】的数据库操作Mapper
@@ -25,8 +28,37 @@ public interface PostMapper extends BaseMapper<Post> {
      * @return
      */
     StatVO getStatsByPostId(@Param("postId") Long postId, @Nullable @Param("userId") Long userId);
-}
-
 
+    /**
+     * 按主键键集分页读取帖子ID
+     * @param lastId 上一页最后一个帖子ID，首页传 0
+     * @param limit 每页数量
+     * @return 帖子ID（升序）
+     */
+    List<Long> selectIdsAfter(@Param("lastId") long lastId, @Param("limit") int limit);
 
+    /**
+     * 按主键键集分页读取指定时间之前创建的帖子ID
+     * @param lastId 上一页最后一个帖子ID，首页传 0
+     * @param before 创建时间上界（不含）
+     * @param limit 每页数量
+     * @return 帖子ID（升序）
+     */
+    List<Long> selectIdsCreatedBefore(@Param("lastId") long lastId, @Param("before") Date before,
+                                      @Param("limit") int limit);
 
+    /**
+     * 按 (create_time, id) 倒序键集分页读取帖子（只含 id、trip_id、create_time）
+     * @param region 行程地区，为 null 时不筛选
+     * @param createTime 上一页最后一个帖子的创建时间，首页传 null
+     * @param id 上一页最后一个帖子ID
+     * @param offset 跳过的条数（按页码回源时使用，键集分页传 0）
+     * @param limit 每页数量
+     * @return 帖子（按创建时间、ID倒序）
+     */
+    List<Post> selectTimelineBefore(@Nullable @Param("region") String region,
+                                    @Nullable @Param("createTime") Date createTime,
+                                    @Nullable @Param("id") Long id,
+                                    @Param("offset") long offset,
+                                    @Param("limit") int limit);
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.trip.web.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.trip.model.entity.PostStats;
+import org.apache.ibatis.annotations.MapKey;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 针对表【post_stats】的数据库操作Mapper
+ * @Entity com.trip.model.entity.PostStats
+ */
+public interface PostStatsMapper extends BaseMapper<PostStats> {
+
+    /**
+     * 批量查询帖子浏览量
+     * @param postIds 帖子ID列表
+     * @return 帖子ID到统计的映射（没有记录的帖子不在结果中）
+     */
+    @MapKey("postId")
+    Map<Long, PostStats> selectViewCounts(@Param("postIds") List<Long> postIds);
+
+    /**
+     * 批量写入浏览量，只会增大（多节点乱序写入时不回退）
+     * @param stats 帖子统计（仅使用 postId、viewCount）
+     * @return 影响行数
+     */
+    int batchUpsertViewCounts(@Param("list") List<PostStats> stats);
+
+    /**
+     * 浏览量最多的帖子ID（用于缓存预热）
+     * @param limit 数量
+     * @return 帖子ID（按浏览量倒序，不含已删除的帖子）
+     */
+    List<Long> selectMostViewedPostIds(@Param("limit") int limit);
+}
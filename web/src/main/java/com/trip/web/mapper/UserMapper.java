@@ -6,7 +6,9 @@ import com.trip.model.vo.AuthorVO;
 import com.trip.model.vo.UserPostVO;
 import com.trip.model.vo.UserPostsStatsVO;
 import com.trip.model.vo.UserProfileVO;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -24,6 +26,16 @@ public interface UserMapper extends BaseMapper<User> {
     List<UserPostVO> getUserPostsByUserId(Long userId);
 
     List<AuthorVO> getAuthorVoByKeyword(String keyword);
+
+    /**
+     * 按主键键集分页读取指定时间之前注册的用户ID
+     * @param lastId 上一页最后一个用户ID，首页传 0
+     * @param before 创建时间上界（不含）
+     * @param limit 每页数量
+     * @return 用户ID（升序）
+     */
+    List<Long> selectIdsCreatedBefore(@Param("lastId") long lastId, @Param("before") Date before,
+                                      @Param("limit") int limit);
 }
 
 
@@ -22,6 +22,7 @@ public class AuthService {
     private final UserService userService;
     private final PasswordEncoder passwordEncoder;
     private final GraphInfoService graphInfoService;
+    private final UserProfileCacheService userProfileCacheService;
 
     public AuthLoginVO login(AuthLoginDTO dto) {
         User user = userService.getOne(new LambdaQueryWrapper<User>()
@@ -67,6 +68,8 @@ public class AuthService {
         user.setAvatarId(1L); // 设置默认头像
         user.setNickname("未命名用户"); // 设置默认昵称
         userService.save(user);
+        // 该ID之前可能被请求过并缓存了空值
+        userProfileCacheService.evictUserProfile(user.getId());
 
         AuthRegisterVO vo = new AuthRegisterVO();
         vo.setUserId(user.getId());
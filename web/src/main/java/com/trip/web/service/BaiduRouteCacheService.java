@@ -2,6 +2,9 @@ package com.trip.web.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheMetrics;
+import com.trip.common.redis.RedisScanUtil;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -23,9 +26,18 @@ public class BaiduRouteCacheService {
 
     private final StringRedisTemplate stringRedisTemplate;
     private final ObjectMapper objectMapper;
+    private final CacheMetrics cacheMetrics;
 
+    private static final String CACHE_NAME = "baidu-route";
     private static final String CACHE_PREFIX = "baidu_route:";
 
+    private CacheMetrics.Recorder metrics;
+
+    @PostConstruct
+    public void init() {
+        metrics = cacheMetrics.recorder(CACHE_NAME);
+    }
+
     /**
      * 生成缓存键
      * 基于地点坐标列表生成唯一的缓存键
@@ -64,7 +76,9 @@ public class BaiduRouteCacheService {
      */
     public Map<String, Object> getRouteCache(String cacheKey) {
         try {
+            long start = System.nanoTime();
             String cached = stringRedisTemplate.opsForValue().get(cacheKey);
+            metrics.recordGet(cacheKey, cached != null ? CacheMetrics.Tier.REMOTE : null, System.nanoTime() - start);
             if (cached != null) {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> result = objectMapper.readValue(cached, Map.class);
@@ -91,6 +105,7 @@ public class BaiduRouteCacheService {
                     // 序列化为JSON字符串并存入缓存，设置永不过期
                     String jsonData = objectMapper.writeValueAsString(routeData);
                     stringRedisTemplate.opsForValue().set(cacheKey, jsonData);
+                    metrics.recordPut(cacheKey);
                 } else {
                     log.warn("路线规划数据缺少必要字段，跳过缓存: key={}", cacheKey);
                 }
@@ -109,6 +124,7 @@ public class BaiduRouteCacheService {
         try {
             Boolean deleted = stringRedisTemplate.delete(cacheKey);
             if (Boolean.TRUE.equals(deleted)) {
+                metrics.recordEvictions(1);
                 log.info("已清除百度地图路线规划缓存: key={}", cacheKey);
             }
         } catch (Exception e) {
@@ -121,9 +137,9 @@ public class BaiduRouteCacheService {
      */
     public void evictAllRouteCache() {
         try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
+            long deleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, CACHE_PREFIX + "*");
+            metrics.recordEvictions(deleted);
+            if (deleted > 0) {
                 log.info("已清除所有百度地图路线规划缓存: 共{}个", deleted);
             }
         } catch (Exception e) {
@@ -132,18 +148,9 @@ public class BaiduRouteCacheService {
     }
 
     /**
-     * 获取缓存统计信息
-     * 
-     * @return 缓存统计信息
+     * 获取缓存统计信息（命中、未命中、写入、删除次数和读取、加载耗时，见 CacheMetrics）
      */
-    public String getCacheStats() {
-        try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            int count = keys != null ? keys.size() : 0;
-            return String.format("百度地图路线规划缓存统计: 共%d个缓存项", count);
-        } catch (Exception e) {
-            log.error("获取缓存统计信息失败", e);
-            return "获取缓存统计信息失败: " + e.getMessage();
-        }
+    public Map<String, Object> getCacheStats() {
+        return metrics.getStats();
     }
 }
@@ -0,0 +1,379 @@
+package com.trip.web.service;
+
+import com.trip.common.cache.CacheEntry;
+import com.trip.common.cache.TwoTierCache;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 缓存加载服务（stale-while-revalidate + single-flight）
+ *
+ * 缓存值包装为 CacheEntry {"v": 值, "e": 软过期时间(毫秒), "c": 上次计算耗时(毫秒)}，存放在两级缓存中，
+ * Redis TTL 为 ttl × (1 + stale-ratio)：
+ * 1. 软过期前命中直接返回；越接近软过期、计算越慢，越可能提前触发刷新（概率提前刷新，避免同一时刻集中过期）
+ * 2. 软过期后到 Redis TTL 之间命中，返回旧值并在后台刷新
+ * 3. 刷新和未命中时的加载都要先获得 "cache:rebuild:{key}" 短锁，全集群每个键只有一个调用方在计算；
+ *    未命中且未获得锁的调用方等待其他节点写入，超时后自行计算
+ * 本节点内同一个键的并发未命中共享同一次计算。删除缓存（失效）仍直接 DEL，下次读取按未命中处理，不会返回旧值。
+ * getCachingAbsent 在数据不存在时写入空值条目（"n": true，TTL 为 negative-ttl-seconds），
+ * 不存在的ID在此期间不再查询数据库；数据新建时调用方需删除对应的键。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CacheLoaderService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private static final String LOCK_PREFIX = "cache:rebuild:";
+    private static final long WAIT_STEP_MS = 20;
+
+    @Value("${cache.swr.enabled:true}")
+    private boolean enabled;
+
+    // 软过期后还可以返回旧值的时间，为 ttl 的倍数
+    @Value("${cache.swr.stale-ratio:1.0}")
+    private double staleRatio;
+
+    // 概率提前刷新系数，越大越早刷新，0 表示不提前
+    @Value("${cache.swr.beta:1.0}")
+    private double beta;
+
+    @Value("${cache.swr.lock-seconds:10}")
+    private long lockSeconds;
+
+    // 未命中且其他调用方正在计算时的最长等待时间
+    @Value("${cache.swr.wait-ms:300}")
+    private long waitMs;
+
+    // 空值缓存的过期时间
+    @Value("${cache.negative-ttl-seconds:60}")
+    private long negativeTtlSeconds;
+
+    private final AtomicLong absentHits = new AtomicLong();
+    private final AtomicLong absentWrites = new AtomicLong();
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // 后台刷新线程池：队列满时放弃本次刷新（继续返回旧值，下次命中再触发）
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(2, 4, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256), runnable -> {
+                Thread thread = new Thread(runnable, "cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    /**
+     * 读取单个键，未命中时加载
+     * @param cache 值为 CacheEntry 的两级缓存
+     * @param key 缓存键
+     * @param ttl 新鲜时间（软过期）
+     * @param loader 加载函数，返回 null 时不缓存
+     */
+    public <T> T get(TwoTierCache<CacheEntry<T>> cache, String key, Duration ttl, Supplier<T> loader) {
+        return get(cache, key, ttl, loader, false);
+    }
+
+    /**
+     * 读取单个键，未命中时加载；加载结果为 null 时写入短期的空值缓存，防止不存在的键反复穿透到数据库
+     * @param loader 加载函数，返回 null 表示数据不存在
+     */
+    public <T> T getCachingAbsent(TwoTierCache<CacheEntry<T>> cache, String key, Duration ttl, Supplier<T> loader) {
+        return get(cache, key, ttl, loader, true);
+    }
+
+    /**
+     * 批量读取，一次 MGET；未命中的部分调用一次批量加载函数，软过期或提前刷新的部分在后台批量刷新
+     * 批量加载本身就是一次多行查询，未命中部分不做集群级互斥
+     * @param ids 业务ID
+     * @param keyFunction 业务ID到缓存键
+     * @param loader 批量加载函数，结果中缺少的ID不缓存
+     * @return 业务ID到值的映射（可修改）
+     */
+    public <K, T> Map<K, T> getAll(TwoTierCache<CacheEntry<T>> cache, List<K> ids, Function<K, String> keyFunction,
+                                   Duration ttl, Function<List<K>, Map<K, T>> loader) {
+        Map<K, T> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        List<String> keys = ids.stream().map(keyFunction).toList();
+        Map<String, CacheEntry<T>> cached = cache.getAll(keys);
+
+        List<K> missing = new ArrayList<>();
+        List<K> refresh = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            CacheEntry<T> entry = cached.get(keys.get(i));
+            if (entry != null && entry.absent()) {
+                // 空值缓存：数据不存在
+                continue;
+            }
+            if (entry == null || entry.value() == null) {
+                missing.add(ids.get(i));
+            } else {
+                result.put(ids.get(i), entry.value());
+                if (shouldRefresh(entry)) {
+                    refresh.add(ids.get(i));
+                }
+            }
+        }
+        log.debug("批量缓存读取: hit={}, refresh={}, total={}", result.size(), refresh.size(), ids.size());
+
+        if (!refresh.isEmpty()) {
+            refreshAllAsync(cache, refresh, keyFunction, ttl, loader);
+        }
+        if (!missing.isEmpty()) {
+            long start = System.currentTimeMillis();
+            Map<K, T> loaded = loader.apply(missing);
+            long computeMillis = System.currentTimeMillis() - start;
+            Map<String, T> values = new LinkedHashMap<>();
+            loaded.forEach((id, value) -> values.put(keyFunction.apply(id), value));
+            writeAll(cache, values, ttl, computeMillis);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    /**
+     * 直接写入（计算耗时未知，按 0 记录）
+     */
+    public <T> void put(TwoTierCache<CacheEntry<T>> cache, String key, T value, Duration ttl) {
+        writeAll(cache, Collections.singletonMap(key, value), ttl, 0);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("negativeTtlSeconds", negativeTtlSeconds);
+        stats.put("absentHits", absentHits.get());
+        stats.put("absentWrites", absentWrites.get());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private <T> T get(TwoTierCache<CacheEntry<T>> cache, String key, Duration ttl, Supplier<T> loader,
+                      boolean cacheAbsent) {
+        CacheEntry<T> entry = read(cache, key);
+        if (entry != null && entry.absent()) {
+            absentHits.incrementAndGet();
+            return null;
+        }
+        if (entry != null) {
+            String token = shouldRefresh(entry) ? tryLock(key) : null;
+            if (token != null) {
+                refreshAsync(cache, Collections.singletonList(key), Collections.singletonList(token),
+                        () -> Collections.singletonMap(key, loader.get()), ttl);
+            }
+            return entry.value();
+        }
+        return loadSingleFlight(cache, key, ttl, loader, cacheAbsent);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T loadSingleFlight(TwoTierCache<CacheEntry<T>> cache, String key, Duration ttl, Supplier<T> loader,
+                                   boolean cacheAbsent) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            // 本节点已有线程在加载同一个键
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+        try {
+            T value = loadOnce(cache, key, ttl, loader, cacheAbsent);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private <T> T loadOnce(TwoTierCache<CacheEntry<T>> cache, String key, Duration ttl, Supplier<T> loader,
+                           boolean cacheAbsent) {
+        String token = enabled ? tryLock(key) : null;
+        if (enabled && token == null) {
+            // 其他节点正在计算，等待其写入
+            long deadline = System.currentTimeMillis() + waitMs;
+            while (System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(WAIT_STEP_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                CacheEntry<T> entry = read(cache, key);
+                if (entry != null) {
+                    return entry.value();
+                }
+            }
+            log.info("等待缓存重建超时，自行加载: key={}", key);
+        }
+        try {
+            long start = System.currentTimeMillis();
+            T value = loader.get();
+            if (value != null) {
+                writeAll(cache, Collections.singletonMap(key, value), ttl, System.currentTimeMillis() - start);
+            } else if (cacheAbsent) {
+                writeAbsent(cache, key);
+            }
+            return value;
+        } finally {
+            unlock(key, token);
+        }
+    }
+
+    private <K, T> void refreshAllAsync(TwoTierCache<CacheEntry<T>> cache, List<K> ids, Function<K, String> keyFunction,
+                                        Duration ttl, Function<List<K>, Map<K, T>> loader) {
+        List<String> keys = ids.stream().map(keyFunction).toList();
+        List<String> tokens = tryLockAll(keys);
+        List<K> lockedIds = new ArrayList<>();
+        List<String> lockedKeys = new ArrayList<>();
+        List<String> lockedTokens = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (tokens.get(i) != null) {
+                lockedIds.add(ids.get(i));
+                lockedKeys.add(keys.get(i));
+                lockedTokens.add(tokens.get(i));
+            }
+        }
+        if (lockedIds.isEmpty()) {
+            return;
+        }
+        refreshAsync(cache, lockedKeys, lockedTokens, () -> {
+            Map<String, T> values = new LinkedHashMap<>();
+            loader.apply(lockedIds).forEach((id, value) -> values.put(keyFunction.apply(id), value));
+            return values;
+        }, ttl);
+    }
+
+    /**
+     * 在后台线程中重新计算并写入，结束后释放锁
+     */
+    private <T> void refreshAsync(TwoTierCache<CacheEntry<T>> cache, List<String> keys, List<String> tokens,
+                                  Supplier<Map<String, T>> loader, Duration ttl) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    long start = System.currentTimeMillis();
+                    Map<String, T> values = new LinkedHashMap<>(loader.get());
+                    values.values().removeIf(Objects::isNull);
+                    writeAll(cache, values, ttl, System.currentTimeMillis() - start);
+                    log.debug("缓存已后台刷新: keys={}", values.size());
+                } catch (Exception e) {
+                    // 刷新失败继续返回旧值，直到 Redis TTL 到期
+                    log.warn("缓存后台刷新失败: keys={}, error={}", keys.size(), e.getMessage());
+                } finally {
+                    for (int i = 0; i < keys.size(); i++) {
+                        unlock(keys.get(i), tokens.get(i));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            for (int i = 0; i < keys.size(); i++) {
+                unlock(keys.get(i), tokens.get(i));
+            }
+        }
+    }
+
+    /**
+     * 是否需要刷新：已软过期，或按 XFetch 概率提前刷新（now - 计算耗时 × beta × ln(rand) >= 软过期）
+     */
+    private boolean shouldRefresh(CacheEntry<?> entry) {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= entry.softExpireAt()) {
+            return true;
+        }
+        double early = -entry.computeMillis() * beta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return now + early >= entry.softExpireAt();
+    }
+
+    private <T> CacheEntry<T> read(TwoTierCache<CacheEntry<T>> cache, String key) {
+        CacheEntry<T> entry = cache.get(key);
+        // 旧格式的缓存没有包装，value 为 null（且不是空值缓存），按未命中处理，加载后覆盖
+        return entry != null && (entry.value() != null || entry.absent()) ? entry : null;
+    }
+
+    private <T> void writeAll(TwoTierCache<CacheEntry<T>> cache, Map<String, T> values, Duration ttl, long computeMillis) {
+        if (values.isEmpty()) {
+            return;
+        }
+        long softExpireAt = System.currentTimeMillis() + ttl.toMillis();
+        long hardTtlSeconds = Math.max(1, (long) (ttl.getSeconds() * (1 + (enabled ? staleRatio : 0))));
+        Map<String, CacheEntry<T>> entries = new LinkedHashMap<>();
+        values.forEach((key, value) -> entries.put(key, new CacheEntry<>(value, softExpireAt, computeMillis, false)));
+        cache.putAll(entries, Duration.ofSeconds(hardTtlSeconds));
+    }
+
+    /**
+     * 写入空值条目，到期后直接过期（不返回旧值、不后台刷新）
+     */
+    private <T> void writeAbsent(TwoTierCache<CacheEntry<T>> cache, String key) {
+        long ttlMillis = TimeUnit.SECONDS.toMillis(negativeTtlSeconds);
+        cache.put(key, new CacheEntry<>(null, System.currentTimeMillis() + ttlMillis, 0, true),
+                Duration.ofMillis(ttlMillis));
+        absentWrites.incrementAndGet();
+    }
+
+    private String tryLock(String key) {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LOCK_PREFIX + key, token, lockSeconds, TimeUnit.SECONDS);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    /**
+     * 批量加锁（一次pipeline）
+     * @return 与 keys 对应的锁令牌，未获得锁的位置为 null
+     */
+    private List<String> tryLockAll(List<String> keys) {
+        String token = UUID.randomUUID().toString();
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            keys.forEach(key -> conn.set(LOCK_PREFIX + key, token,
+                    Expiration.seconds(lockSeconds), SetOption.SET_IF_ABSENT));
+            return null;
+        });
+        List<String> tokens = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            tokens.add(i < results.size() && Boolean.TRUE.equals(results.get(i)) ? token : null);
+        }
+        return tokens;
+    }
+
+    private void unlock(String key, String token) {
+        if (token != null) {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_PREFIX + key), token);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import com.trip.web.mapper.PostLikeMapper;
+import com.trip.web.mapper.PostStatsMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 缓存预热服务
+ *
+ * 启动完成后（后台线程）和手动触发时，通过正常的读取路径加载：动态流前 N 页、热门帖子（热度榜，
+ * 不足时补充浏览量/点赞数最多的帖子）的详情、点赞数和评论树，新节点上线或 Redis 切换后不再由用户请求集中回源。
+ * 预热任务在固定大小的线程池中执行，并按 tasks-per-second 限速（每个任务是一页动态、一个帖子详情、
+ * 一个评论树或一批点赞数，未命中时各需几条 SQL），避免预热本身压垮 MySQL。
+ * 多节点通过 Redis 锁只由一个节点执行；启动时距上次预热不足 min-interval-seconds 则跳过，滚动发布只预热一次。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CacheWarmupService {
+
+    private final CommunityService communityService;
+    private final CommentService commentService;
+    private final PostLikeService postLikeService;
+    private final CommunityTrendingService communityTrendingService;
+    private final PostStatsMapper postStatsMapper;
+    private final PostLikeMapper postLikeMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    @Value("${cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.warmup.on-startup:true}")
+    private boolean onStartup;
+
+    @Value("${cache.warmup.feed-pages:5}")
+    private int feedPages;
+
+    @Value("${cache.warmup.page-size:10}")
+    private int pageSize;
+
+    @Value("${cache.warmup.top-k:100}")
+    private int topK;
+
+    @Value("${cache.warmup.concurrency:4}")
+    private int concurrency;
+
+    @Value("${cache.warmup.tasks-per-second:50}")
+    private double tasksPerSecond;
+
+    @Value("${cache.warmup.like-batch-size:100}")
+    private int likeBatchSize;
+
+    @Value("${cache.warmup.min-interval-seconds:600}")
+    private long minIntervalSeconds;
+
+    @Value("${cache.warmup.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    // 需大于 timeout-seconds
+    @Value("${cache.warmup.lock-seconds:600}")
+    private long lockSeconds;
+
+    private final String lockOwner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmupOnStartup() {
+        if (!enabled || !onStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                String last = stringRedisTemplate.opsForValue().get(RedisConstant.CACHE_WARMUP_LAST_KEY);
+                if (last != null && System.currentTimeMillis() - Long.parseLong(last)
+                        < TimeUnit.SECONDS.toMillis(minIntervalSeconds)) {
+                    log.info("距上次缓存预热不足{}秒，跳过启动预热", minIntervalSeconds);
+                    return;
+                }
+                warmupCommunity(feedPages, topK);
+            } catch (Exception e) {
+                log.error("启动缓存预热失败: error={}", e.getMessage());
+            }
+        }, "cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 预热社区缓存：动态流前 pages 页，热门帖子的详情、点赞数、评论树
+     * @return 各类缓存的预热数量、失败数、耗时；其他节点正在预热时 skipped 为 true
+     */
+    public Map<String, Object> warmupCommunity(int pages, int topK) {
+        return runLocked(run -> {
+            warmFeed(run, pages);
+            List<Long> postIds = hotPostIds(run, topK);
+            run.report.put("hotPosts", postIds.size());
+            warmLikeCounts(run, postIds);
+            for (Long postId : postIds) {
+                run.submit("postDetails", 1, () -> communityService.getPostDetail(postId));
+                run.submit("comments", 1, () -> commentService.getCommentsByPostId(postId));
+            }
+        });
+    }
+
+    /**
+     * 只预热热门帖子的点赞数
+     */
+    public Map<String, Object> warmupLikeCounts(int topN) {
+        return runLocked(run -> {
+            List<Long> postIds = hotPostIds(run, topN);
+            run.report.put("hotPosts", postIds.size());
+            warmLikeCounts(run, postIds);
+        });
+    }
+
+    private Map<String, Object> runLocked(Consumer<Run> plan) {
+        String lockKey = RedisConstant.CACHE_WARMUP_LOCK_KEY;
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, lockOwner, lockSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("其他节点正在预热缓存，跳过");
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("skipped", true);
+            return report;
+        }
+        long start = System.currentTimeMillis();
+        try (Run run = new Run()) {
+            plan.accept(run);
+            run.await(start + TimeUnit.SECONDS.toMillis(timeoutSeconds));
+            run.report.put("warmed", new TreeMap<>(run.warmed));
+            run.report.put("failures", run.failures.get());
+            run.report.put("costMs", System.currentTimeMillis() - start);
+            stringRedisTemplate.opsForValue().set(RedisConstant.CACHE_WARMUP_LAST_KEY, String.valueOf(start));
+            log.info("缓存预热完成: {}", run.report);
+            return run.report;
+        } finally {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), lockOwner);
+        }
+    }
+
+    /**
+     * 第一页在当前线程加载（同时加载时间线），之后的页并行加载
+     */
+    private void warmFeed(Run run, int pages) {
+        if (pages <= 0) {
+            return;
+        }
+        run.execute("feedPages", 1, () -> communityService.getFeed(1, pageSize, null, null));
+        for (int page = 2; page <= pages; page++) {
+            int current = page;
+            run.submit("feedPages", 1, () -> communityService.getFeed(current, pageSize, null, null));
+        }
+    }
+
+    private void warmLikeCounts(Run run, List<Long> postIds) {
+        for (int i = 0; i < postIds.size(); i += likeBatchSize) {
+            List<Long> batch = postIds.subList(i, Math.min(i + likeBatchSize, postIds.size()));
+            run.submit("likeCounts", batch.size(), () -> postLikeService.getPostLikeCounts(batch));
+        }
+    }
+
+    /**
+     * 热门帖子：优先取热度榜，不足 topK 时依次补充浏览量、点赞数最多的帖子
+     */
+    private List<Long> hotPostIds(Run run, int topK) {
+        Set<Long> postIds = new LinkedHashSet<>();
+        if (topK <= 0) {
+            return new ArrayList<>(postIds);
+        }
+        postIds.addAll(communityTrendingService.page(null, topK).postIds());
+        if (postIds.size() < topK) {
+            run.execute("hotPostQueries", 1, () -> postIds.addAll(postStatsMapper.selectMostViewedPostIds(topK)));
+        }
+        if (postIds.size() < topK) {
+            run.execute("hotPostQueries", 1, () -> postIds.addAll(postLikeMapper.selectMostLikedPostIds(topK)));
+        }
+        return postIds.stream().limit(topK).toList();
+    }
+
+    /**
+     * 一次预热：固定大小线程池 + 匀速限流
+     */
+    private class Run implements AutoCloseable {
+
+        final Map<String, Object> report = new LinkedHashMap<>();
+        final Map<String, AtomicInteger> warmed = new ConcurrentHashMap<>();
+        final AtomicInteger failures = new AtomicInteger();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        final ExecutorService pool;
+        final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(tasksPerSecond, 0.1));
+        long nextSlot = System.nanoTime();
+
+        Run() {
+            AtomicInteger threadIndex = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(Math.max(concurrency, 1), r -> {
+                Thread thread = new Thread(r, "cache-warmup-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void submit(String kind, int count, Runnable task) {
+            futures.add(CompletableFuture.runAsync(() -> execute(kind, count, task), pool));
+        }
+
+        /**
+         * 在当前线程执行，等待限流后执行；失败只计数，不影响其他任务
+         */
+        void execute(String kind, int count, Runnable task) {
+            try {
+                acquire();
+                task.run();
+                warmed.computeIfAbsent(kind, k -> new AtomicInteger()).addAndGet(count);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                log.warn("缓存预热任务失败: kind={}, error={}", kind, e.getMessage());
+            }
+        }
+
+        void await(long deadlineMillis) {
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                        .get(Math.max(deadlineMillis - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                report.put("timedOut", true);
+                log.warn("缓存预热超时，未完成的任务已取消");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.warn("缓存预热等待失败: error={}", e.getMessage());
+            }
+        }
+
+        private void acquire() throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextSlot);
+                nextSlot = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+
+        @Override
+        public void close() {
+            pool.shutdownNow();
+        }
+    }
+}
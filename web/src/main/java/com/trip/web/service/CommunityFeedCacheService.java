@@ -1,77 +1,100 @@
 package com.trip.web.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheEntry;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCache;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.model.vo.FeedPageVO;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * 社区动态缓存服务
- * 使用Redis缓存社区动态列表，提高响应速度
+ * 使用两级缓存（本地 + Redis）缓存社区动态列表，提高响应速度
+ *
+ * 页面的帖子ID列表由时间线 ZSET 提供（见 CommunityTimelineService），
+ * 动态项（FeedItemVO）按帖子单独缓存在 "community:feed:item:{postId}"，本地未命中的部分一次 MGET 读取。
+ * 同一帖子在不同页码、页大小下只缓存一份，新帖子和删帖不会使已缓存的动态项失效。
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CommunityFeedCacheService {
 
-    private final StringRedisTemplate stringRedisTemplate;
-    private final ObjectMapper objectMapper;
+    private final TwoTierCacheManager twoTierCacheManager;
+    private final CacheLoaderService cacheLoaderService;
+    private final CommunityTimelineService communityTimelineService;
 
-    private static final String CACHE_PREFIX = "community:feed:";
-    private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(5); // 5分钟过期，社区内容更新较频繁
+    private static final String CACHE_NAME = "feed-item";
+    private static final String ITEM_PREFIX = "community:feed:item:";
+    private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(10); // 点赞数和浏览量读取时覆盖，其余内容变化较少
+
+    private TwoTierCache<CacheEntry<FeedPageVO.FeedItemVO>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = twoTierCacheManager.getEntryCache(CACHE_NAME, ITEM_PREFIX, CACHE_EXPIRATION, FeedPageVO.FeedItemVO.class);
+        cache.setTagger(entry -> tags(entry.value()));
+    }
 
     /**
-     * 生成缓存键
+     * 动态项包含帖子、行程和作者信息
      */
-    public String generateCacheKey(Integer page, Integer size) {
-        return CACHE_PREFIX + page + ":" + size;
+    private static List<String> tags(FeedPageVO.FeedItemVO item) {
+        List<String> tags = new ArrayList<>(3);
+        tags.add(CacheTags.post(item.getPostId()));
+        tags.add(CacheTags.trip(item.getTripId()));
+        if (item.getAuthor() != null) {
+            tags.add(CacheTags.user(item.getAuthor().getUserId()));
+        }
+        return tags;
     }
 
     /**
-     * 获取社区动态缓存
+     * 生成动态项缓存键
      */
-    public FeedPageVO getFeed(Integer page, Integer size) {
-        String cacheKey = generateCacheKey(page, size);
-        try {
-            String cached = stringRedisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
-                log.info("社区动态缓存命中: page={}, size={}", page, size);
-                return objectMapper.readValue(cached, FeedPageVO.class);
-            }
-        } catch (JsonProcessingException e) {
-            log.error("解析社区动态缓存失败: page={}, size={}", page, size, e);
-        }
-        return null;
+    public String generateCacheKey(Long postId) {
+        return ITEM_PREFIX + postId;
     }
 
     /**
-     * 缓存社区动态
+     * 批量获取动态项，一次 MGET；未缓存的部分调用 loader 批量查询并缓存
+     * 过期后短时间内返回旧值并在后台刷新（见 CacheLoaderService）
+     * @param postIds 帖子ID
+     * @param loader 批量查询函数，已删除的帖子不在结果中
+     * @return 帖子ID到动态项的映射（映射可修改，动态项是共享的，修改前需要复制）
      */
-    public void cacheFeed(Integer page, Integer size, FeedPageVO feedPageVO) {
-        String cacheKey = generateCacheKey(page, size);
-        try {
-            String jsonData = objectMapper.writeValueAsString(feedPageVO);
-            stringRedisTemplate.opsForValue().set(cacheKey, jsonData, CACHE_EXPIRATION);
-            log.info("社区动态已缓存: page={}, size={}, count={}", page, size, feedPageVO.getList().size());
-        } catch (JsonProcessingException e) {
-            log.error("缓存社区动态失败: page={}, size={}", page, size, e);
+    public Map<Long, FeedPageVO.FeedItemVO> getFeedItems(List<Long> postIds,
+                                                        Function<List<Long>, Map<Long, FeedPageVO.FeedItemVO>> loader) {
+        Map<Long, FeedPageVO.FeedItemVO> result = cacheLoaderService.getAll(cache, postIds, this::generateCacheKey,
+                CACHE_EXPIRATION, loader);
+        log.info("社区动态项: found={}, total={}", result.size(), postIds.size());
+        return result;
+    }
+
+    /**
+     * 清除指定帖子的动态项缓存
+     */
+    public void evictFeedItems(Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return;
         }
+        long deleted = cache.evictAll(postIds.stream().map(this::generateCacheKey).toList());
+        log.info("已清除社区动态项缓存: posts={}, deleted={}", postIds.size(), deleted);
     }
 
     /**
-     * 清除社区动态缓存
+     * 清除社区动态缓存（清除当前时间线中该页的帖子的动态项）
      */
     public void evictFeed(Integer page, Integer size) {
-        String cacheKey = generateCacheKey(page, size);
-        Boolean deleted = stringRedisTemplate.delete(cacheKey);
-        if (Boolean.TRUE.equals(deleted)) {
-            log.info("已清除社区动态缓存: page={}, size={}", page, size);
-        }
+        evictFeedItems(communityTimelineService.pageByNumber(page, size).postIds());
+        log.info("已清除社区动态缓存: page={}, size={}", page, size);
     }
 
     /**
@@ -79,21 +102,18 @@ public class CommunityFeedCacheService {
      */
     public void evictAllFeeds() {
         try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
-                log.info("已清除所有社区动态缓存: 共{}个", deleted);
-            }
+            long deleted = cache.clear();
+            log.info("已清除所有社区动态缓存: 共{}个", deleted);
         } catch (Exception e) {
             log.error("清除所有社区动态缓存失败", e);
         }
     }
 
     /**
-     * 当有新帖子或帖子更新时，清除相关缓存
+     * 帖子内容更新时，清除该帖子的动态项缓存（新帖子不需要调用）
      */
-    public void evictFeedOnPostChange() {
-        evictAllFeeds();
-        log.info("帖子变化，已清除所有社区动态缓存");
+    public void evictFeedOnPostChange(Long postId) {
+        evictFeedItems(Collections.singletonList(postId));
+        log.info("帖子变化，已清除社区动态项缓存: postId={}", postId);
     }
 }
\ No newline at end of file
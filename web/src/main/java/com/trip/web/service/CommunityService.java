@@ -1,5 +1,6 @@
 package com.trip.web.service;
 
+import com.trip.common.result.RenderedJson;
 import com.trip.model.dto.TripDTO;
 import com.trip.model.entity.Post;
 import com.baomidou.mybatisplus.extension.service.IService;
@@ -17,10 +18,50 @@ import java.util.List;
  * @Version 1.0
  */
 public interface CommunityService extends IService<Post> {
-    FeedPageVO getFeed(Integer page, Integer size);
+    /**
+     * 获取社区动态
+     * @param page 页码（未传游标时使用）
+     * @param size 每页数量
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     * @param region 按行程地区筛选，为空时返回全部
+     * @return
+     */
+    FeedPageVO getFeed(Integer page, Integer size, String cursor, String region);
+
+    default FeedPageVO getFeed(Integer page, Integer size, String cursor) {
+        return getFeed(page, size, cursor, null);
+    }
+
+    default FeedPageVO getFeed(Integer page, Integer size) {
+        return getFeed(page, size, null, null);
+    }
+
+    /**
+     * 获取热门动态（按时间衰减的互动分数排序）
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     * @param size 每页数量
+     * @return
+     */
+    FeedPageVO getTrendingFeed(String cursor, Integer size);
 
     PostDetailVO getPostDetail(Long postId);
 
+    /**
+     * 与 getFeed 相同，返回已序列化的 Result（动态项使用预先序列化的片段，见 ResponseRenderService）
+     */
+    RenderedJson renderFeed(Integer page, Integer size, String cursor, String region);
+
+    /**
+     * 与 getTrendingFeed 相同，返回已序列化的 Result
+     */
+    RenderedJson renderTrendingFeed(String cursor, Integer size);
+
+    /**
+     * 与 getPostDetail 相同并覆盖浏览量，返回已序列化的 Result
+     * @return 帖子不存在时返回 null
+     */
+    RenderedJson renderPostDetail(Long postId, Integer viewCount);
+
     StatVO getPostStats(Long postId, Long userId);
 
     /**
@@ -30,6 +71,12 @@ public interface CommunityService extends IService<Post> {
      */
     PostCreatedVO createPost(Long userId,TripDTO dto);
 
+    /**
+     * 删除帖子，并移出社区时间线
+     * @param postId
+     */
+    void deletePost(Long postId);
+
     /**
      *
      * 根据userId获取用户的信息、以及用户所发布的文章信息
@@ -0,0 +1,415 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import com.trip.model.entity.Post;
+import com.trip.model.entity.Trip;
+import com.trip.web.mapper.PostMapper;
+import com.trip.web.mapper.TripMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 社区时间线服务
+ *
+ * "community:timeline:v2" 是帖子ID按创建时间排序的 ZSET，发帖时 ZADD、删帖时 ZREM，
+ * 动态页直接用 ZREVRANGE / ZREVRANGEBYSCORE 取ID，第N页和第1页代价相同，新帖子不会使任何缓存失效。
+ * 游标为上一页最后一条的 "score:postId"（见 ZSetCursors）。
+ * 排序与MySQL的 (create_time DESC, id DESC) 键集一致，翻到 ZSET 末尾后可以无缝衔接MySQL：
+ * 成员是补零到19位的帖子ID（同一时间的帖子按ID数值倒序），分数是四舍五入到秒的创建时间（与 DATETIME 列存储的值相同）。
+ *
+ * 按地区筛选使用每个地区一个的 "community:timeline:v2:region:z:{region}"（地区取帖子所属行程的 region），
+ * 发帖、删帖、修改行程地区时同步维护，筛选时不需要关联 trip 表扫描。
+ *
+ * ZSET 只保留最新 max-size 条（地区 ZSET 为 region-max-size 条）。加载标记 "community:timeline:v2:loaded" 不存在时（Redis数据丢失）
+ * 由一个节点持锁从MySQL键集分页重建（同时写入各地区 ZSET），其余节点期间直接回源MySQL；标记值为 partial
+ * 或地区在 "community:timeline:v2:region:trimmed" 中时，表示有更早的帖子不在 ZSET 中，
+ * 翻到 ZSET 末尾后继续按 (create_time, id) 键集从MySQL读取。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CommunityTimelineService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PostMapper postMapper;
+    private final TripMapper tripMapper;
+
+    private static final String TIMELINE_KEY = RedisConstant.COMMUNITY_TIMELINE_KEY;
+    private static final String LOADED_KEY = RedisConstant.COMMUNITY_TIMELINE_LOADED_KEY;
+    private static final String LOCK_KEY = RedisConstant.COMMUNITY_TIMELINE_LOCK_KEY;
+    private static final String REGION_PREFIX = RedisConstant.COMMUNITY_TIMELINE_REGION_PREFIX;
+    private static final String REGION_TRIMMED_KEY = RedisConstant.COMMUNITY_TIMELINE_REGION_TRIMMED_KEY;
+
+    private static final String COMPLETE = "complete";
+    private static final String PARTIAL = "partial";
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    // 时间线最多保留的帖子数
+    @Value("${community.timeline.max-size:50000}")
+    private int maxSize;
+
+    // 每个地区时间线最多保留的帖子数
+    @Value("${community.timeline.region-max-size:5000}")
+    private int regionMaxSize;
+
+    /**
+     * 一页时间线
+     * @param postIds 帖子ID（按创建时间倒序）
+     * @param nextCursor 下一页游标，没有更多数据时为 null
+     * @param total 帖子总数（时间线未完整加载时为已缓存的条数）
+     */
+    public record TimelinePage(List<Long> postIds, String nextCursor, long total) {
+    }
+
+    /**
+     * 发帖后加入时间线
+     * @param region 帖子所属行程的地区，为空时只加入总时间线
+     */
+    public void addPost(Long postId, Date createTime, String region) {
+        long score = scoreOf(createTime != null ? createTime : new Date());
+        String regionName = normalizeRegion(region);
+        try {
+            stringRedisTemplate.opsForZSet().add(TIMELINE_KEY, ZSetCursors.member(postId), score);
+            trim(TIMELINE_KEY, maxSize, null);
+            if (regionName != null) {
+                stringRedisTemplate.opsForZSet().add(regionKey(regionName), ZSetCursors.member(postId), score);
+                trim(regionKey(regionName), regionMaxSize, regionName);
+            }
+        } catch (Exception e) {
+            // 加入失败只影响时间线缓存，删除加载标记让下次读取时重建
+            log.error("帖子加入时间线失败: postId={}, error={}", postId, e.getMessage());
+            stringRedisTemplate.delete(LOADED_KEY);
+        }
+    }
+
+    /**
+     * 删帖后移出时间线
+     * @param region 帖子所属行程的地区，为空时只移出总时间线
+     */
+    public void removePost(Long postId, String region) {
+        stringRedisTemplate.opsForZSet().remove(TIMELINE_KEY, ZSetCursors.member(postId));
+        String regionName = normalizeRegion(region);
+        if (regionName != null) {
+            stringRedisTemplate.opsForZSet().remove(regionKey(regionName), ZSetCursors.member(postId));
+        }
+    }
+
+    /**
+     * 行程地区修改后，把行程的帖子从旧地区时间线移到新地区时间线
+     * @param posts 行程的帖子（需要 id、createTime）
+     */
+    public void moveRegion(List<Post> posts, String oldRegion, String newRegion) {
+        String from = normalizeRegion(oldRegion);
+        String to = normalizeRegion(newRegion);
+        if (posts.isEmpty() || Objects.equals(from, to)) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Post post : posts) {
+                if (from != null) {
+                    conn.zRem(regionKey(from), ZSetCursors.member(post.getId()));
+                }
+                if (to != null) {
+                    conn.zAdd(regionKey(to), scoreOf(post.getCreateTime()), ZSetCursors.member(post.getId()));
+                }
+            }
+            return null;
+        });
+        if (to != null) {
+            trim(regionKey(to), regionMaxSize, to);
+        }
+        log.info("帖子地区时间线已更新: posts={}, from={}, to={}", posts.size(), from, to);
+    }
+
+    /**
+     * 按游标读取一页
+     * @param cursor 上一页返回的游标，首页传 null
+     * @param size 每页数量
+     */
+    public TimelinePage pageByCursor(String cursor, int size) {
+        return pageByCursor(null, cursor, size);
+    }
+
+    /**
+     * 按游标读取某个地区的一页
+     * @param region 地区，为空时读取总时间线
+     * @param cursor 上一页返回的游标，首页传 null
+     * @param size 每页数量
+     */
+    public TimelinePage pageByCursor(String region, String cursor, int size) {
+        String regionName = normalizeRegion(region);
+        Long cursorScore = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            int sep = cursor.indexOf(':');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("无效的游标: " + cursor);
+            }
+            cursorScore = Long.parseLong(cursor.substring(0, sep));
+            cursorId = Long.parseLong(cursor.substring(sep + 1));
+            if (cursorId < 0) {
+                throw new IllegalArgumentException("无效的游标: " + cursor);
+            }
+        }
+
+        String state = state(regionName);
+        if (state == null) {
+            return pageFromMySQL(regionName, cursorScore, cursorId, size, -1);
+        }
+
+        String key = timelineKey(regionName);
+        List<TypedTuple<String>> entries = cursorScore == null
+                ? new ArrayList<>(Optional.ofNullable(
+                        stringRedisTemplate.opsForZSet().reverseRangeWithScores(key, 0, size - 1))
+                        .orElse(Collections.emptySet()))
+                : ZSetCursors.rangeAfter(stringRedisTemplate, key, cursorScore, ZSetCursors.member(cursorId), size);
+        long total = Optional.ofNullable(stringRedisTemplate.opsForZSet().zCard(key)).orElse(0L);
+
+        List<Long> postIds = new ArrayList<>(size);
+        Long lastScore = cursorScore;
+        Long lastId = cursorId;
+        for (TypedTuple<String> entry : entries) {
+            lastScore = entry.getScore().longValue();
+            lastId = ZSetCursors.idOf(entry.getValue());
+            postIds.add(lastId);
+        }
+
+        if (postIds.size() < size && PARTIAL.equals(state)) {
+            // 翻过了 ZSET 末尾，更早的帖子从MySQL继续读取
+            TimelinePage tail = pageFromMySQL(regionName, lastScore, lastId, size - postIds.size(), total);
+            postIds.addAll(tail.postIds());
+            return new TimelinePage(postIds, tail.nextCursor(), total);
+        }
+        String nextCursor = postIds.size() < size || postIds.isEmpty() ? null : toCursor(lastScore, lastId);
+        return new TimelinePage(postIds, nextCursor, total);
+    }
+
+    /**
+     * 按页码读取一页（兼容旧接口），ZREVRANGE 按排名取，不需要 COUNT
+     */
+    public TimelinePage pageByNumber(int page, int size) {
+        return pageByNumber(null, page, size);
+    }
+
+    /**
+     * 按页码读取某个地区的一页
+     * @param region 地区，为空时读取总时间线
+     */
+    public TimelinePage pageByNumber(String region, int page, int size) {
+        String regionName = normalizeRegion(region);
+        String state = state(regionName);
+        long start = (long) (Math.max(page, 1) - 1) * size;
+        if (state != null) {
+            String key = timelineKey(regionName);
+            long total = Optional.ofNullable(stringRedisTemplate.opsForZSet().zCard(key)).orElse(0L);
+            if (start < total || COMPLETE.equals(state)) {
+                Set<TypedTuple<String>> entries = stringRedisTemplate.opsForZSet()
+                        .reverseRangeWithScores(key, start, start + size - 1);
+                List<Long> postIds = new ArrayList<>(size);
+                String nextCursor = null;
+                if (entries != null) {
+                    for (TypedTuple<String> entry : entries) {
+                        long postId = ZSetCursors.idOf(entry.getValue());
+                        postIds.add(postId);
+                        nextCursor = toCursor(entry.getScore().longValue(), postId);
+                    }
+                }
+                if (postIds.size() == size || COMPLETE.equals(state)) {
+                    return new TimelinePage(postIds, postIds.size() < size ? null : nextCursor, total);
+                }
+            }
+        }
+
+        // 时间线不可用或页码超出缓存范围，回源MySQL（不执行 COUNT）
+        List<Post> records = postMapper.selectTimelineBefore(regionName, null, null, start, size);
+        return toPage(records, size, -1);
+    }
+
+    /**
+     * 使时间线失效，下次读取时从MySQL重建
+     */
+    public void invalidate() {
+        stringRedisTemplate.delete(LOADED_KEY);
+    }
+
+    /**
+     * 时间线状态：总时间线即加载标记；地区时间线在总时间线完整且自身未被截断时才完整
+     * @return complete / partial，未加载且本节点未能重建时返回 null
+     */
+    private String state(String regionName) {
+        String state = ensureLoaded();
+        if (state == null || regionName == null || PARTIAL.equals(state)) {
+            return state;
+        }
+        Boolean trimmed = stringRedisTemplate.opsForSet().isMember(REGION_TRIMMED_KEY, regionName);
+        return Boolean.TRUE.equals(trimmed) ? PARTIAL : COMPLETE;
+    }
+
+    /**
+     * 确保时间线已加载
+     * @return 加载标记值（complete / partial），未加载且本节点未能重建时返回 null
+     */
+    private String ensureLoaded() {
+        String state = stringRedisTemplate.opsForValue().get(LOADED_KEY);
+        if (state != null) {
+            return state;
+        }
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "1", 60, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return null;
+        }
+        try {
+            return rebuild();
+        } catch (Exception e) {
+            log.error("重建社区时间线失败", e);
+            return null;
+        } finally {
+            stringRedisTemplate.delete(LOCK_KEY);
+        }
+    }
+
+    /**
+     * 从MySQL按 (create_time, id) 倒序键集分页读取最新 max-size 条写入 ZSET，
+     * 每页按主键批量查出行程地区，同时写入各地区 ZSET。
+     * 只做 ZADD 不先删除，重建期间并发发帖写入的帖子不会丢失
+     */
+    private String rebuild() {
+        long start = System.currentTimeMillis();
+        Date lastTime = null;
+        Long lastId = null;
+        int limit = maxSize > 0 ? maxSize : Integer.MAX_VALUE;
+        int loaded = 0;
+        boolean complete = false;
+        Set<String> regions = new HashSet<>();
+        while (loaded < limit) {
+            int pageSize = Math.min(REBUILD_PAGE_SIZE, limit - loaded);
+            List<Post> posts = postMapper.selectTimelineBefore(null, lastTime, lastId, 0, pageSize);
+            if (!posts.isEmpty()) {
+                Map<Long, String> tripRegions = tripRegions(posts);
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    for (Post post : posts) {
+                        long score = scoreOf(post.getCreateTime());
+                        String member = ZSetCursors.member(post.getId());
+                        conn.zAdd(TIMELINE_KEY, score, member);
+                        String region = tripRegions.get(post.getTripId());
+                        if (region != null) {
+                            conn.zAdd(regionKey(region), score, member);
+                        }
+                    }
+                    return null;
+                });
+                regions.addAll(tripRegions.values());
+                loaded += posts.size();
+                Post last = posts.get(posts.size() - 1);
+                lastTime = last.getCreateTime();
+                lastId = last.getId();
+            }
+            if (posts.size() < pageSize) {
+                complete = true;
+                break;
+            }
+        }
+
+        boolean trimmed = trim(TIMELINE_KEY, maxSize, null);
+        stringRedisTemplate.delete(REGION_TRIMMED_KEY);
+        for (String region : regions) {
+            trim(regionKey(region), regionMaxSize, region);
+        }
+        String state = complete && !trimmed ? COMPLETE : PARTIAL;
+        stringRedisTemplate.opsForValue().set(LOADED_KEY, state);
+        log.info("社区时间线已重建: posts={}, regions={}, state={}, 耗时{}ms",
+                loaded, regions.size(), state, System.currentTimeMillis() - start);
+        return state;
+    }
+
+    /**
+     * 批量查询帖子所属行程的地区
+     * @return 行程ID到地区的映射（没有地区的行程不在其中）
+     */
+    private Map<Long, String> tripRegions(List<Post> posts) {
+        List<Long> tripIds = posts.stream().map(Post::getTripId).filter(Objects::nonNull).distinct().toList();
+        if (tripIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, String> regions = new HashMap<>();
+        for (Trip trip : tripMapper.selectBatchIds(tripIds)) {
+            String region = normalizeRegion(trip.getRegion());
+            if (region != null) {
+                regions.put(trip.getId(), region);
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * 超过最大长度时移除最早的帖子，并把时间线标记为不完整
+     * @param regionName 地区时间线对应的地区，总时间线传 null
+     * @return 是否有帖子被移除
+     */
+    private boolean trim(String key, int limit, String regionName) {
+        if (limit <= 0) {
+            return false;
+        }
+        Long removed = stringRedisTemplate.opsForZSet().removeRange(key, 0, -(limit + 1L));
+        if (removed == null || removed == 0) {
+            return false;
+        }
+        if (regionName == null) {
+            stringRedisTemplate.opsForValue().setIfPresent(LOADED_KEY, PARTIAL);
+        } else {
+            stringRedisTemplate.opsForSet().add(REGION_TRIMMED_KEY, regionName);
+        }
+        return true;
+    }
+
+    private TimelinePage pageFromMySQL(String regionName, Long cursorScore, Long cursorId, int size, long total) {
+        List<Post> posts = postMapper.selectTimelineBefore(regionName,
+                cursorScore == null ? null : new Date(cursorScore), cursorId, 0, size);
+        return toPage(posts, size, total);
+    }
+
+    private static TimelinePage toPage(List<Post> posts, int size, long total) {
+        List<Long> postIds = posts.stream().map(Post::getId).toList();
+        String nextCursor = null;
+        if (posts.size() >= size && !posts.isEmpty()) {
+            Post last = posts.get(posts.size() - 1);
+            nextCursor = toCursor(scoreOf(last.getCreateTime()), last.getId());
+        }
+        return new TimelinePage(new ArrayList<>(postIds), nextCursor, total);
+    }
+
+    private static String timelineKey(String regionName) {
+        return regionName == null ? TIMELINE_KEY : regionKey(regionName);
+    }
+
+    private static String regionKey(String regionName) {
+        return REGION_PREFIX + regionName;
+    }
+
+    private static String normalizeRegion(String region) {
+        return region == null || region.isBlank() ? null : region.trim();
+    }
+
+    private static String toCursor(long score, long postId) {
+        return score + ":" + postId;
+    }
+
+    /**
+     * 创建时间四舍五入到秒作为分数：发帖时实体中的时间带毫秒，写入 DATETIME 列时被四舍五入，
+     * 分数与MySQL中的值相同，游标才能在 ZSET 和MySQL键集之间衔接
+     */
+    static long scoreOf(Date createTime) {
+        return Math.round(createTime.getTime() / 1000.0) * 1000;
+    }
+}
@@ -0,0 +1,203 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 社区热门榜服务
+ *
+ * "community:trending" 是按时间衰减互动分数排序的 ZSET。点赞、评论、收藏、浏览事件发生时，
+ * 按权重 × e^((now - epoch) / tau) 对单个帖子 ZINCRBY（O(log n)），不需要扫描 post / post_like；
+ * 越新的事件增量越大，等价于旧分数随时间按半衰期衰减。指数过大时由脚本以当前时间为新 epoch 整体缩小分数。
+ * 取消点赞、取消收藏不扣分：原事件此时只剩衰减后的贡献，按当前时间扣除全部权重会多扣 e^(Δt/tau) 倍，
+ * 先赞后取消就能把帖子压出榜单；分数只增不减，旧的互动由衰减自然淡出。
+ *
+ * 游标为 "epoch:score:postId"；两页之间发生了归一化时，按两个 epoch 之差换算游标分数。
+ * 热门榜分数随时都在变化，翻页时帖子可能重复或遗漏，不保证严格快照。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CommunityTrendingService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private static final String TRENDING_KEY = RedisConstant.COMMUNITY_TRENDING_KEY;
+    private static final String EPOCH_KEY = RedisConstant.COMMUNITY_TRENDING_EPOCH_KEY;
+
+    @Value("${community.trending.enabled:true}")
+    private boolean enabled;
+
+    // 分数半衰期
+    @Value("${community.trending.half-life-hours:24}")
+    private double halfLifeHours;
+
+    // 最多保留的帖子数
+    @Value("${community.trending.max-size:10000}")
+    private int maxSize;
+
+    // 归一化时移除衰减到该值以下的帖子
+    @Value("${community.trending.min-score:0.01}")
+    private double minScore;
+
+    @Value("${community.trending.weight.like:3}")
+    private double likeWeight;
+
+    @Value("${community.trending.weight.comment:5}")
+    private double commentWeight;
+
+    @Value("${community.trending.weight.collect:4}")
+    private double collectWeight;
+
+    @Value("${community.trending.weight.view:1}")
+    private double viewWeight;
+
+    // e^20 约为 4.9e8，分数仍远在 double 精度范围内
+    private static final int RENORMALIZE_EXPONENT = 20;
+
+    private static final DefaultRedisScript<Long> BUMP_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        BUMP_SCRIPT.setLocation(new ClassPathResource("lua/community_trending_bump.lua"));
+        BUMP_SCRIPT.setResultType(Long.class);
+    }
+
+    /**
+     * 一页热门榜
+     * @param postIds 帖子ID（按热度倒序）
+     * @param nextCursor 下一页游标，没有更多数据时为 null
+     */
+    public record TrendingPage(List<Long> postIds, String nextCursor) {
+    }
+
+    /**
+     * 记录点赞，取消点赞不改变分数
+     */
+    public void recordLike(Long postId, boolean liked) {
+        if (liked) {
+            record(Collections.singletonMap(postId, likeWeight));
+        }
+    }
+
+    public void recordComment(Long postId) {
+        record(Collections.singletonMap(postId, commentWeight));
+    }
+
+    /**
+     * 记录收藏，取消收藏不改变分数
+     */
+    public void recordCollect(Long postId, boolean collected) {
+        if (collected) {
+            record(Collections.singletonMap(postId, collectWeight));
+        }
+    }
+
+    public void recordView(Long postId, long views) {
+        if (views > 0) {
+            record(Collections.singletonMap(postId, viewWeight * views));
+        }
+    }
+
+    /**
+     * 批量记录浏览（缓冲浏览量写入后使用），一次脚本调用
+     * @param views 帖子ID到新增浏览量的映射
+     */
+    public void recordViews(Map<Long, Long> views) {
+        Map<Long, Double> weights = new LinkedHashMap<>();
+        views.forEach((postId, count) -> {
+            if (count > 0) {
+                weights.put(postId, viewWeight * count);
+            }
+        });
+        record(weights);
+    }
+
+    /**
+     * 删帖后移出热门榜
+     */
+    public void removePost(Long postId) {
+        stringRedisTemplate.opsForZSet().remove(TRENDING_KEY, String.valueOf(postId));
+    }
+
+    /**
+     * 按游标读取一页热门榜
+     * @param cursor 上一页返回的游标，首页传 null
+     * @param size 每页数量
+     */
+    public TrendingPage page(String cursor, int size) {
+        // 先读 epoch，下一页游标与本页分数使用同一基准
+        long epoch = currentEpoch();
+        List<TypedTuple<String>> entries;
+        if (cursor == null || cursor.isBlank()) {
+            Set<TypedTuple<String>> top = stringRedisTemplate.opsForZSet()
+                    .reverseRangeWithScores(TRENDING_KEY, 0, size - 1);
+            entries = top != null ? new ArrayList<>(top) : Collections.emptyList();
+        } else {
+            String[] parts = cursor.split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("无效的游标: " + cursor);
+            }
+            long cursorEpoch = Long.parseLong(parts[0]);
+            double cursorScore = Double.parseDouble(parts[1]);
+            if (epoch != cursorEpoch) {
+                // 两页之间发生了归一化，分数已整体乘以 e^(-(epoch - cursorEpoch) / tau)
+                cursorScore *= Math.exp((cursorEpoch - epoch) / tauSeconds());
+            }
+            entries = ZSetCursors.rangeAfter(stringRedisTemplate, TRENDING_KEY, cursorScore, parts[2], size);
+        }
+
+        List<Long> postIds = new ArrayList<>(entries.size());
+        for (TypedTuple<String> entry : entries) {
+            postIds.add(Long.valueOf(entry.getValue()));
+        }
+        String nextCursor = null;
+        if (entries.size() >= size && !entries.isEmpty()) {
+            TypedTuple<String> last = entries.get(entries.size() - 1);
+            nextCursor = epoch + ":" + last.getScore() + ":" + last.getValue();
+        }
+        return new TrendingPage(postIds, nextCursor);
+    }
+
+    private void record(Map<Long, Double> weights) {
+        if (!enabled || weights.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(5 + weights.size() * 2);
+        args.add(String.valueOf(System.currentTimeMillis() / 1000));
+        args.add(String.valueOf(tauSeconds()));
+        args.add(String.valueOf(RENORMALIZE_EXPONENT));
+        args.add(String.valueOf(minScore));
+        args.add(String.valueOf(maxSize));
+        weights.forEach((postId, weight) -> {
+            args.add(String.valueOf(postId));
+            args.add(String.valueOf(weight));
+        });
+        try {
+            stringRedisTemplate.execute(BUMP_SCRIPT, Arrays.asList(TRENDING_KEY, EPOCH_KEY), args.toArray());
+        } catch (Exception e) {
+            // 热门榜只影响排序，失败不影响业务操作
+            log.warn("更新热门榜失败: posts={}, error={}", weights.keySet(), e.getMessage());
+        }
+    }
+
+    private long currentEpoch() {
+        String epoch = stringRedisTemplate.opsForValue().get(EPOCH_KEY);
+        return epoch != null ? Long.parseLong(epoch) : 0L;
+    }
+
+    /**
+     * 衰减时间常数：半衰期 / ln2
+     */
+    private double tauSeconds() {
+        return Math.max(halfLifeHours, 0.01) * 3600 / Math.log(2);
+    }
+}
@@ -0,0 +1,232 @@
+package com.trip.web.service;
+
+import com.trip.common.cache.IdBloomFilter;
+import com.trip.common.constant.RedisConstant;
+import com.trip.web.mapper.PostMapper;
+import com.trip.web.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 帖子/用户ID布隆过滤器服务（防缓存穿透）
+ *
+ * 请求不存在的ID时先在本地过滤器中判断，一定不存在的直接返回，不再读 Redis 和 MySQL。
+ * 过滤器定期从 MySQL 按主键键集分页重建（多节点通过锁只由一个节点执行），序列化后存入 Redis
+ * "bloom:id:{post|user}"，其他节点和重启后的节点直接从 Redis 加载。
+ * 只放入 settle-seconds 之前创建的ID，之后创建（可能还未提交）的ID都大于过滤器的 maxId，一律放行，
+ * 所以新增数据不需要通知；删除的数据在下次重建前仍会放行，由空值缓存兜底。
+ * 过滤器未加载或关闭时全部放行。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IdBloomFilterService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PostMapper postMapper;
+    private final UserMapper userMapper;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    @Value("${id-bloom.enabled:true}")
+    private boolean enabled;
+
+    // 期望误判率
+    @Value("${id-bloom.fpp:0.01}")
+    private double fpp;
+
+    @Value("${id-bloom.rebuild-interval-ms:600000}")
+    private long rebuildIntervalMs;
+
+    @Value("${id-bloom.chunk-size:5000}")
+    private int chunkSize;
+
+    // 需大于事务时长和节点间时钟偏差
+    @Value("${id-bloom.settle-seconds:60}")
+    private long settleSeconds;
+
+    @Value("${id-bloom.lock-seconds:300}")
+    private long lockSeconds;
+
+    private final String lockOwner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    private final Slot posts = new Slot("post");
+    private final Slot users = new Slot("user");
+
+    /**
+     * 一种ID的过滤器及其统计
+     */
+    private static class Slot {
+        final String name;
+        volatile IdBloomFilter filter;
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong passed = new AtomicLong();
+
+        Slot(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 帖子是否可能存在，返回 false 时一定不存在
+     */
+    public boolean mightContainPost(Long postId) {
+        return mightContain(posts, postId);
+    }
+
+    /**
+     * 用户是否可能存在，返回 false 时一定不存在
+     */
+    public boolean mightContainUser(Long userId) {
+        return mightContain(users, userId);
+    }
+
+    /**
+     * 启动后立即执行一次：Redis 中的过滤器较新时加载，过期或不存在时获得锁的节点重建
+     */
+    @Scheduled(fixedDelayString = "${id-bloom.check-interval-ms:60000}",
+            initialDelayString = "${id-bloom.initial-delay-ms:0}")
+    public void scheduledRefresh() {
+        if (enabled) {
+            refresh(posts);
+            refresh(users);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("fpp", fpp);
+        stats.put(posts.name, slotStats(posts));
+        stats.put(users.name, slotStats(users));
+        return stats;
+    }
+
+    private boolean mightContain(Slot slot, Long id) {
+        IdBloomFilter filter = slot.filter;
+        if (!enabled || filter == null || id == null) {
+            return true;
+        }
+        if (filter.mightContain(id)) {
+            slot.passed.incrementAndGet();
+            return true;
+        }
+        slot.rejected.incrementAndGet();
+        return false;
+    }
+
+    private void refresh(Slot slot) {
+        try {
+            String storedAt = stringRedisTemplate.opsForValue().get(builtAtKey(slot));
+            long builtAt = storedAt != null ? Long.parseLong(storedAt) : 0L;
+            if (System.currentTimeMillis() - builtAt >= rebuildIntervalMs && rebuildLocked(slot)) {
+                return;
+            }
+            IdBloomFilter current = slot.filter;
+            if (builtAt > 0 && (current == null || current.getBuiltAt() < builtAt)) {
+                load(slot);
+            }
+        } catch (Exception e) {
+            log.error("刷新ID布隆过滤器失败: type={}, error={}", slot.name, e.getMessage());
+        }
+    }
+
+    /**
+     * @return 是否获得锁并完成重建
+     */
+    private boolean rebuildLocked(Slot slot) {
+        String lockKey = RedisConstant.ID_BLOOM_PREFIX + slot.name + RedisConstant.ID_BLOOM_LOCK_SUFFIX;
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, lockOwner, lockSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return false;
+        }
+        try {
+            IdBloomFilter filter = build(slot);
+            byte[] key = filterKey(slot).getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = filter.toBytes();
+            stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                    connection.stringCommands().set(key, bytes));
+            stringRedisTemplate.opsForValue().set(builtAtKey(slot), String.valueOf(filter.getBuiltAt()));
+            slot.filter = filter;
+            return true;
+        } finally {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), lockOwner);
+        }
+    }
+
+    private IdBloomFilter build(Slot slot) {
+        long start = System.currentTimeMillis();
+        Date before = new Date(start - TimeUnit.SECONDS.toMillis(settleSeconds));
+        long[] ids = new long[Math.max(chunkSize, 16)];
+        int count = 0;
+        long lastId = 0L;
+        while (true) {
+            List<Long> chunk = slot == posts
+                    ? postMapper.selectIdsCreatedBefore(lastId, before, chunkSize)
+                    : userMapper.selectIdsCreatedBefore(lastId, before, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            if (count + chunk.size() > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + chunk.size()));
+            }
+            for (Long id : chunk) {
+                ids[count++] = id;
+            }
+            lastId = chunk.get(chunk.size() - 1);
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        IdBloomFilter filter = IdBloomFilter.build(ids, count, lastId, fpp);
+        log.info("ID布隆过滤器已重建: type={}, ids={}, maxId={}, bytes={}, cost={}ms",
+                slot.name, count, lastId, filter.getBitCount() / 8, System.currentTimeMillis() - start);
+        return filter;
+    }
+
+    private void load(Slot slot) {
+        byte[] key = filterKey(slot).getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(key));
+        if (bytes != null) {
+            slot.filter = IdBloomFilter.fromBytes(bytes);
+            log.info("ID布隆过滤器已从Redis加载: type={}, maxId={}", slot.name, slot.filter.getMaxId());
+        }
+    }
+
+    private Map<String, Object> slotStats(Slot slot) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        IdBloomFilter filter = slot.filter;
+        stats.put("ready", filter != null);
+        if (filter != null) {
+            stats.put("maxId", filter.getMaxId());
+            stats.put("builtAt", filter.getBuiltAt());
+            stats.put("bits", filter.getBitCount());
+            stats.put("hashes", filter.getHashCount());
+        }
+        stats.put("rejected", slot.rejected.get());
+        stats.put("passed", slot.passed.get());
+        return stats;
+    }
+
+    private static String filterKey(Slot slot) {
+        return RedisConstant.ID_BLOOM_PREFIX + slot.name;
+    }
+
+    private static String builtAtKey(Slot slot) {
+        return filterKey(slot) + RedisConstant.ID_BLOOM_BUILT_AT_SUFFIX;
+    }
+}
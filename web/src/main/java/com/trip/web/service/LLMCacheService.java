@@ -1,5 +1,8 @@
 package com.trip.web.service;
 
+import com.trip.common.cache.CacheMetrics;
+import com.trip.common.redis.RedisScanUtil;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -7,6 +10,7 @@ import org.springframework.stereotype.Service;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
 
 /**
  * LLM通用缓存服务
@@ -18,6 +22,16 @@ import java.security.NoSuchAlgorithmException;
 public class LLMCacheService {
 
     private final StringRedisTemplate stringRedisTemplate;
+    private final CacheMetrics cacheMetrics;
+
+    private static final String CACHE_NAME = "llm";
+
+    private CacheMetrics.Recorder metrics;
+
+    @PostConstruct
+    public void init() {
+        metrics = cacheMetrics.recorder(CACHE_NAME);
+    }
 
     /**
      * 生成缓存键
@@ -49,7 +63,9 @@ public class LLMCacheService {
      */
     public String getLLMResponse(String cacheKey) {
         try {
+            long start = System.nanoTime();
             String cached = stringRedisTemplate.opsForValue().get(cacheKey);
+            metrics.recordGet(cacheKey, cached != null ? CacheMetrics.Tier.REMOTE : null, System.nanoTime() - start);
             if (cached != null) {
                 log.info("LLM缓存命中: key={}", cacheKey);
                 return cached;
@@ -72,6 +88,7 @@ public class LLMCacheService {
         try {
             if (response != null && !response.trim().isEmpty()) {
                 stringRedisTemplate.opsForValue().set(cacheKey, response);
+                metrics.recordPut(cacheKey);
                 log.info("LLM响应已缓存: key={}, size={} bytes", cacheKey, response.length());
             }
         } catch (Exception e) {
@@ -88,6 +105,7 @@ public class LLMCacheService {
         try {
             Boolean deleted = stringRedisTemplate.delete(cacheKey);
             if (Boolean.TRUE.equals(deleted)) {
+                metrics.recordEvictions(1);
                 log.info("已清除LLM缓存: key={}", cacheKey);
             }
         } catch (Exception e) {
@@ -102,13 +120,20 @@ public class LLMCacheService {
      */
     public void evictLLMCacheByPrefix(String prefix) {
         try {
-            var keys = stringRedisTemplate.keys(prefix + ":*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
+            long deleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, prefix + ":*");
+            metrics.recordEvictions(deleted);
+            if (deleted > 0) {
                 log.info("已清除LLM缓存: 前缀={}, 数量={}", prefix, deleted);
             }
         } catch (Exception e) {
             log.error("清除LLM缓存失败: prefix={}", prefix, e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取缓存统计信息（命中、未命中、写入、删除次数和读取、加载耗时，见 CacheMetrics）
+     */
+    public Map<String, Object> getCacheStats() {
+        return metrics.getStats();
+    }
+}
@@ -1,29 +1,58 @@
 package com.trip.web.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheEntry;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCache;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.model.vo.PostDetailVO;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 帖子详情缓存服务
- * 使用Redis缓存帖子详情，提高响应速度
+ * 使用两级缓存（本地 + Redis）缓存帖子详情，提高响应速度
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PostDetailCacheService {
 
-    private final StringRedisTemplate stringRedisTemplate;
-    private final ObjectMapper objectMapper;
+    private final TwoTierCacheManager twoTierCacheManager;
+    private final CacheLoaderService cacheLoaderService;
 
+    private static final String CACHE_NAME = "post-detail";
     private static final String CACHE_PREFIX = "post:detail:";
-    private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(15); // 15分钟过期
+    private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(15); // 15分钟后软过期
+
+    private TwoTierCache<CacheEntry<PostDetailVO>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = twoTierCacheManager.getEntryCache(CACHE_NAME, CACHE_PREFIX, CACHE_EXPIRATION, PostDetailVO.class);
+        cache.setTagger(entry -> entry.absent() ? List.of() : tags(entry.value()));
+    }
+
+    /**
+     * 帖子详情包含帖子、行程和作者信息
+     */
+    private static List<String> tags(PostDetailVO detail) {
+        List<String> tags = new ArrayList<>(3);
+        tags.add(CacheTags.post(detail.getPostId()));
+        if (detail.getTrip() != null) {
+            tags.add(CacheTags.trip(detail.getTrip().getTripId()));
+        }
+        if (detail.getAuthor() != null) {
+            tags.add(CacheTags.user(detail.getAuthor().getUserId()));
+        }
+        return tags;
+    }
 
     /**
      * 生成缓存键
@@ -33,43 +62,26 @@ public class PostDetailCacheService {
     }
 
     /**
-     * 获取帖子详情缓存
+     * 获取帖子详情，未命中时调用 loader 查询并缓存（返回的对象是共享的，不能修改）
+     * 过期后短时间内返回旧值并由一个调用方在后台刷新；帖子不存在时短期缓存空值（见 CacheLoaderService）
      */
-    public PostDetailVO getPostDetail(Long postId) {
-        String cacheKey = generateCacheKey(postId);
-        try {
-            String cached = stringRedisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
-                log.info("帖子详情缓存命中: postId={}", postId);
-                return objectMapper.readValue(cached, PostDetailVO.class);
-            }
-        } catch (JsonProcessingException e) {
-            log.error("解析帖子详情缓存失败: postId={}", postId, e);
-        }
-        return null;
+    public PostDetailVO getPostDetail(Long postId, Supplier<PostDetailVO> loader) {
+        return cacheLoaderService.getCachingAbsent(cache, generateCacheKey(postId), CACHE_EXPIRATION, loader);
     }
 
     /**
      * 缓存帖子详情
      */
     public void cachePostDetail(Long postId, PostDetailVO postDetail) {
-        String cacheKey = generateCacheKey(postId);
-        try {
-            String jsonData = objectMapper.writeValueAsString(postDetail);
-            stringRedisTemplate.opsForValue().set(cacheKey, jsonData, CACHE_EXPIRATION);
-            log.info("帖子详情已缓存: postId={}", postId);
-        } catch (JsonProcessingException e) {
-            log.error("缓存帖子详情失败: postId={}", postId, e);
-        }
+        cacheLoaderService.put(cache, generateCacheKey(postId), postDetail, CACHE_EXPIRATION);
+        log.info("帖子详情已缓存: postId={}", postId);
     }
 
     /**
      * 清除帖子详情缓存
      */
     public void evictPostDetail(Long postId) {
-        String cacheKey = generateCacheKey(postId);
-        Boolean deleted = stringRedisTemplate.delete(cacheKey);
-        if (Boolean.TRUE.equals(deleted)) {
+        if (cache.evict(generateCacheKey(postId))) {
             log.info("已清除帖子详情缓存: postId={}", postId);
         }
     }
@@ -79,11 +91,8 @@ public class PostDetailCacheService {
      */
     public void evictAllPostDetails() {
         try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
-                log.info("已清除所有帖子详情缓存: 共{}个", deleted);
-            }
+            long deleted = cache.clear();
+            log.info("已清除所有帖子详情缓存: 共{}个", deleted);
         } catch (Exception e) {
             log.error("清除所有帖子详情缓存失败", e);
         }
@@ -96,4 +105,4 @@ public class PostDetailCacheService {
         evictPostDetail(postId);
         log.info("已清除帖子相关缓存: postId={}", postId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,356 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 点赞计数分片服务
+ *
+ * 帖子点赞速率超过阈值（默认单节点每秒 200 次变更）时标记为热点并开启分片：写入 "post:like:count:{postId}:stripes"
+ * 标记后，点赞脚本只变更成员、不再写主计数key，增量由客户端 INCRBY 到随机选择的
+ * "post:like:count:{postId}:s:{0..N-1}"，所有点赞不再集中写同一个key。
+ * 读取时一次 MGET 读取主key和分片标记，只有分片中的帖子（有标记，或本节点写入过尚未合并的分片）才读取全部分片求和，
+ * 总和在进程内缓存 read-cache-ms，期间的读取和点赞返回的计数（缓存总和加减本次增量）都不访问Redis；
+ * 普通帖子每次读取只多读一个标记key。
+ * 热点标记 "post:like:count:{postId}:hot" 在高速率期间持续续期，过期后由定时任务把分片合并回主key；
+ * 写入分片时同时登记到 "post:like:striped"，合并与分片写入并发时残留的分片由任一节点在下一次定时任务中合并。
+ *
+ * 部署拓扑：点赞缓存的其他脚本（点赞切换、对账快照）一次操作同一帖子的多个key和全局变更流，整体只支持单主节点
+ * （standalone / sentinel）。分片key不加 hash tag，且每条命令、每个脚本只访问一个分片key
+ * （逐个 GET / GETDEL 分片，合并回主key的脚本只声明主key），迁移到 Redis Cluster 时分片会分散到不同槽位，不会产生 CROSSSLOT。
+ * 合并使用 GETDEL，需要 Redis 6.2 及以上；合并不是原子的，两步之间进程退出会少计本次取出的增量，由对账修复。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PostLikeCounterService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private static final String COUNT_PREFIX = RedisConstant.POST_LIKE_COUNT_PREFIX;
+    private static final String STRIPED_SET_KEY = RedisConstant.POST_LIKE_STRIPED_KEY;
+
+    private static final long TTL_SECONDS = TimeUnit.DAYS.toSeconds(RedisConstant.POST_LIKE_CACHE_TTL_DAYS);
+
+    // 单节点每秒点赞变更次数达到该值时开启分片，0 表示关闭
+    @Value("${post-like.counter.stripe-threshold:200}")
+    private int stripeThreshold;
+
+    // 读取时固定读取的分片数，修改前需先合并全部分片
+    @Value("${post-like.counter.stripes:8}")
+    private int stripes;
+
+    // 速率回落到阈值以下多久后合并分片
+    @Value("${post-like.counter.calm-seconds:60}")
+    private int calmSeconds;
+
+    // 分片计数总和的进程内缓存时间
+    @Value("${post-like.counter.read-cache-ms:1000}")
+    private long readCacheMillis;
+
+    private final Map<Long, CachedCount> stripedCountCache = new ConcurrentHashMap<>();
+    private final Map<Long, RateWindow> rateWindows = new ConcurrentHashMap<>();
+    // 本节点写入过分片的帖子，定时任务据此合并分片标记已被删除后残留的分片
+    private final Set<Long> locallyStriped = ConcurrentHashMap.newKeySet();
+
+    private static final DefaultRedisScript<Long> FOLD_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        FOLD_SCRIPT.setLocation(new ClassPathResource("lua/post_like_counter_fold.lua"));
+        FOLD_SCRIPT.setResultType(Long.class);
+    }
+
+    public String stripesKey(Long postId) {
+        return COUNT_PREFIX + postId + ":stripes";
+    }
+
+    public String hotKey(Long postId) {
+        return COUNT_PREFIX + postId + ":hot";
+    }
+
+    public String stripeKey(Long postId, int stripe) {
+        return COUNT_PREFIX + postId + ":s:" + stripe;
+    }
+
+    public int getStripes() {
+        return Math.max(stripes, 1);
+    }
+
+    /**
+     * 帖子的全部分片key，主key覆盖写入（重建、预热）前需一并删除
+     */
+    public List<String> stripeKeys(Long postId) {
+        List<String> keys = new ArrayList<>(getStripes());
+        for (int i = 0; i < getStripes(); i++) {
+            keys.add(stripeKey(postId, i));
+        }
+        return keys;
+    }
+
+    /**
+     * 记录一次点赞变更（本节点1秒窗口），速率达到阈值时标记热点并开启分片
+     */
+    public void recordChange(Long postId) {
+        if (stripeThreshold <= 0) {
+            return;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        RateWindow window = rateWindows.compute(postId, (id, current) ->
+                current != null && current.second == second ? current : new RateWindow(second));
+        // 每个窗口只在达到阈值时标记一次，高速率期间每秒续期一次热点标记
+        if (window.changes.incrementAndGet() == stripeThreshold) {
+            markHot(postId);
+        }
+    }
+
+    /**
+     * 把已变更的点赞增量写入随机分片
+     * @param delta 点赞 +1，取消点赞 -1，状态未变化时为 0（只读取当前总和）
+     * @return 变更后的点赞总数
+     */
+    public long applyStriped(Long postId, long delta) {
+        if (delta != 0) {
+            String key = stripeKey(postId, ThreadLocalRandom.current().nextInt(getStripes()));
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                conn.incrBy(key, delta);
+                conn.expire(key, TTL_SECONDS);
+                conn.expire(stripesKey(postId), TTL_SECONDS);
+                conn.sAdd(STRIPED_SET_KEY, String.valueOf(postId));
+                return null;
+            });
+            locallyStriped.add(postId);
+        }
+
+        long now = System.currentTimeMillis();
+        CachedCount cached = stripedCountCache.get(postId);
+        if (cached != null && cached.expireAt > now) {
+            long total = Math.max(cached.value + delta, 0L);
+            stripedCountCache.put(postId, new CachedCount(total, cached.expireAt));
+            return total;
+        }
+        return readCounts(Collections.singletonList(postId)).getOrDefault(postId, 0L);
+    }
+
+    /**
+     * 批量读取点赞数
+     * 分片总和缓存未过期的帖子直接返回缓存；其余帖子一次 MGET 读取主key和分片标记，
+     * 只有分片中（有分片标记或本节点写入过分片）的帖子再读取全部分片求和并缓存
+     * @return 主key存在的帖子的点赞数，不存在的帖子不在结果中
+     */
+    public Map<Long, Long> readCounts(List<Long> postIds) {
+        Map<Long, Long> result = new HashMap<>();
+        long now = System.currentTimeMillis();
+        List<Long> readIds = new ArrayList<>(postIds.size());
+        for (Long postId : postIds) {
+            CachedCount cached = stripedCountCache.get(postId);
+            if (cached != null && cached.expireAt > now) {
+                result.put(postId, cached.value);
+            } else {
+                readIds.add(postId);
+            }
+        }
+        if (readIds.isEmpty()) {
+            return result;
+        }
+
+        List<String> keys = new ArrayList<>(readIds.size() * 2);
+        for (Long postId : readIds) {
+            keys.add(COUNT_PREFIX + postId);
+            keys.add(stripesKey(postId));
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            return result;
+        }
+
+        Map<Long, Long> stripedBases = new LinkedHashMap<>();
+        for (int i = 0; i < readIds.size(); i++) {
+            Long postId = readIds.get(i);
+            String base = values.get(2 * i);
+            if (base == null) {
+                continue;
+            }
+            if (values.get(2 * i + 1) != null || locallyStriped.contains(postId)) {
+                stripedBases.put(postId, Long.parseLong(base));
+            } else {
+                result.put(postId, Long.parseLong(base));
+                stripedCountCache.remove(postId);
+            }
+        }
+        if (!stripedBases.isEmpty()) {
+            result.putAll(sumStripes(stripedBases));
+        }
+        return result;
+    }
+
+    /**
+     * 读取分片中帖子的全部分片，与主key求和后缓存 read-cache-ms
+     * @param bases 帖子ID到主key计数的映射
+     */
+    private Map<Long, Long> sumStripes(Map<Long, Long> bases) {
+        int width = getStripes();
+        // 逐个 GET，分片key不出现在同一条多key命令中
+        List<Object> values = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            bases.keySet().forEach(postId -> stripeKeys(postId).forEach(conn::get));
+            return null;
+        });
+
+        Map<Long, Long> result = new HashMap<>();
+        long expireAt = System.currentTimeMillis() + readCacheMillis;
+        int i = 0;
+        for (Map.Entry<Long, Long> entry : bases.entrySet()) {
+            long total = entry.getValue();
+            for (int s = 0; s < width; s++, i++) {
+                Object value = values.get(i);
+                if (value != null) {
+                    total += Long.parseLong(value.toString());
+                }
+            }
+            // 分片可以为负，只有总和有意义
+            total = Math.max(total, 0L);
+            result.put(entry.getKey(), total);
+            stripedCountCache.put(entry.getKey(), new CachedCount(total, expireAt));
+        }
+        return result;
+    }
+
+    /**
+     * 主key被覆盖写入时清除进程内缓存的总和
+     */
+    public void forget(Long postId) {
+        stripedCountCache.remove(postId);
+    }
+
+    /**
+     * 定时合并已不再是热点的帖子的分片计数
+     */
+    @Scheduled(fixedDelayString = "${post-like.counter.fold-interval-ms:10000}")
+    public void foldCalmStripes() {
+        long now = System.currentTimeMillis();
+        stripedCountCache.values().removeIf(cached -> cached.expireAt <= now);
+        rateWindows.values().removeIf(window -> window.second < now / 1000);
+        foldAll(false);
+    }
+
+    /**
+     * 合并所有已分片帖子（含本节点写入过分片的帖子）的计数
+     * @param force 为 true 时热点帖子也合并（全量重建前使用）
+     * @return 合并的帖子数
+     */
+    public int foldAll(boolean force) {
+        Set<Long> postIds = new HashSet<>(locallyStriped);
+        try {
+            Set<String> stripedPosts = stringRedisTemplate.opsForSet().members(STRIPED_SET_KEY);
+            if (stripedPosts != null) {
+                stripedPosts.forEach(member -> postIds.add(Long.valueOf(member)));
+            }
+        } catch (Exception e) {
+            log.warn("读取分片帖子集合失败: error={}", e.getMessage());
+        }
+        int folded = 0;
+        for (Long postId : postIds) {
+            try {
+                if (foldStripes(postId, force)) {
+                    folded++;
+                }
+            } catch (Exception e) {
+                log.error("合并点赞计数分片失败: postId={}, error={}", postId, e.getMessage());
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * 合并单个帖子的分片计数
+     * 先删除分片标记（之后的点赞由脚本直接写主key），再逐个 GETDEL 分片，总和由只声明主key的脚本加回主key
+     * @param force 为 true 时即使仍是热点也合并（重建缓存前使用）
+     * @return 是否已合并
+     */
+    public boolean foldStripes(Long postId, boolean force) {
+        // 先移出本地集合：合并之后才完成的分片写入会重新登记，下次再合并
+        locallyStriped.remove(postId);
+        if (!force && Boolean.TRUE.equals(stringRedisTemplate.hasKey(hotKey(postId)))) {
+            locallyStriped.add(postId);
+            return false;
+        }
+        stringRedisTemplate.delete(stripesKey(postId));
+        stringRedisTemplate.opsForSet().remove(STRIPED_SET_KEY, String.valueOf(postId));
+
+        long delta = 0;
+        for (String key : stripeKeys(postId)) {
+            String value = stringRedisTemplate.opsForValue().getAndDelete(key);
+            if (value != null) {
+                delta += Long.parseLong(value);
+            }
+        }
+        if (delta != 0) {
+            // 主key已过期时直接丢弃分片，下次访问从MySQL重新加载
+            stringRedisTemplate.execute(FOLD_SCRIPT, Collections.singletonList(COUNT_PREFIX + postId),
+                    String.valueOf(delta));
+            log.info("点赞计数分片已合并: postId={}, delta={}", postId, delta);
+        }
+        stripedCountCache.remove(postId);
+        return true;
+    }
+
+    /**
+     * 分片中或有残留分片的帖子（已登记的和本节点写入过的），对账时跳过
+     */
+    public Set<Long> stripedPostIds() {
+        Set<Long> postIds = new HashSet<>(locallyStriped);
+        Set<String> members = stringRedisTemplate.opsForSet().members(STRIPED_SET_KEY);
+        if (members != null) {
+            members.forEach(member -> postIds.add(Long.valueOf(member)));
+        }
+        return postIds;
+    }
+
+    /**
+     * 标记热点（续期）并开启分片，已分片的帖子只续期热点标记
+     */
+    private void markHot(Long postId) {
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                conn.setEx(hotKey(postId), Math.max(calmSeconds, 1), "1");
+                conn.set(stripesKey(postId), String.valueOf(getStripes()),
+                        Expiration.seconds(TTL_SECONDS), RedisStringCommands.SetOption.ifAbsent());
+                conn.sAdd(STRIPED_SET_KEY, String.valueOf(postId));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("开启点赞计数分片失败: postId={}, error={}", postId, e.getMessage());
+        }
+    }
+
+    private record CachedCount(long value, long expireAt) {
+    }
+
+    private static final class RateWindow {
+        final long second;
+        final AtomicInteger changes = new AtomicInteger();
+
+        RateWindow(long second) {
+            this.second = second;
+        }
+    }
+}
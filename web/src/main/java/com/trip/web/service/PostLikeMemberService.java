@@ -0,0 +1,452 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 点赞用户成员存储服务
+ *
+ * 由 post-like.storage-mode 按部署选择点赞用户的存储方式:
+ * 1. set（默认）: "post:like:user:{postId}" -> Set<userId>，热门帖子每个点赞几十字节
+ * 2. bitmap: 按 userId 分片 "post:like:bm:{postId}:{chunk}"，每片覆盖 8192 个 userId，分片编号记录在
+ *    "post:like:bm:{postId}:chunks"。与 roaring bitmap 相同，稀疏分片存为分片内偏移量的集合（Redis 以 intset
+ *    存储，每个成员 2 字节），成员数超过 512 后转为位图（1KB），高位稀疏的 userId 不会每人占用 1KB。
+ *    点赞只续期写入的分片和分片索引，加载标记不续期，标记先于所有分片过期，过期后整体重新加载。
+ *
+ * 加载标记 "post:like:loaded:{postId}" 的值是 "写入时的存储模式:重置时间"，模式与当前模式不一致时视为未加载，
+ * 切换模式后各帖子在下次访问时从MySQL按新模式重建；migrateSetsToBitmap 可提前批量转换。
+ * 重置时间用于写回：重置之前产生的变更可能未包含在从MySQL读取的成员中，写回时不能以Redis状态为准。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PostLikeMemberService {
+
+    public static final String MODE_SET = "set";
+    public static final String MODE_BITMAP = "bitmap";
+
+    // 位图分片位数，单个分片最大 1KB
+    public static final long CHUNK_BITS = 8192L;
+
+    // 分片以集合存储的最大成员数：512 个 2 字节偏移量与 1KB 位图大小相当，也是 Redis set-max-intset-entries 的默认值，
+    // 超过后集合不再以 intset 存储
+    public static final int CHUNK_ARRAY_MAX = 512;
+
+    private static final String CHUNK_INDEX_SUFFIX = "chunks";
+
+    private static final int SADD_BATCH = 1000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PostLikeCounterService postLikeCounterService;
+
+    @Value("${post-like.storage-mode:set}")
+    private String storageMode;
+
+    private static final DefaultRedisScript<Long> SET_TO_BITMAP_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> BITMAP_MEMBER_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> MARK_LOADED_SCRIPT = new DefaultRedisScript<>();
+
+    // 集合读取后有变化（分片未在脚本 KEYS 中）时的重试次数
+    private static final int MIGRATE_ATTEMPTS = 3;
+    private static final long MIGRATE_CHANGED = -2L;
+
+    static {
+        SET_TO_BITMAP_SCRIPT.setLocation(new ClassPathResource("lua/post_like_set_to_bitmap.lua"));
+        SET_TO_BITMAP_SCRIPT.setResultType(Long.class);
+        BITMAP_MEMBER_SCRIPT.setLocation(new ClassPathResource("lua/post_like_bitmap_member.lua"));
+        BITMAP_MEMBER_SCRIPT.setResultType(Long.class);
+        MARK_LOADED_SCRIPT.setLocation(new ClassPathResource("lua/post_like_mark_loaded.lua"));
+        MARK_LOADED_SCRIPT.setResultType(Long.class);
+    }
+
+    @PostConstruct
+    public void init() {
+        String mode = storageMode == null ? "" : storageMode.trim().toLowerCase(Locale.ROOT);
+        if (!MODE_SET.equals(mode) && !MODE_BITMAP.equals(mode)) {
+            log.warn("未知的点赞存储模式 {}，使用 set 模式", storageMode);
+            mode = MODE_SET;
+        }
+        storageMode = mode;
+        log.info("点赞用户存储模式: {}", storageMode);
+    }
+
+    public String getMode() {
+        return storageMode;
+    }
+
+    public boolean isBitmapMode() {
+        return MODE_BITMAP.equals(storageMode);
+    }
+
+    /**
+     * 用户所在的成员key：set 模式为点赞用户集合，bitmap 模式为所在分片
+     */
+    public String memberKey(Long postId, Long userId) {
+        return isBitmapMode() ? chunkPrefix(postId) + chunkOf(userId) : RedisConstant.POST_LIKE_USER_PREFIX + postId;
+    }
+
+    public long chunkOf(Long userId) {
+        return userId / CHUNK_BITS;
+    }
+
+    public long bitOffset(Long userId) {
+        return userId % CHUNK_BITS;
+    }
+
+    public String chunkPrefix(Long postId) {
+        return RedisConstant.POST_LIKE_BITMAP_PREFIX + postId + ":";
+    }
+
+    public String chunkIndexKey(Long postId) {
+        return chunkPrefix(postId) + CHUNK_INDEX_SUFFIX;
+    }
+
+    public String loadedKey(Long postId) {
+        return RedisConstant.POST_LIKE_LOADED_PREFIX + postId;
+    }
+
+    /**
+     * 在pipeline中追加两条命令：读取加载标记、检查成员，结果由 isLoaded / isMember 解析
+     * bitmap 模式的分片可能是集合或位图，用脚本按类型检查（pipeline 中用 EVAL，不会出现 NOSCRIPT）
+     */
+    public void queueMembershipCheck(StringRedisConnection conn, Long postId, Long userId) {
+        conn.get(loadedKey(postId));
+        if (isBitmapMode()) {
+            conn.eval(BITMAP_MEMBER_SCRIPT.getScriptAsString(), ReturnType.INTEGER, 1,
+                    memberKey(postId, userId), String.valueOf(bitOffset(userId)));
+        } else {
+            conn.sIsMember(memberKey(postId, userId), String.valueOf(userId));
+        }
+    }
+
+    /**
+     * 解析 queueMembershipCheck 的成员检查结果
+     */
+    public boolean isMember(Object reply) {
+        return Boolean.TRUE.equals(reply) || (reply instanceof Number number && number.longValue() == 1L);
+    }
+
+    /**
+     * 加载标记的值是否表示成员数据按当前模式完整加载
+     */
+    public boolean isLoaded(Object markerValue) {
+        return storageMode.equals(markerValue)
+                || (markerValue instanceof String marker && marker.startsWith(storageMode + ":"));
+    }
+
+    /**
+     * 加载标记中记录的成员重置时间（Redis服务器毫秒时间），旧版标记没有记录时返回 0
+     */
+    public long resetAt(Object markerValue) {
+        if (markerValue instanceof String marker) {
+            int separator = marker.indexOf(':');
+            if (separator > 0) {
+                try {
+                    return Long.parseLong(marker.substring(separator + 1));
+                } catch (NumberFormatException ignored) {
+                    // 无法解析时按旧版标记处理
+                }
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * 用MySQL中的点赞用户整体替换缓存，并写入计数和加载标记（一次pipeline，标记最后写入）
+     */
+    public void replaceMembers(Long postId, Collection<Long> userIds, long likeCount, long ttlSeconds) {
+        writeMembers(Collections.singletonList(new MemberWrite(postId, userIds, true, true, likeCount)), ttlSeconds);
+    }
+
+    /**
+     * 批量写入多个帖子的点赞用户：一次pipeline读取旧分片索引，一次pipeline完成全部写入
+     * reset 的帖子先删除加载标记和两种模式的旧数据；complete 的帖子最后写入计数（清除分片）和加载标记
+     */
+    public void writeMembers(List<MemberWrite> writes, long ttlSeconds) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        List<MemberWrite> resets = writes.stream().filter(MemberWrite::reset).toList();
+        List<Object> oldChunks = resets.isEmpty() ? Collections.emptyList()
+                : stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    resets.forEach(write -> conn.sMembers(chunkIndexKey(write.postId())));
+                    return null;
+                });
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            int resetIndex = 0;
+            for (MemberWrite write : writes) {
+                Long postId = write.postId();
+                if (write.reset()) {
+                    // 两种模式的旧数据都清除，切换模式后不留残余；先删标记，重写期间点赞脚本视为未预热
+                    conn.del(loadedKey(postId), RedisConstant.POST_LIKE_USER_PREFIX + postId, chunkIndexKey(postId));
+                    Object chunks = oldChunks.get(resetIndex++);
+                    if (chunks instanceof Collection<?> old) {
+                        old.forEach(chunk -> conn.del(chunkPrefix(postId) + chunk));
+                    }
+                }
+                addMembers(conn, postId, write.userIds(), ttlSeconds);
+                if (write.complete()) {
+                    // 主key覆盖写入，同时清除分片计数，避免重复计入（逐个删除，分片key不出现在同一条命令中）
+                    conn.del(postLikeCounterService.stripesKey(postId));
+                    postLikeCounterService.stripeKeys(postId).forEach(conn::del);
+                    conn.eval(MARK_LOADED_SCRIPT.getScriptAsString(), ReturnType.INTEGER, 2,
+                            RedisConstant.POST_LIKE_COUNT_PREFIX + postId, loadedKey(postId),
+                            String.valueOf(write.likeCount()), storageMode, String.valueOf(ttlSeconds));
+                }
+            }
+            return null;
+        });
+        writes.stream().filter(MemberWrite::complete).forEach(write -> postLikeCounterService.forget(write.postId()));
+    }
+
+    private void addMembers(StringRedisConnection conn, Long postId, Collection<Long> userIds, long ttlSeconds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        if (isBitmapMode()) {
+            // 同一分片的成员一次写入（分段写入时分段边界与分片边界对齐），按成员数选择集合或位图
+            Map<Long, List<String>> offsetsByChunk = new TreeMap<>();
+            for (Long userId : userIds) {
+                offsetsByChunk.computeIfAbsent(chunkOf(userId), chunk -> new ArrayList<>()).add(String.valueOf(bitOffset(userId)));
+            }
+            offsetsByChunk.forEach((chunk, offsets) -> {
+                String chunkKey = chunkPrefix(postId) + chunk;
+                if (offsets.size() <= CHUNK_ARRAY_MAX) {
+                    conn.sAdd(chunkKey, offsets.toArray(new String[0]));
+                } else {
+                    offsets.forEach(offset -> conn.setBit(chunkKey, Long.parseLong(offset), true));
+                }
+                conn.expire(chunkKey, ttlSeconds);
+            });
+            conn.sAdd(chunkIndexKey(postId), offsetsByChunk.keySet().stream().map(String::valueOf).toArray(String[]::new));
+            conn.expire(chunkIndexKey(postId), ttlSeconds);
+        } else {
+            String userSetKey = RedisConstant.POST_LIKE_USER_PREFIX + postId;
+            // 分段 SADD，避免单条命令参数过多
+            List<String> members = userIds.stream().map(String::valueOf).toList();
+            for (int from = 0; from < members.size(); from += SADD_BATCH) {
+                List<String> part = members.subList(from, Math.min(from + SADD_BATCH, members.size()));
+                conn.sAdd(userSetKey, part.toArray(new String[0]));
+            }
+            conn.expire(userSetKey, ttlSeconds);
+        }
+    }
+
+    /**
+     * 将现有的点赞用户集合迁移为分片位图（仅 bitmap 模式可执行）
+     * 每个帖子在一次Lua脚本中原子转换，转换期间的点赞操作不会丢失
+     */
+    public Map<String, Object> migrateSetsToBitmap(int scanCount) {
+        if (!isBitmapMode()) {
+            throw new IllegalStateException("当前存储模式为 " + storageMode + "，请先配置 post-like.storage-mode=bitmap");
+        }
+
+        long migratedPosts = 0;
+        long migratedMembers = 0;
+        long droppedPartialSets = 0;
+        long failedPosts = 0;
+        long start = System.currentTimeMillis();
+
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(RedisConstant.POST_LIKE_USER_PREFIX + "*")
+                .type(DataType.SET)
+                .count(scanCount)
+                .build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String userSetKey = cursor.next();
+                Long postId = parsePostId(userSetKey, RedisConstant.POST_LIKE_USER_PREFIX);
+                if (postId == null) {
+                    continue;
+                }
+                try {
+                    Long converted = migrateSet(userSetKey, postId);
+                    if (converted != null && converted == MIGRATE_CHANGED) {
+                        failedPosts++;
+                        log.warn("点赞集合迁移时持续变化，跳过: key={}", userSetKey);
+                    } else if (converted != null && converted < 0) {
+                        droppedPartialSets++;
+                    } else {
+                        migratedPosts++;
+                        migratedMembers += converted != null ? converted : 0;
+                    }
+                } catch (Exception e) {
+                    failedPosts++;
+                    log.error("点赞集合迁移为位图失败: key={}, error={}", userSetKey, e.getMessage());
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("migratedPosts", migratedPosts);
+        result.put("migratedMembers", migratedMembers);
+        result.put("droppedPartialSets", droppedPartialSets);
+        result.put("failedPosts", failedPosts);
+        result.put("costMillis", System.currentTimeMillis() - start);
+        log.info("点赞集合迁移为位图完成: {}", result);
+        return result;
+    }
+
+    /**
+     * 读取集合成员算出涉及的分片，在脚本 KEYS 中声明全部分片后原子转换
+     */
+    private Long migrateSet(String userSetKey, Long postId) {
+        Long converted = MIGRATE_CHANGED;
+        for (int attempt = 0; attempt < MIGRATE_ATTEMPTS && converted != null && converted == MIGRATE_CHANGED; attempt++) {
+            Set<String> members = stringRedisTemplate.opsForSet().members(userSetKey);
+            Set<Long> chunks = new TreeSet<>();
+            if (members != null) {
+                for (String member : members) {
+                    try {
+                        long userId = Long.parseLong(member);
+                        if (userId >= 0) {
+                            chunks.add(chunkOf(userId));
+                        }
+                    } catch (NumberFormatException ignored) {
+                        // 非数字成员不会写入分片
+                    }
+                }
+            }
+            List<String> keys = new ArrayList<>(Arrays.asList(userSetKey, loadedKey(postId), chunkIndexKey(postId)));
+            List<String> args = new ArrayList<>(Arrays.asList(String.valueOf(CHUNK_BITS), String.valueOf(CHUNK_ARRAY_MAX)));
+            for (Long chunk : chunks) {
+                keys.add(chunkPrefix(postId) + chunk);
+                args.add(String.valueOf(chunk));
+            }
+            converted = stringRedisTemplate.execute(SET_TO_BITMAP_SCRIPT, keys, args.toArray());
+        }
+        return converted;
+    }
+
+    /**
+     * 对比两种存储方式的内存占用（MEMORY USAGE 抽样），并估算集合转为位图后的大小
+     */
+    public Map<String, Object> memoryReport(int sampleSize) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("storageMode", storageMode);
+        report.put("chunkBits", CHUNK_BITS);
+        report.put("chunkArrayMax", CHUNK_ARRAY_MAX);
+        report.put("sampleSize", sampleSize);
+
+        // set 模式：实际占用 + 转为分片存储后的估算（稀疏分片每个成员 2 字节，稠密分片按最高位计算字节数）
+        long setKeys = 0, setMembers = 0, setBytes = 0, projectedBitmapBytes = 0;
+        ScanOptions setOptions = ScanOptions.scanOptions()
+                .match(RedisConstant.POST_LIKE_USER_PREFIX + "*").type(DataType.SET).count(500).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(setOptions)) {
+            while (cursor.hasNext() && setKeys < sampleSize) {
+                String key = cursor.next();
+                Set<String> members = stringRedisTemplate.opsForSet().members(key);
+                if (members == null) {
+                    continue;
+                }
+                setKeys++;
+                setMembers += members.size();
+                setBytes += memoryUsage(key);
+                projectedBitmapBytes += projectBitmapBytes(members);
+            }
+        }
+        report.put("set", sizeSummary(setKeys, setMembers, setBytes));
+        report.put("setProjectedBitmapPayloadBytes", projectedBitmapBytes);
+
+        // bitmap 模式：按分片索引汇总每个帖子所有分片的实际占用
+        long bitmapPosts = 0, bitmapMembers = 0, bitmapBytes = 0;
+        ScanOptions indexOptions = ScanOptions.scanOptions()
+                .match(RedisConstant.POST_LIKE_BITMAP_PREFIX + "*:" + CHUNK_INDEX_SUFFIX).count(500).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(indexOptions)) {
+            while (cursor.hasNext() && bitmapPosts < sampleSize) {
+                String indexKey = cursor.next();
+                String chunkPrefix = indexKey.substring(0, indexKey.length() - CHUNK_INDEX_SUFFIX.length());
+                Set<String> chunks = stringRedisTemplate.opsForSet().members(indexKey);
+                if (chunks == null) {
+                    continue;
+                }
+                bitmapPosts++;
+                bitmapBytes += memoryUsage(indexKey);
+                for (String chunk : chunks) {
+                    String chunkKey = chunkPrefix + chunk;
+                    bitmapBytes += memoryUsage(chunkKey);
+                    Long members = DataType.SET == stringRedisTemplate.type(chunkKey)
+                            ? stringRedisTemplate.opsForSet().size(chunkKey)
+                            : stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                                    ((StringRedisConnection) connection).bitCount(chunkKey));
+                    bitmapMembers += members != null ? members : 0;
+                }
+            }
+        }
+        report.put("bitmap", sizeSummary(bitmapPosts, bitmapMembers, bitmapBytes));
+        return report;
+    }
+
+    private Map<String, Object> sizeSummary(long posts, long members, long bytes) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("posts", posts);
+        summary.put("likes", members);
+        summary.put("bytes", bytes);
+        summary.put("bytesPerLike", members > 0 ? Math.round(bytes * 100.0 / members) / 100.0 : 0);
+        return summary;
+    }
+
+    private long projectBitmapBytes(Set<String> members) {
+        Map<Long, Long> maxOffsetByChunk = new HashMap<>();
+        Map<Long, Long> countByChunk = new HashMap<>();
+        for (String member : members) {
+            try {
+                long userId = Long.parseLong(member);
+                maxOffsetByChunk.merge(chunkOf(userId), bitOffset(userId), Math::max);
+                countByChunk.merge(chunkOf(userId), 1L, Long::sum);
+            } catch (NumberFormatException ignored) {
+                // 非数字成员不会出现在位图中
+            }
+        }
+        return maxOffsetByChunk.entrySet().stream().mapToLong(entry -> {
+            long count = countByChunk.get(entry.getKey());
+            return count <= CHUNK_ARRAY_MAX ? count * 2 : entry.getValue() / 8 + 1;
+        }).sum();
+    }
+
+    private long memoryUsage(String key) {
+        try {
+            Object usage = stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                    ((StringRedisConnection) connection).execute("MEMORY", "USAGE", key));
+            return usage instanceof Number ? ((Number) usage).longValue() : 0L;
+        } catch (Exception e) {
+            log.debug("MEMORY USAGE 执行失败: key={}, error={}", key, e.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * 单个帖子的点赞用户写入
+     * @param reset 是否先清除旧数据（同一帖子分段写入时只有第一段为 true）
+     * @param complete 是否是最后一段，写入计数和加载标记
+     * @param likeCount 帖子点赞总数（complete 为 true 时使用）
+     */
+    public record MemberWrite(Long postId, Collection<Long> userIds, boolean reset, boolean complete, long likeCount) {
+    }
+
+    private static Long parsePostId(String key, String prefix) {
+        try {
+            return Long.valueOf(key.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
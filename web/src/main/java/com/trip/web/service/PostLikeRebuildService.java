@@ -0,0 +1,250 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import com.trip.model.entity.PostLike;
+import com.trip.web.mapper.PostLikeMapper;
+import com.trip.web.service.PostLikeMemberService.MemberWrite;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 点赞缓存全量重建服务
+ *
+ * 按 (post_id, user_id) 键集分页顺序读取 post_like，在内存中按帖子分组（每页最后一个帖子可能跨页，
+ * 留到下一页继续累积），每满一批帖子交给有界线程池，以一次pipeline写入计数、点赞用户和加载标记。
+ * 队列满时由读取线程自己执行写入，读取速度自动跟随Redis写入速度。
+ * 点赞数超过 max-group-size 的帖子分段写入（在分片边界处切分），避免单个帖子占用过多内存。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PostLikeRebuildService {
+
+    private final PostLikeMapper postLikeMapper;
+    private final PostLikeMemberService postLikeMemberService;
+    private final PostLikeWriteBehindService postLikeWriteBehindService;
+
+    @Value("${post-like.rebuild.page-size:5000}")
+    private int pageSize;
+
+    // 每次pipeline写入的帖子数
+    @Value("${post-like.rebuild.batch-posts:200}")
+    private int batchPosts;
+
+    @Value("${post-like.rebuild.workers:4}")
+    private int workers;
+
+    @Value("${post-like.rebuild.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${post-like.rebuild.max-group-size:50000}")
+    private int maxGroupSize;
+
+    private static final long TTL_SECONDS = TimeUnit.DAYS.toSeconds(RedisConstant.POST_LIKE_CACHE_TTL_DAYS);
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean cancelRequested;
+
+    // 进度
+    private volatile String status = "IDLE";
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile long lastPostId;
+    private volatile String lastError;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong postsWritten = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    /**
+     * 在后台线程中启动全量重建
+     * @return 已有重建任务在运行时返回 false
+     */
+    public boolean startAsync() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::runRebuild, "post-like-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 在当前线程中执行全量重建，完成后返回进度
+     */
+    public Map<String, Object> rebuild() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("点赞缓存重建任务正在运行");
+        }
+        runRebuild();
+        return getProgress();
+    }
+
+    public void cancel() {
+        if (running.get()) {
+            cancelRequested = true;
+            log.info("已请求取消点赞缓存重建");
+        }
+    }
+
+    public Map<String, Object> getProgress() {
+        long end = running.get() || endTime == 0 ? System.currentTimeMillis() : endTime;
+        long elapsedMillis = startTime == 0 ? 0 : end - startTime;
+        double seconds = Math.max(elapsedMillis / 1000.0, 0.001);
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("status", status);
+        progress.put("running", running.get());
+        progress.put("startTime", startTime);
+        progress.put("elapsedMillis", elapsedMillis);
+        progress.put("lastPostId", lastPostId);
+        progress.put("rowsRead", rowsRead.get());
+        progress.put("postsWritten", postsWritten.get());
+        progress.put("batchesWritten", batchesWritten.get());
+        progress.put("failedBatches", failedBatches.get());
+        progress.put("rowsPerSecond", Math.round(rowsRead.get() / seconds));
+        progress.put("postsPerSecond", Math.round(postsWritten.get() / seconds));
+        progress.put("lastError", lastError);
+        return progress;
+    }
+
+    private void runRebuild() {
+        resetProgress();
+        ThreadPoolExecutor pool = newWorkerPool();
+        try {
+            // 未写回的变更先落库，避免用旧数据覆盖Redis（主key写入时清除分片计数）
+            postLikeWriteBehindService.drainAll();
+
+            readAndDispatch(pool);
+
+            pool.shutdown();
+            while (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.info("等待点赞缓存重建写入完成: {}", getProgress());
+            }
+            status = cancelRequested ? "CANCELLED" : "COMPLETED";
+            log.info("点赞缓存重建结束: {}", getProgress());
+        } catch (Exception e) {
+            status = "FAILED";
+            lastError = e.getMessage();
+            log.error("点赞缓存重建失败: lastPostId={}", lastPostId, e);
+        } finally {
+            pool.shutdownNow();
+            endTime = System.currentTimeMillis();
+            running.set(false);
+        }
+    }
+
+    private void readAndDispatch(ThreadPoolExecutor pool) {
+        long cursorPostId = 0;
+        long cursorUserId = 0;
+
+        Long currentPostId = null;
+        List<Long> currentLikers = new ArrayList<>();
+        long currentCount = 0;
+        boolean currentReset = true;
+        List<MemberWrite> batch = new ArrayList<>(batchPosts);
+
+        while (!cancelRequested) {
+            List<PostLike> page = postLikeMapper.selectLikesAfter(cursorPostId, cursorUserId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            rowsRead.addAndGet(page.size());
+
+            for (PostLike like : page) {
+                if (currentPostId != null && currentPostId.equals(like.getPostId())
+                        && currentLikers.size() >= maxGroupSize
+                        && postLikeMemberService.chunkOf(like.getUserId())
+                        != postLikeMemberService.chunkOf(currentLikers.get(currentLikers.size() - 1))) {
+                    // 超大帖子在读取线程中按顺序分段写入，保证先清除旧数据、最后写入计数和标记；
+                    // 分段边界与 bitmap 模式的分片边界对齐（行按 user_id 排序），每个分片一次写入
+                    postLikeMemberService.writeMembers(Collections.singletonList(
+                            new MemberWrite(currentPostId, currentLikers, currentReset, false, 0)), TTL_SECONDS);
+                    currentLikers = new ArrayList<>();
+                    currentReset = false;
+                }
+                if (currentPostId != null && !currentPostId.equals(like.getPostId())) {
+                    batch.add(new MemberWrite(currentPostId, currentLikers, currentReset, true, currentCount));
+                    if (batch.size() >= batchPosts) {
+                        submit(pool, batch);
+                        batch = new ArrayList<>(batchPosts);
+                    }
+                    currentLikers = new ArrayList<>();
+                    currentCount = 0;
+                    currentReset = true;
+                }
+                currentPostId = like.getPostId();
+                currentLikers.add(like.getUserId());
+                currentCount++;
+            }
+
+            PostLike last = page.get(page.size() - 1);
+            cursorPostId = last.getPostId();
+            cursorUserId = last.getUserId();
+            lastPostId = cursorPostId;
+
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        // 被取消时最后一个帖子可能不完整，不写入加载标记，下次访问时单独预热
+        if (currentPostId != null && !cancelRequested) {
+            batch.add(new MemberWrite(currentPostId, currentLikers, currentReset, true, currentCount));
+        }
+        if (!batch.isEmpty()) {
+            submit(pool, batch);
+        }
+    }
+
+    private void submit(ThreadPoolExecutor pool, List<MemberWrite> batch) {
+        pool.execute(() -> {
+            try {
+                postLikeMemberService.writeMembers(batch, TTL_SECONDS);
+                postsWritten.addAndGet(batch.stream().filter(MemberWrite::complete).count());
+                batchesWritten.incrementAndGet();
+            } catch (Exception e) {
+                failedBatches.incrementAndGet();
+                lastError = e.getMessage();
+                log.error("点赞缓存重建批次写入失败: firstPostId={}, posts={}, error={}",
+                        batch.get(0).postId(), batch.size(), e.getMessage());
+            }
+        });
+    }
+
+    private ThreadPoolExecutor newWorkerPool() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "post-like-rebuild-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void resetProgress() {
+        cancelRequested = false;
+        status = "RUNNING";
+        startTime = System.currentTimeMillis();
+        endTime = 0;
+        lastPostId = 0;
+        lastError = null;
+        rowsRead.set(0);
+        postsWritten.set(0);
+        batchesWritten.set(0);
+        failedBatches.set(0);
+    }
+}
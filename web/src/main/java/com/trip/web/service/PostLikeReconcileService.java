@@ -0,0 +1,289 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import com.trip.model.dto.LikeCountDTO;
+import com.trip.web.mapper.PostLikeMapper;
+import com.trip.web.mapper.PostMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 点赞数据增量对账服务
+ *
+ * 按帖子ID分块持续遍历（游标保存在Redis中，多节点通过锁轮流执行），每块:
+ * 1. 一次Lua快照读取计数、点赞用户基数和每个帖子的待写回记录数
+ * 2. 成员已完整加载时计数应等于基数，不等则以基数修复（Redis内部一致性；计数分片中或有残留分片的帖子计数不只在主key中，跳过）
+ * 3. 没有待写回记录的帖子，Redis中的变更都已写回，再用一条分组SQL与MySQL对比:
+ *    计数不一致以MySQL修复，成员基数不一致则删除加载标记，下次访问时重新加载；
+ *    其他帖子有持续的点赞写入不影响这些帖子的对账
+ * 修复都是CAS：计数在快照之后有变化或出现新的待写回记录就放弃，留到下一轮。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PostLikeReconcileService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PostMapper postMapper;
+    private final PostLikeMapper postLikeMapper;
+    private final PostLikeMemberService postLikeMemberService;
+    private final PostLikeCounterService postLikeCounterService;
+
+    private static final String CURSOR_KEY = RedisConstant.POST_LIKE_RECONCILE_CURSOR_KEY;
+    private static final String LOCK_KEY = RedisConstant.POST_LIKE_RECONCILE_LOCK_KEY;
+
+    private static final long REPAIRED = 1L;
+    private static final long STRIPED = -1L;
+    private static final long SNAPSHOT_CHANGED = -2L;
+
+    @Value("${post-like.reconcile.enabled:true}")
+    private boolean enabled;
+
+    // 只统计不修复
+    @Value("${post-like.reconcile.repair:true}")
+    private boolean repair;
+
+    @Value("${post-like.reconcile.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${post-like.reconcile.chunks-per-run:5}")
+    private int chunksPerRun;
+
+    private final String lockOwner = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+
+    // 对账指标
+    private final AtomicLong postsChecked = new AtomicLong();
+    private final AtomicLong chunksChecked = new AtomicLong();
+    private final AtomicLong busyPosts = new AtomicLong();
+    private final AtomicLong completedPasses = new AtomicLong();
+    private final AtomicLong countVsMemberDrift = new AtomicLong();
+    private final AtomicLong countVsMySQLDrift = new AtomicLong();
+    private final AtomicLong memberVsMySQLDrift = new AtomicLong();
+    private final AtomicLong totalAbsDrift = new AtomicLong();
+    private final AtomicLong maxAbsDrift = new AtomicLong();
+    private final AtomicLong repairedCounts = new AtomicLong();
+    private final AtomicLong invalidatedMembers = new AtomicLong();
+    private final AtomicLong repairConflicts = new AtomicLong();
+    private volatile long lastRunAt;
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SNAPSHOT_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> REPAIR_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    static {
+        SNAPSHOT_SCRIPT.setLocation(new ClassPathResource("lua/post_like_reconcile_snapshot.lua"));
+        SNAPSHOT_SCRIPT.setResultType(List.class);
+        REPAIR_SCRIPT.setLocation(new ClassPathResource("lua/post_like_reconcile_repair.lua"));
+        REPAIR_SCRIPT.setResultType(Long.class);
+        INVALIDATE_SCRIPT.setLocation(new ClassPathResource("lua/post_like_reconcile_invalidate.lua"));
+        INVALIDATE_SCRIPT.setResultType(Long.class);
+    }
+
+    @Scheduled(fixedDelayString = "${post-like.reconcile.interval-ms:60000}",
+            initialDelayString = "${post-like.reconcile.initial-delay-ms:60000}")
+    public void scheduledReconcile() {
+        if (enabled) {
+            runOnce(chunksPerRun);
+        }
+    }
+
+    /**
+     * 从保存的游标继续对账若干块
+     * @return 本次检查的帖子数，未获得锁时返回 -1
+     */
+    public int runOnce(int chunks) {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, lockOwner, 5, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return -1;
+        }
+        int checked = 0;
+        try {
+            String saved = stringRedisTemplate.opsForValue().get(CURSOR_KEY);
+            long cursor = saved != null ? Long.parseLong(saved) : 0L;
+
+            for (int i = 0; i < chunks; i++) {
+                List<Long> postIds = postMapper.selectIdsAfter(cursor, chunkSize);
+                if (postIds.isEmpty()) {
+                    // 一轮遍历完成，从头开始
+                    cursor = 0L;
+                    completedPasses.incrementAndGet();
+                    break;
+                }
+                reconcileChunk(postIds);
+                checked += postIds.size();
+                cursor = postIds.get(postIds.size() - 1);
+            }
+
+            stringRedisTemplate.opsForValue().set(CURSOR_KEY, String.valueOf(cursor));
+            lastRunAt = System.currentTimeMillis();
+            log.debug("点赞对账完成: checked={}, cursor={}", checked, cursor);
+        } catch (Exception e) {
+            log.error("点赞对账失败: error={}", e.getMessage());
+        } finally {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_KEY), lockOwner);
+        }
+        return checked;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("repair", repair);
+        stats.put("cursor", stringRedisTemplate.opsForValue().get(CURSOR_KEY));
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("completedPasses", completedPasses.get());
+        stats.put("chunksChecked", chunksChecked.get());
+        stats.put("busyPosts", busyPosts.get());
+        stats.put("postsChecked", postsChecked.get());
+        stats.put("countVsMemberDrift", countVsMemberDrift.get());
+        stats.put("countVsMySQLDrift", countVsMySQLDrift.get());
+        stats.put("memberVsMySQLDrift", memberVsMySQLDrift.get());
+        stats.put("totalAbsDrift", totalAbsDrift.get());
+        stats.put("maxAbsDrift", maxAbsDrift.get());
+        stats.put("repairedCounts", repairedCounts.get());
+        stats.put("invalidatedMembers", invalidatedMembers.get());
+        stats.put("repairConflicts", repairConflicts.get());
+        return stats;
+    }
+
+    private void reconcileChunk(List<Long> postIds) {
+        boolean bitmap = postLikeMemberService.isBitmapMode();
+        List<Object> chunkIndexes = bitmap
+                ? stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    postIds.forEach(postId -> conn.sMembers(postLikeMemberService.chunkIndexKey(postId)));
+                    return null;
+                })
+                : Collections.emptyList();
+
+        // 每个帖子的全部key都在 KEYS 中声明，位图分片来自上面预先读取的分片索引
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>(postIds.size() + 1);
+        args.add(postLikeMemberService.getMode());
+        for (int i = 0; i < postIds.size(); i++) {
+            Long postId = postIds.get(i);
+            keys.add(RedisConstant.POST_LIKE_COUNT_PREFIX + postId);
+            keys.add(postLikeMemberService.loadedKey(postId));
+            keys.add(pendingKey(postId));
+            keys.add(bitmap ? postLikeMemberService.chunkIndexKey(postId) : RedisConstant.POST_LIKE_USER_PREFIX + postId);
+            keys.add(postLikeCounterService.stripesKey(postId));
+            int chunks = 0;
+            if (bitmap && chunkIndexes.get(i) instanceof Collection<?> index) {
+                for (Object chunk : index) {
+                    keys.add(postLikeMemberService.chunkPrefix(postId) + chunk);
+                    chunks++;
+                }
+            }
+            args.add(String.valueOf(chunks));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Long> snapshot = stringRedisTemplate.execute(SNAPSHOT_SCRIPT, keys, args.toArray());
+        if (snapshot == null || snapshot.size() != postIds.size() * 4) {
+            return;
+        }
+        chunksChecked.incrementAndGet();
+        postsChecked.addAndGet(postIds.size());
+        Set<Long> stripedIds = postLikeCounterService.stripedPostIds();
+
+        // 计数已缓存且没有待写回变更的帖子才和MySQL对比
+        List<Long> idleIds = new ArrayList<>();
+        for (int i = 0; i < postIds.size(); i++) {
+            if (snapshot.get(4 * i + 3) > 0) {
+                busyPosts.incrementAndGet();
+            } else if (snapshot.get(4 * i + 1) >= 0) {
+                idleIds.add(postIds.get(i));
+            }
+        }
+        Map<Long, LikeCountDTO> mysqlCounts = idleIds.isEmpty()
+                ? Collections.emptyMap() : postLikeMapper.countByPostIds(idleIds);
+
+        for (int i = 0; i < postIds.size(); i++) {
+            Long postId = postIds.get(i);
+            boolean loaded = snapshot.get(4 * i) == 1L;
+            long count = snapshot.get(4 * i + 1);
+            long card = snapshot.get(4 * i + 2);
+            boolean idle = snapshot.get(4 * i + 3) <= 0;
+            if (count < 0 || card == SNAPSHOT_CHANGED || stripedIds.contains(postId)) {
+                continue;
+            }
+
+            if (idle) {
+                LikeCountDTO dto = mysqlCounts != null ? mysqlCounts.get(postId) : null;
+                long mysqlCount = dto != null && dto.getLikeCount() != null ? dto.getLikeCount() : 0L;
+                if (loaded && card != mysqlCount) {
+                    memberVsMySQLDrift.incrementAndGet();
+                    invalidateMembers(postId, card, mysqlCount);
+                }
+                if (count != mysqlCount) {
+                    countVsMySQLDrift.incrementAndGet();
+                    recordDrift(count - mysqlCount);
+                    repairCount(postId, count, mysqlCount, true);
+                }
+            } else if (loaded && count != card) {
+                countVsMemberDrift.incrementAndGet();
+                recordDrift(count - card);
+                repairCount(postId, count, card, false);
+            }
+        }
+    }
+
+    private void recordDrift(long drift) {
+        long abs = Math.abs(drift);
+        totalAbsDrift.addAndGet(abs);
+        maxAbsDrift.accumulateAndGet(abs, Math::max);
+    }
+
+    private void repairCount(Long postId, long observed, long target, boolean requireIdle) {
+        if (!repair) {
+            log.info("点赞计数不一致（未修复）: postId={}, redis={}, expected={}", postId, observed, target);
+            return;
+        }
+        List<String> keys = Arrays.asList(RedisConstant.POST_LIKE_COUNT_PREFIX + postId, pendingKey(postId),
+                postLikeCounterService.stripesKey(postId));
+        Long result = stringRedisTemplate.execute(REPAIR_SCRIPT, keys,
+                String.valueOf(observed), String.valueOf(target), requireIdle ? "1" : "0");
+        if (result != null && result == REPAIRED) {
+            repairedCounts.incrementAndGet();
+            log.warn("点赞计数已修复: postId={}, redis={}, repaired={}", postId, observed, target);
+        } else if (result == null || result != STRIPED) {
+            repairConflicts.incrementAndGet();
+        }
+    }
+
+    private void invalidateMembers(Long postId, long card, long mysqlCount) {
+        if (!repair) {
+            log.info("点赞用户不一致（未修复）: postId={}, redis={}, mysql={}", postId, card, mysqlCount);
+            return;
+        }
+        // 删除加载标记后点赞脚本和状态查询都会视为未加载，下次访问时从MySQL完整重建
+        Long result = stringRedisTemplate.execute(INVALIDATE_SCRIPT,
+                Arrays.asList(postLikeMemberService.loadedKey(postId), pendingKey(postId)));
+        if (result != null && result == REPAIRED) {
+            invalidatedMembers.incrementAndGet();
+            log.warn("点赞用户不一致，已标记重新加载: postId={}, redis={}, mysql={}", postId, card, mysqlCount);
+        } else {
+            repairConflicts.incrementAndGet();
+        }
+    }
+
+    private static String pendingKey(Long postId) {
+        return RedisConstant.POST_LIKE_PENDING_PREFIX + postId;
+    }
+}
@@ -0,0 +1,450 @@
+package com.trip.web.service;
+
+import com.trip.common.constant.RedisConstant;
+import com.trip.model.entity.PostLike;
+import com.trip.web.mapper.PostLikeMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 点赞数据写回服务（write-behind）
+ *
+ * 点赞接口只写Redis，变更记录由点赞脚本追加到 "post:like:stream"；
+ * 各节点以消费者组 "post-like-sync" 的不同消费者身份共同消费，按批（默认500条或每200ms）
+ * 合并同一 (postId,userId) 的多次切换后写入MySQL，写库成功才 XACK 并删除记录。
+ * 点赞脚本同时递增帖子的待写回记录数 "post:like:pending:{postId}"，确认时在同一脚本中递减，
+ * 对账据此只跳过有未写回变更的帖子。
+ *
+ * 可靠性:
+ * 1. 消费后未确认的记录留在 PEL 中，节点宕机后由其他节点按空闲时间 XCLAIM 接管
+ * 2. 写库时以Redis中的当前点赞状态为准（成员在变更之前已完整加载时），重放或乱序消费都得到相同结果；
+ *    成员在变更之后才从MySQL重置（重建、预热时变更尚未写回）时以变更记录为准，Redis由对账发现不一致后重新加载
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PostLikeWriteBehindService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PostLikeMapper postLikeMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final PostLikeMemberService postLikeMemberService;
+
+    private static final String STREAM_KEY = RedisConstant.POST_LIKE_STREAM_KEY;
+    private static final String GROUP = RedisConstant.POST_LIKE_STREAM_GROUP;
+
+    @Value("${post-like.write-behind.batch-size:500}")
+    private int batchSize;
+
+    // 单次调度最多处理的批次数，避免积压时长时间占用调度线程
+    @Value("${post-like.write-behind.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    // 待确认记录空闲超过该时间视为消费者失效，由其他节点接管
+    @Value("${post-like.write-behind.reclaim-idle-ms:30000}")
+    private long reclaimIdleMillis;
+
+    // 消费者名称 pid@hostname，同一节点重启后可以继续处理自己未确认的记录
+    private final String consumerName = ManagementFactory.getRuntimeMXBean().getName();
+
+    // 同一进程内串行消费，避免同一批次被重复处理
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    private static final DefaultRedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        ACK_SCRIPT.setLocation(new ClassPathResource("lua/post_like_stream_ack.lua"));
+        ACK_SCRIPT.setResultType(Long.class);
+    }
+
+    // 运行指标
+    private final AtomicLong appliedRecords = new AtomicLong();
+    private final AtomicLong reclaimedRecords = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile long lastApplyLatencyMillis;
+
+    @PostConstruct
+    public void init() {
+        createGroupIfAbsent();
+        drainLegacyQueue();
+    }
+
+    /**
+     * 定时消费变更流
+     */
+    @Scheduled(fixedDelayString = "${post-like.write-behind.interval-ms:200}")
+    public void scheduledDrain() {
+        drain(maxBatchesPerRun);
+    }
+
+    /**
+     * 定时处理待确认记录：重试本节点写库失败的记录，接管失效消费者的记录
+     */
+    @Scheduled(fixedDelayString = "${post-like.write-behind.reclaim-interval-ms:30000}")
+    public void reclaimPending() {
+        drainLock.lock();
+        try {
+            // 1. 本节点未确认的记录（上次写库失败或重启前未处理完）
+            List<MapRecord<String, Object, Object>> own = readGroup(ReadOffset.from("0"));
+            if (!own.isEmpty()) {
+                processRecords(own);
+            }
+
+            // 2. 其他消费者长时间未确认的记录
+            PendingMessages pending = stringRedisTemplate.opsForStream()
+                    .pending(STREAM_KEY, GROUP, Range.unbounded(), batchSize);
+            List<RecordId> staleIds = new ArrayList<>();
+            for (PendingMessage message : pending) {
+                if (!consumerName.equals(message.getConsumerName())
+                        && message.getElapsedTimeSinceLastDelivery().toMillis() >= reclaimIdleMillis) {
+                    staleIds.add(message.getId());
+                }
+            }
+            if (!staleIds.isEmpty()) {
+                List<MapRecord<String, Object, Object>> claimed = stringRedisTemplate.opsForStream().claim(
+                        STREAM_KEY, GROUP, consumerName, Duration.ofMillis(reclaimIdleMillis),
+                        staleIds.toArray(new RecordId[0]));
+                if (!claimed.isEmpty()) {
+                    reclaimedRecords.addAndGet(claimed.size());
+                    log.warn("接管失效消费者的点赞变更记录: 共{}条", claimed.size());
+                    processRecords(claimed);
+                }
+            }
+        } catch (Exception e) {
+            handleStreamError("处理待确认点赞变更记录失败", e);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * 消费全部积压的变更记录（手动同步、应用关闭时调用）
+     * @return 处理的变更记录数
+     */
+    public int drainAll() {
+        return drain(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 应用关闭前把已投递给本节点的变更写入MySQL
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        int processed = drainAll();
+        log.info("应用关闭，点赞变更已写回MySQL: 共{}条", processed);
+    }
+
+    /**
+     * 变更流积压与消费指标
+     */
+    public Map<String, Object> getStreamStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("consumer", consumerName);
+        try {
+            // 已确认的记录会被删除，流长度即尚未写回的记录数
+            Long length = stringRedisTemplate.opsForStream().size(STREAM_KEY);
+            stats.put("streamLength", length != null ? length : 0L);
+
+            PendingMessagesSummary summary = stringRedisTemplate.opsForStream().pending(STREAM_KEY, GROUP);
+            stats.put("pendingCount", summary != null ? summary.getTotalPendingMessages() : 0L);
+            stats.put("pendingByConsumer", summary != null ? summary.getPendingMessagesPerConsumer() : Collections.emptyMap());
+
+            // 最早一条未写回记录距今的时间即写回延迟
+            List<MapRecord<String, Object, Object>> oldest = stringRedisTemplate.opsForStream()
+                    .range(STREAM_KEY, Range.unbounded(), Limit.limit().count(1));
+            long lagMillis = oldest == null || oldest.isEmpty()
+                    ? 0L : Math.max(0L, System.currentTimeMillis() - oldest.get(0).getId().getTimestamp());
+            stats.put("lagMillis", lagMillis);
+        } catch (Exception e) {
+            log.error("获取点赞变更流统计失败: error={}", e.getMessage());
+        }
+        stats.put("appliedRecords", appliedRecords.get());
+        stats.put("reclaimedRecords", reclaimedRecords.get());
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("lastApplyLatencyMillis", lastApplyLatencyMillis);
+        return stats;
+    }
+
+    private int drain(int maxBatches) {
+        drainLock.lock();
+        try {
+            int processed = 0;
+            for (int i = 0; i < maxBatches; i++) {
+                List<MapRecord<String, Object, Object>> records = readGroup(ReadOffset.lastConsumed());
+                if (records.isEmpty()) {
+                    break;
+                }
+
+                if (!processRecords(records)) {
+                    // 写库失败，记录保留在PEL中，由 reclaimPending 稍后重试
+                    break;
+                }
+                processed += records.size();
+
+                if (records.size() < batchSize) {
+                    break;
+                }
+            }
+            if (processed > 0) {
+                log.debug("点赞变更写回MySQL完成: 共{}条", processed);
+            }
+            return processed;
+        } catch (Exception e) {
+            handleStreamError("消费点赞变更流失败", e);
+            return 0;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private List<MapRecord<String, Object, Object>> readGroup(ReadOffset offset) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                Consumer.from(GROUP, consumerName),
+                StreamReadOptions.empty().count(batchSize),
+                StreamOffset.create(STREAM_KEY, offset));
+        return records != null ? records : Collections.emptyList();
+    }
+
+    /**
+     * 写库成功后确认并删除记录
+     */
+    private boolean processRecords(List<MapRecord<String, Object, Object>> records) {
+        // 流中记录按ID递增排列，后出现的覆盖先出现的；changes 与 records 一一对应，无法解析的记录为 null
+        List<LikeChange> changes = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            LikeChange change = LikeChange.from(record.getValue(), record.getId().getTimestamp());
+            if (change == null) {
+                log.warn("忽略无法解析的点赞变更记录: id={}, value={}", record.getId(), record.getValue());
+            }
+            changes.add(change);
+        }
+
+        List<LikeChange> parsed = changes.stream().filter(Objects::nonNull).toList();
+        if (!parsed.isEmpty() && !applyBatch(parsed)) {
+            return false;
+        }
+
+        acknowledge(records, changes);
+
+        appliedRecords.addAndGet(records.size());
+        lastApplyLatencyMillis = Math.max(0L, System.currentTimeMillis() - records.get(records.size() - 1).getId().getTimestamp());
+        return true;
+    }
+
+    /**
+     * 一次脚本确认并删除记录，递减各帖子的待写回记录数
+     */
+    private void acknowledge(List<MapRecord<String, Object, Object>> records, List<LikeChange> changes) {
+        List<String> keys = new ArrayList<>();
+        keys.add(STREAM_KEY);
+        Map<Long, Integer> keyIndexes = new HashMap<>();
+        List<String> args = new ArrayList<>(records.size() * 2 + 1);
+        args.add(GROUP);
+        for (int i = 0; i < records.size(); i++) {
+            LikeChange change = changes.get(i);
+            int keyIndex = 0;
+            if (change != null) {
+                keyIndex = keyIndexes.computeIfAbsent(change.postId, postId -> {
+                    keys.add(RedisConstant.POST_LIKE_PENDING_PREFIX + postId);
+                    return keys.size();
+                });
+            }
+            args.add(records.get(i).getId().getValue());
+            args.add(String.valueOf(keyIndex));
+        }
+        stringRedisTemplate.execute(ACK_SCRIPT, keys, args.toArray());
+    }
+
+    /**
+     * 合并同一 (postId,userId) 的多次切换后批量写入MySQL
+     */
+    private boolean applyBatch(List<LikeChange> changes) {
+        Map<String, LikeChange> finalStates = new LinkedHashMap<>();
+        for (LikeChange change : changes) {
+            finalStates.put(change.postId + ":" + change.userId, change);
+        }
+        List<LikeChange> merged = resolveCurrentStates(new ArrayList<>(finalStates.values()));
+
+        List<PostLike> likes = new ArrayList<>();
+        List<PostLike> unlikes = new ArrayList<>();
+        for (LikeChange change : merged) {
+            PostLike postLike = new PostLike();
+            postLike.setPostId(change.postId);
+            postLike.setUserId(change.userId);
+            (change.liked ? likes : unlikes).add(postLike);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!likes.isEmpty()) {
+                    postLikeMapper.batchUpsertLikes(likes);
+                }
+                if (!unlikes.isEmpty()) {
+                    postLikeMapper.batchSoftDeleteLikes(unlikes);
+                }
+            });
+            log.debug("点赞变更批量写入MySQL: records={}, like={}, unlike={}", changes.size(), likes.size(), unlikes.size());
+            return true;
+        } catch (Exception e) {
+            failedBatches.incrementAndGet();
+            log.error("点赞变更批量写入MySQL失败: records={}, error={}", changes.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 以Redis中的当前点赞状态为准（一次pipeline查询），保证重放和多节点乱序消费的幂等性；
+     * 点赞用户成员未按当前存储模式完整加载，或在变更之后才重置（重置时读取的MySQL数据不含这条尚未写回的变更）时，
+     * Redis状态不可信，沿用变更记录中的状态
+     */
+    private List<LikeChange> resolveCurrentStates(List<LikeChange> changes) {
+        try {
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (LikeChange change : changes) {
+                    postLikeMemberService.queueMembershipCheck(conn, change.postId, change.userId);
+                }
+                return null;
+            });
+
+            List<LikeChange> resolved = new ArrayList<>(changes.size());
+            for (int i = 0; i < changes.size(); i++) {
+                LikeChange change = changes.get(i);
+                Object marker = results.get(2 * i);
+                boolean trusted = postLikeMemberService.isLoaded(marker)
+                        && change.time > postLikeMemberService.resetAt(marker);
+                boolean member = postLikeMemberService.isMember(results.get(2 * i + 1));
+                resolved.add(trusted ? new LikeChange(change.postId, change.userId, member, change.time) : change);
+            }
+            return resolved;
+        } catch (Exception e) {
+            log.warn("查询Redis点赞状态失败，按变更记录写回: error={}", e.getMessage());
+            return changes;
+        }
+    }
+
+    private void createGroupIfAbsent() {
+        try {
+            // 从头开始消费，升级前已写入流的记录也会被处理
+            stringRedisTemplate.opsForStream().createGroup(STREAM_KEY, ReadOffset.from("0-0"), GROUP);
+            log.info("已创建点赞变更流消费者组: stream={}, group={}", STREAM_KEY, GROUP);
+        } catch (Exception e) {
+            if (!causeContains(e, "BUSYGROUP")) {
+                log.error("创建点赞变更流消费者组失败: error={}", e.getMessage());
+            }
+        }
+    }
+
+    private void handleStreamError(String message, Exception e) {
+        if (causeContains(e, "NOGROUP")) {
+            // 流被删除（如清空Redis）后消费者组随之消失，重新创建
+            log.warn("{}: 消费者组不存在，重新创建", message);
+            createGroupIfAbsent();
+            return;
+        }
+        log.error("{}: error={}", message, e.getMessage());
+    }
+
+    private static boolean causeContains(Throwable e, String text) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 升级兼容：消费旧版 List 队列 "post:like:changes" 中遗留的记录（格式 postId:userId:LIKE|UNLIKE:timestamp）
+     */
+    private void drainLegacyQueue() {
+        try {
+            int processed = 0;
+            while (true) {
+                List<String> records = stringRedisTemplate.opsForList()
+                        .rightPop(RedisConstant.POST_LIKE_CHANGES_KEY, batchSize);
+                if (records == null || records.isEmpty()) {
+                    break;
+                }
+                List<LikeChange> changes = new ArrayList<>();
+                for (String record : records) {
+                    LikeChange change = LikeChange.fromLegacy(record);
+                    if (change != null) {
+                        changes.add(change);
+                    }
+                }
+                if (!changes.isEmpty() && !applyBatch(changes)) {
+                    List<String> reversed = new ArrayList<>(records);
+                    Collections.reverse(reversed);
+                    stringRedisTemplate.opsForList().rightPushAll(RedisConstant.POST_LIKE_CHANGES_KEY, reversed);
+                    break;
+                }
+                processed += records.size();
+            }
+            if (processed > 0) {
+                log.info("旧版点赞变更队列已写回MySQL: 共{}条", processed);
+            }
+        } catch (Exception e) {
+            log.error("消费旧版点赞变更队列失败: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 变更记录，流字段 postId / userId / action(LIKE|UNLIKE)，time 为记录ID的毫秒时间戳
+     */
+    private record LikeChange(Long postId, Long userId, boolean liked, long time) {
+
+        static LikeChange from(Map<Object, Object> value, long time) {
+            // 已被删除的记录在PEL中重新投递时没有字段
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            return of(value.get("postId"), value.get("userId"), value.get("action"), time);
+        }
+
+        /**
+         * 旧版队列记录产生于重置时间写入标记之前，仍以Redis状态为准
+         */
+        static LikeChange fromLegacy(String record) {
+            String[] parts = record.split(":");
+            return parts.length < 3 ? null : of(parts[0], parts[1], parts[2], Long.MAX_VALUE);
+        }
+
+        private static LikeChange of(Object postId, Object userId, Object action, long time) {
+            try {
+                if (postId == null || userId == null) {
+                    return null;
+                }
+                if ("LIKE".equals(action)) {
+                    return new LikeChange(Long.valueOf(postId.toString()), Long.valueOf(userId.toString()), true, time);
+                }
+                if ("UNLIKE".equals(action)) {
+                    return new LikeChange(Long.valueOf(postId.toString()), Long.valueOf(userId.toString()), false, time);
+                }
+                return null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
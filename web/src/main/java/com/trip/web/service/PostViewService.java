@@ -1,13 +1,46 @@
 package com.trip.web.service;
 
+import com.trip.common.redis.RedisScanUtil;
+import com.trip.model.entity.PostStats;
+import com.trip.web.mapper.PostStatsMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * 帖子浏览量服务
  * 使用Redis实现浏览量计数
+ *
+ * 去重方式由 post-view.dedup-mode 选择:
+ * 1. hll（默认）: 每个帖子每天一个 HyperLogLog "post:uv:{postId}:{yyyyMMdd}" 判断用户当天是否已浏览，
+ *    另有累计独立访客 HLL "post:uv:{postId}" 和原始浏览量 "post:pv:{postId}"，每次浏览一次脚本调用
+ * 2. key: 每个浏览用户一个 "post:user_view:{postId}:{userId}" 24小时标记key（旧方式），标记与计数在一次脚本调用中完成
+ * 两种方式的展示浏览量都是 "post:view:{postId}"，同一用户每天只计一次。
+ *
+ * post-view.buffered=true 时（仅 hll 方式），浏览只记入进程内缓冲（每个帖子一组 LongAdder 和待去重用户队列），
+ * 每秒在一次pipeline中为每个帖子执行一次脚本批量写入，应用关闭时写入剩余缓冲，请求路径不再访问Redis。
+ *
+ * 持久化: 浏览量变化的帖子记入 "post:view_dirty"，定时批量写入 MySQL post_stats（只增不减）；
+ * Redis中浏览量缺失时从 post_stats 加载（SET NX，不覆盖并发写入的值），缓存丢失后浏览量不会归零。
  */
 @Service
 @Slf4j
@@ -15,9 +48,60 @@ import org.springframework.stereotype.Service;
 public class PostViewService {
 
     private final StringRedisTemplate stringRedisTemplate;
+    private final PostStatsMapper postStatsMapper;
+    private final CommunityTrendingService communityTrendingService;
     
     private static final String VIEW_COUNT_PREFIX = "post:view:";
     private static final String USER_VIEW_PREFIX = "post:user_view:";
+    private static final String RAW_VIEW_PREFIX = "post:pv:";
+    private static final String UNIQUE_VIEWER_PREFIX = "post:uv:";
+    // 不能以 "post:view:" 开头，避免被按前缀清除浏览量时误删
+    private static final String VIEW_DIRTY_KEY = "post:view_dirty";
+
+    private static final String MODE_HLL = "hll";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int VIEW_KEY_COUNT = 5;
+    // key 去重方式下同一用户重复浏览不计数的时间
+    private static final long USER_VIEW_TTL_SECONDS = TimeUnit.HOURS.toSeconds(24);
+    // 浏览脚本返回值：浏览量未缓存，需要先从MySQL加载
+    private static final long COLD = -1L;
+
+    @Value("${post-view.dedup-mode:hll}")
+    private String dedupMode;
+
+    // 每天独立访客 HLL 的保留天数（用于按天 UV 统计）
+    @Value("${post-view.daily-uv-retention-days:7}")
+    private int dailyUvRetentionDays;
+
+    // 缓冲模式：浏览先记在进程内，定时批量写入Redis
+    @Value("${post-view.buffered:false}")
+    private boolean buffered;
+
+    // 缓冲空闲超过该时间后移除
+    @Value("${post-view.buffer-idle-ms:60000}")
+    private long bufferIdleMillis;
+
+    // 每次从待持久化集合取出的帖子数
+    @Value("${post-view.persist-batch-size:500}")
+    private int persistBatchSize;
+
+    // 单次持久化任务最多处理的批次数，剩余的留到下次
+    @Value("${post-view.persist-max-batches:20}")
+    private int persistMaxBatches;
+
+    private final ConcurrentHashMap<Long, ViewBuffer> viewBuffers = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RECORD_VIEW_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> RECORD_VIEW_KEY_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        RECORD_VIEW_SCRIPT.setLocation(new ClassPathResource("lua/post_view_record.lua"));
+        RECORD_VIEW_SCRIPT.setResultType(List.class);
+        RECORD_VIEW_KEY_SCRIPT.setLocation(new ClassPathResource("lua/post_view_record_key.lua"));
+        RECORD_VIEW_KEY_SCRIPT.setResultType(Long.class);
+    }
 
     /**
      * 增加帖子浏览量
@@ -26,28 +110,304 @@ public class PostViewService {
      * @return 当前浏览量
      */
     public Long incrementViewCount(Long postId, Long userId) {
-        String viewCountKey = VIEW_COUNT_PREFIX + postId;
-        
-        // 如果提供了用户ID，检查该用户是否已经浏览过
+        if (MODE_HLL.equalsIgnoreCase(dedupMode)) {
+            return buffered ? bufferView(postId, userId) : recordViewWithHll(postId, userId);
+        }
+
+        return recordViewWithKey(postId, userId);
+    }
+
+    /**
+     * key 去重方式记录浏览：用户标记（24小时内同一用户只计一次）、浏览量计数在一次脚本调用中完成，脚本直接返回浏览量
+     */
+    private Long recordViewWithKey(Long postId, Long userId) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(VIEW_COUNT_PREFIX + postId);
+        keys.add(VIEW_DIRTY_KEY);
         if (userId != null) {
-            String userViewKey = USER_VIEW_PREFIX + postId + ":" + userId;
-            Boolean hasViewed = stringRedisTemplate.hasKey(userViewKey);
-            
-            if (Boolean.TRUE.equals(hasViewed)) {
-                // 用户已经浏览过，不增加计数，直接返回当前计数
-                String count = stringRedisTemplate.opsForValue().get(viewCountKey);
-                return count != null ? Long.valueOf(count) : 0L;
-            }
-            
-            // 标记用户已浏览，设置24小时过期（防止同一用户短时间内重复计数）
-            stringRedisTemplate.opsForValue().set(userViewKey, "1", java.time.Duration.ofHours(24));
+            keys.add(USER_VIEW_PREFIX + postId + ":" + userId);
         }
-        
-        // 增加浏览计数
-        Long newCount = stringRedisTemplate.opsForValue().increment(viewCountKey);
-        log.info("帖子浏览量增加: postId={}, newCount={}", postId, newCount);
-        
-        return newCount;
+        Object[] args = {String.valueOf(postId), String.valueOf(USER_VIEW_TTL_SECONDS)};
+        Long newCount = stringRedisTemplate.execute(RECORD_VIEW_KEY_SCRIPT, keys, args);
+        if (newCount != null && newCount == COLD) {
+            // 浏览量未缓存，脚本未做任何修改：从MySQL加载后重试一次，避免从0开始计数
+            loadViewCounts(Collections.singletonList(postId));
+            newCount = stringRedisTemplate.execute(RECORD_VIEW_KEY_SCRIPT, keys, args);
+        }
+        log.debug("帖子浏览记录: postId={}, userId={}, viewCount={}", postId, userId, newCount);
+        return newCount != null && newCount >= 0 ? newCount : 0L;
+    }
+
+    /**
+     * HLL 去重方式记录浏览：原始浏览量、累计UV、当天UV和展示浏览量在一次脚本调用中完成
+     */
+    private Long recordViewWithHll(Long postId, Long userId) {
+        List<String> args = new ArrayList<>(5);
+        args.add("1");
+        args.add(userId == null ? "1" : "0");
+        args.add(dailyUvTtlSeconds());
+        args.add(String.valueOf(postId));
+        if (userId != null) {
+            args.add(String.valueOf(userId));
+        }
+        List<String> keys = viewKeys(postId, today());
+        List<Long> result = executeRecordScript(keys, args);
+        if (!result.isEmpty() && result.get(0) == COLD) {
+            // 脚本未做任何修改，加载浏览量后重试一次
+            loadViewCounts(Collections.singletonList(postId));
+            result = executeRecordScript(keys, args);
+        }
+        Long newCount = result.isEmpty() ? null : result.get(0);
+        if (result.size() > 1 && result.get(1) > 0) {
+            // 只有去重后计入的浏览参与热门榜
+            communityTrendingService.recordView(postId, result.get(1));
+        }
+        log.debug("帖子浏览记录: postId={}, userId={}, viewCount={}", postId, userId, newCount);
+        return newCount != null && newCount >= 0 ? newCount : 0L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> executeRecordScript(List<String> keys, List<String> args) {
+        List<Long> result = stringRedisTemplate.execute(RECORD_VIEW_SCRIPT, keys, args.toArray());
+        return result != null ? result : Collections.emptyList();
+    }
+
+    /**
+     * 缓冲模式记录浏览，只更新进程内计数
+     * @return 最近一次写入Redis后的浏览量加上尚未写入的匿名浏览（登录用户需去重，写入后才计入）
+     */
+    private Long bufferView(Long postId, Long userId) {
+        ViewBuffer buffer = viewBuffers.computeIfAbsent(postId, id -> new ViewBuffer());
+        buffer.raw.increment();
+        if (userId == null) {
+            buffer.anonymous.increment();
+        } else {
+            buffer.viewers.add(userId);
+        }
+        buffer.lastAccess = System.currentTimeMillis();
+
+        long known = buffer.lastKnownCount;
+        if (known < 0) {
+            // 本节点首次浏览该帖子，读取一次当前浏览量，之后由每次写入的脚本返回值刷新
+            known = getViewCount(postId);
+            buffer.lastKnownCount = known;
+        }
+        return known + buffer.anonymous.sum();
+    }
+
+    /**
+     * 将缓冲的浏览批量写入Redis：一次pipeline中为每个帖子执行一次脚本
+     */
+    @Scheduled(fixedDelayString = "${post-view.flush-interval-ms:1000}")
+    public void flushBufferedViews() {
+        if (viewBuffers.isEmpty() || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (buffered) {
+            // 等待正在进行的定时写入结束，再写入剩余缓冲
+            flushLock.lock();
+            try {
+                flushLocked();
+                log.info("应用关闭，已写入缓冲的浏览量");
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        persistDirtyViewCounts();
+    }
+
+    private void flushLocked() {
+        List<PendingViews> pending = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, ViewBuffer> entry : viewBuffers.entrySet()) {
+            Long postId = entry.getKey();
+            ViewBuffer buffer = entry.getValue();
+            // sumThenReset 不会丢失并发的计数，未计入本次的增量留到下次写入
+            long raw = buffer.raw.sumThenReset();
+            long anonymous = buffer.anonymous.sumThenReset();
+            Set<Long> viewers = new HashSet<>();
+            for (Long viewer; (viewer = buffer.viewers.poll()) != null; ) {
+                viewers.add(viewer);
+            }
+
+            if (raw == 0 && anonymous == 0 && viewers.isEmpty()) {
+                if (now - buffer.lastAccess > bufferIdleMillis && viewBuffers.remove(postId, buffer)) {
+                    // 移除前后有并发浏览写入了旧缓冲，放回新缓冲
+                    requeue(postId, buffer.raw.sumThenReset(), buffer.anonymous.sumThenReset(), buffer.viewers);
+                }
+                continue;
+            }
+            pending.add(new PendingViews(postId, buffer, raw, anonymous, viewers));
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        String day = today();
+        String ttl = dailyUvTtlSeconds();
+        String scriptText = RECORD_VIEW_SCRIPT.getScriptAsString();
+        String sha = RECORD_VIEW_SCRIPT.getSha1();
+        List<Object> results;
+        try {
+            results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                // 同一pipeline中先加载脚本，Redis重启清空脚本缓存后也不会出现 NOSCRIPT
+                conn.scriptLoad(scriptText);
+                for (PendingViews views : pending) {
+                    List<String> command = new ArrayList<>(viewKeys(views.postId(), day));
+                    command.add(String.valueOf(views.raw()));
+                    command.add(String.valueOf(views.anonymous()));
+                    command.add(ttl);
+                    command.add(String.valueOf(views.postId()));
+                    views.viewers().forEach(viewer -> command.add(String.valueOf(viewer)));
+                    conn.evalSha(sha, ReturnType.MULTI, VIEW_KEY_COUNT, command.toArray(new String[0]));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            RedisPipelineException pipelineError = findPipelineException(e);
+            if (pipelineError == null || pipelineError.getPipelineResult().size() != pending.size() + 1) {
+                // 连接级失败，无法知道哪些脚本已执行，全部放回缓冲下次重试
+                pending.forEach(views -> requeue(views.postId(), views.raw(), views.anonymous(), views.viewers()));
+                log.error("缓冲浏览量写入Redis失败，已放回缓冲: posts={}, error={}", pending.size(), e.getMessage());
+                return;
+            }
+            // 部分命令失败：只放回执行失败的帖子，已成功写入的不再重复计入
+            results = pipelineError.getPipelineResult();
+            log.warn("缓冲浏览量部分写入失败，失败的帖子已放回缓冲: posts={}, error={}", pending.size(), e.getMessage());
+        }
+
+        List<Long> coldPostIds = new ArrayList<>();
+        Map<Long, Long> addedViews = new HashMap<>();
+        int failed = 0;
+        for (int i = 0; i < pending.size(); i++) {
+            PendingViews views = pending.get(i);
+            Object reply = results.get(i + 1);
+            if (reply instanceof Exception) {
+                requeue(views.postId(), views.raw(), views.anonymous(), views.viewers());
+                failed++;
+                continue;
+            }
+            if (!(reply instanceof List<?> result) || result.isEmpty()
+                    || !(result.get(0) instanceof Number number)) {
+                continue;
+            }
+            if (result.size() > 1 && result.get(1) instanceof Number added && added.longValue() > 0) {
+                addedViews.put(views.postId(), added.longValue());
+            }
+            if (number.longValue() == COLD) {
+                // 浏览量未缓存，脚本未做修改：放回缓冲，加载后下次写入
+                requeue(views.postId(), views.raw(), views.anonymous(), views.viewers());
+                coldPostIds.add(views.postId());
+            } else {
+                views.buffer().lastKnownCount = number.longValue();
+            }
+        }
+        try {
+            if (!coldPostIds.isEmpty()) {
+                loadViewCounts(coldPostIds);
+            }
+            if (!addedViews.isEmpty()) {
+                communityTrendingService.recordViews(addedViews);
+            }
+        } catch (Exception e) {
+            // 浏览已写入Redis，不放回缓冲
+            log.warn("缓冲浏览量写入后处理失败: cold={}, error={}", coldPostIds.size(), e.getMessage());
+        }
+        log.debug("缓冲浏览量写入Redis: posts={}, cold={}, failed={}", pending.size(), coldPostIds.size(), failed);
+    }
+
+    private static RedisPipelineException findPipelineException(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof RedisPipelineException pipelineException) {
+                return pipelineException;
+            }
+        }
+        return null;
+    }
+
+    private void requeue(Long postId, long raw, long anonymous, Collection<Long> viewers) {
+        if (raw == 0 && anonymous == 0 && viewers.isEmpty()) {
+            return;
+        }
+        ViewBuffer buffer = viewBuffers.computeIfAbsent(postId, id -> new ViewBuffer());
+        buffer.raw.add(raw);
+        buffer.anonymous.add(anonymous);
+        buffer.viewers.addAll(viewers);
+    }
+
+    private List<String> viewKeys(Long postId, String day) {
+        return Arrays.asList(
+                VIEW_COUNT_PREFIX + postId,
+                RAW_VIEW_PREFIX + postId,
+                UNIQUE_VIEWER_PREFIX + postId,
+                UNIQUE_VIEWER_PREFIX + postId + ":" + day,
+                VIEW_DIRTY_KEY
+        );
+    }
+
+    private String today() {
+        return LocalDate.now().format(DAY_FORMAT);
+    }
+
+    private String dailyUvTtlSeconds() {
+        return String.valueOf(TimeUnit.DAYS.toSeconds(Math.max(dailyUvRetentionDays, 1)));
+    }
+
+    /**
+     * 获取帖子的浏览统计：展示浏览量、原始浏览量、累计和当天独立访客数（HLL 估算，误差约 0.81%）
+     * @param postId 帖子ID
+     * @return 统计信息
+     */
+    public Map<String, Object> getViewStats(Long postId) {
+        String today = LocalDate.now().format(DAY_FORMAT);
+        List<String> counts = stringRedisTemplate.opsForValue()
+                .multiGet(Arrays.asList(VIEW_COUNT_PREFIX + postId, RAW_VIEW_PREFIX + postId));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("postId", postId);
+        stats.put("viewCount", parseCount(counts != null ? counts.get(0) : null));
+        stats.put("rawViewCount", parseCount(counts != null ? counts.get(1) : null));
+        stats.put("uniqueViewers", stringRedisTemplate.opsForHyperLogLog().size(UNIQUE_VIEWER_PREFIX + postId));
+        stats.put("todayUniqueViewers", stringRedisTemplate.opsForHyperLogLog().size(UNIQUE_VIEWER_PREFIX + postId + ":" + today));
+        return stats;
+    }
+
+    /**
+     * 获取帖子某一天的独立访客数（保留天数内有效）
+     * @param postId 帖子ID
+     * @param day 日期
+     * @return 独立访客数（HLL 估算）
+     */
+    public Long getDailyUniqueViewers(Long postId, LocalDate day) {
+        return stringRedisTemplate.opsForHyperLogLog().size(UNIQUE_VIEWER_PREFIX + postId + ":" + day.format(DAY_FORMAT));
+    }
+
+    private static Long parseCount(String count) {
+        return count != null ? Long.valueOf(count) : 0L;
+    }
+
+    private record PendingViews(Long postId, ViewBuffer buffer, long raw, long anonymous, Set<Long> viewers) {
+    }
+
+    /**
+     * 单个帖子的浏览缓冲
+     */
+    private static final class ViewBuffer {
+        private final LongAdder raw = new LongAdder();
+        private final LongAdder anonymous = new LongAdder();
+        private final ConcurrentLinkedQueue<Long> viewers = new ConcurrentLinkedQueue<>();
+        private volatile long lastKnownCount = -1;
+        private volatile long lastAccess = System.currentTimeMillis();
     }
 
     /**
@@ -56,9 +416,7 @@ public class PostViewService {
      * @return 浏览量
      */
     public Long getViewCount(Long postId) {
-        String viewCountKey = VIEW_COUNT_PREFIX + postId;
-        String count = stringRedisTemplate.opsForValue().get(viewCountKey);
-        return count != null ? Long.valueOf(count) : 0L;
+        return getViewCounts(Collections.singletonList(postId)).getOrDefault(postId, 0L);
     }
 
     /**
@@ -69,6 +427,7 @@ public class PostViewService {
     public void setViewCount(Long postId, Long count) {
         String viewCountKey = VIEW_COUNT_PREFIX + postId;
         stringRedisTemplate.opsForValue().set(viewCountKey, String.valueOf(count));
+        stringRedisTemplate.opsForSet().add(VIEW_DIRTY_KEY, String.valueOf(postId));
         log.info("设置帖子浏览量: postId={}, count={}", postId, count);
     }
 
@@ -77,26 +436,129 @@ public class PostViewService {
      * @param postIds 帖子ID列表
      * @return 帖子ID到浏览量的映射
      */
-    public java.util.Map<Long, Long> getViewCounts(java.util.List<Long> postIds) {
-        java.util.Map<Long, Long> result = new java.util.HashMap<>();
+    public Map<Long, Long> getViewCounts(List<Long> postIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (postIds == null || postIds.isEmpty()) {
+            return result;
+        }
         
-        for (Long postId : postIds) {
-            Long count = getViewCount(postId);
-            result.put(postId, count);
+        // 一次 MGET 读取全部浏览量，未缓存的一次从MySQL加载
+        List<String> counts = stringRedisTemplate.opsForValue()
+                .multiGet(postIds.stream().map(id -> VIEW_COUNT_PREFIX + id).toList());
+        List<Long> missIds = new ArrayList<>();
+        for (int i = 0; i < postIds.size(); i++) {
+            String count = counts != null ? counts.get(i) : null;
+            if (count != null) {
+                result.put(postIds.get(i), Long.valueOf(count));
+            } else {
+                missIds.add(postIds.get(i));
+            }
+        }
+        if (!missIds.isEmpty()) {
+            result.putAll(loadViewCounts(missIds));
         }
         
         return result;
     }
 
+    /**
+     * 从MySQL加载浏览量并回填Redis（SET NX，已有值时不覆盖）
+     * @param postIds 帖子ID列表
+     * @return 帖子ID到浏览量的映射，MySQL没有记录的帖子为0
+     */
+    private Map<Long, Long> loadViewCounts(List<Long> postIds) {
+        List<Long> ids = postIds.stream().distinct().toList();
+        Map<Long, Long> result = new HashMap<>();
+        Map<Long, PostStats> stats;
+        try {
+            stats = postStatsMapper.selectViewCounts(ids);
+        } catch (Exception e) {
+            // MySQL不可用时不回填，避免把0写入Redis后覆盖已持久化的浏览量
+            log.error("从MySQL加载浏览量失败: postIds={}, error={}", ids, e.getMessage());
+            ids.forEach(id -> result.put(id, 0L));
+            return result;
+        }
+        for (Long id : ids) {
+            PostStats postStats = stats.get(id);
+            result.put(id, postStats != null && postStats.getViewCount() != null ? postStats.getViewCount() : 0L);
+        }
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            result.forEach((id, count) -> conn.setNX(VIEW_COUNT_PREFIX + id, String.valueOf(count)));
+            return null;
+        });
+        log.debug("从MySQL加载浏览量: posts={}", ids.size());
+        return result;
+    }
+
+    /**
+     * 将浏览量有变化的帖子批量写入MySQL
+     * 每批 SPOP 一组帖子ID、MGET 读取浏览量、一条 upsert 写入；写入失败的帖子ID放回集合下次重试。
+     * upsert 只增不减，多节点并发写入时旧值不会覆盖新值。
+     * @return 写入的帖子数
+     */
+    @Scheduled(fixedDelayString = "${post-view.persist-interval-ms:30000}",
+            initialDelayString = "${post-view.persist-initial-delay-ms:30000}")
+    public int persistDirtyViewCounts() {
+        int persisted = 0;
+        for (int batch = 0; batch < persistMaxBatches; batch++) {
+            List<String> members;
+            try {
+                members = stringRedisTemplate.opsForSet().pop(VIEW_DIRTY_KEY, persistBatchSize);
+            } catch (Exception e) {
+                log.warn("读取待持久化浏览量失败: error={}", e.getMessage());
+                break;
+            }
+            if (members == null || members.isEmpty()) {
+                break;
+            }
+            try {
+                List<String> counts = stringRedisTemplate.opsForValue()
+                        .multiGet(members.stream().map(id -> VIEW_COUNT_PREFIX + id).toList());
+                List<PostStats> stats = new ArrayList<>(members.size());
+                for (int i = 0; i < members.size(); i++) {
+                    String count = counts != null ? counts.get(i) : null;
+                    if (count == null) {
+                        // 浏览量已被清除，MySQL中保留最后一次写入的值
+                        continue;
+                    }
+                    PostStats postStats = new PostStats();
+                    postStats.setPostId(Long.valueOf(members.get(i)));
+                    postStats.setViewCount(Long.valueOf(count));
+                    stats.add(postStats);
+                }
+                if (!stats.isEmpty()) {
+                    postStatsMapper.batchUpsertViewCounts(stats);
+                }
+                persisted += stats.size();
+            } catch (Exception e) {
+                stringRedisTemplate.opsForSet().add(VIEW_DIRTY_KEY, members.toArray(new String[0]));
+                log.error("浏览量写入MySQL失败，已放回待持久化集合: posts={}, error={}", members.size(), e.getMessage());
+                break;
+            }
+            if (members.size() < persistBatchSize) {
+                break;
+            }
+        }
+        if (persisted > 0) {
+            log.info("浏览量已写入MySQL: posts={}", persisted);
+        }
+        return persisted;
+    }
+
     /**
      * 清除所有浏览量缓存（用于测试或维护）
      */
     public void clearAllViewCounts() {
+        // 先持久化，清除后读取时从MySQL恢复
+        persistDirtyViewCounts();
         try {
-            var keys = stringRedisTemplate.keys(VIEW_COUNT_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                stringRedisTemplate.delete(keys);
-                log.info("已清除所有浏览量缓存: 共{}个", keys.size());
+            for (String prefix : new String[]{VIEW_COUNT_PREFIX, RAW_VIEW_PREFIX, UNIQUE_VIEWER_PREFIX}) {
+                long deleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, prefix + "*");
+                if (deleted > 0) {
+                    log.info("已清除浏览量缓存: prefix={}, 共{}个", prefix, deleted);
+                }
             }
         } catch (Exception e) {
             log.error("清除浏览量缓存失败", e);
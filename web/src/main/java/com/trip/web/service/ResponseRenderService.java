@@ -0,0 +1,153 @@
+package com.trip.web.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.trip.common.result.RenderedJson;
+import com.trip.common.result.Result;
+import com.trip.model.vo.FeedPageVO;
+import com.trip.model.vo.PostDetailVO;
+import com.trip.model.vo.StatVO;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 响应预序列化服务
+ *
+ * 动态项和帖子详情来自两级缓存，L1 命中时多个请求拿到的是同一个对象。这里把这些共享对象（不含 stats）
+ * 序列化后的 JSON 字节按对象身份缓存（弱引用键）：缓存条目被替换或失效后旧对象不再被引用，对应的字节随之回收，
+ * 不需要单独失效。响应由 Result 外壳、缓存的字节片段和每次请求单独序列化的 stats 拼接，
+ * 命中时不再需要为整个动态页/详情做对象复制和完整的 Jackson 序列化。
+ * 片段来自应用的 ObjectMapper，输出与 Jackson 直接序列化 Result 一致（stats 字段位置不同）。
+ */
+@Service
+@RequiredArgsConstructor
+public class ResponseRenderService {
+
+    private static final String STATS_FIELD = "stats";
+    private static final String LIST_FIELD = "list";
+    private static final byte[] COMMA = {','};
+    private static final byte[] STATS_OPEN = ("{\"" + STATS_FIELD + "\":").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LIST_OPEN = {'['};
+    private static final byte[] OBJECT_CLOSE = {'}'};
+    private static final byte[] FEED_CLOSE = {']', '}', '}'};
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${response-render.enabled:true}")
+    private boolean enabled;
+
+    @Value("${response-render.max-bytes:16777216}")
+    private long maxBytes;
+
+    // 共享的缓存对象（按身份）→ 不含 stats 的 JSON
+    private Cache<Object, byte[]> fragments;
+    // {"code":200,"message":"成功","data":
+    private byte[] okPrefix;
+
+    @PostConstruct
+    public void init() {
+        fragments = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumWeight(maxBytes)
+                .<Object, byte[]>weigher((key, bytes) -> bytes.length)
+                .recordStats()
+                .build();
+        ObjectNode envelope = objectMapper.valueToTree(Result.ok());
+        envelope.remove("data");
+        okPrefix = openObject(write(envelope), "data");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 渲染动态页
+     * @param page 页码、游标等分页信息（list 忽略）
+     * @param items 缓存中共享的动态项（不会被修改）
+     * @param stats 与 items 一一对应的最新统计
+     */
+    public RenderedJson renderFeed(FeedPageVO page, List<FeedPageVO.FeedItemVO> items, List<StatVO> stats) {
+        ObjectNode meta = objectMapper.valueToTree(page);
+        meta.remove(LIST_FIELD);
+        RenderedJson json = new RenderedJson().append(okPrefix).append(openObject(write(meta), LIST_FIELD)).append(LIST_OPEN);
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                json.append(COMMA);
+            }
+            appendWithStats(json, fragment(items.get(i)), stats.get(i));
+        }
+        return json.append(FEED_CLOSE);
+    }
+
+    /**
+     * 渲染帖子详情
+     * @param detail 缓存中共享的详情（不会被修改）
+     */
+    public RenderedJson renderPostDetail(PostDetailVO detail, StatVO stats) {
+        RenderedJson json = new RenderedJson().append(okPrefix);
+        appendWithStats(json, fragment(detail), stats);
+        return json.append(OBJECT_CLOSE);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("fragments", fragments.estimatedSize());
+        stats.put("hits", fragments.stats().hitCount());
+        stats.put("misses", fragments.stats().missCount());
+        stats.put("evictions", fragments.stats().evictionCount());
+        return stats;
+    }
+
+    private byte[] fragment(Object shared) {
+        return fragments.get(shared, vo -> {
+            ObjectNode node = objectMapper.valueToTree(vo);
+            node.remove(STATS_FIELD);
+            return write(node);
+        });
+    }
+
+    /**
+     * 输出 {"stats":{...},其余字段}
+     */
+    private void appendWithStats(RenderedJson json, byte[] fragment, StatVO stats) {
+        json.append(STATS_OPEN).append(write(stats));
+        if (fragment.length > 2) {
+            json.append(COMMA).append(fragment, 1, fragment.length - 1);
+        } else {
+            json.append(OBJECT_CLOSE);
+        }
+    }
+
+    /**
+     * 把 {...} 改为 {...,"field": ，用于继续拼接该字段的值
+     */
+    private static byte[] openObject(byte[] object, String field) {
+        String suffix = (object.length > 2 ? "," : "") + "\"" + field + "\":";
+        byte[] tail = suffix.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[object.length - 1 + tail.length];
+        System.arraycopy(object, 0, result, 0, object.length - 1);
+        System.arraycopy(tail, 0, result, object.length - 1, tail.length);
+        return result;
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
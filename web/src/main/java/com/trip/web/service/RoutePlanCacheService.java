@@ -3,6 +3,9 @@ package com.trip.web.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheMetrics;
+import com.trip.common.redis.RedisScanUtil;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -11,6 +14,7 @@ import org.springframework.stereotype.Service;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 路径规划缓存服务
@@ -23,8 +27,17 @@ public class RoutePlanCacheService {
 
     private final StringRedisTemplate stringRedisTemplate;
     private final ObjectMapper objectMapper;
+    private final CacheMetrics cacheMetrics;
 
+    private static final String CACHE_NAME = "route-plan";
     private static final String CACHE_PREFIX = "route_plan:";
+
+    private CacheMetrics.Recorder metrics;
+
+    @PostConstruct
+    public void init() {
+        metrics = cacheMetrics.recorder(CACHE_NAME);
+    }
     
     /**
      * 生成缓存键
@@ -60,7 +73,9 @@ public class RoutePlanCacheService {
      */
     public String getRoutePlan(String cacheKey) {
         try {
+            long start = System.nanoTime();
             String cached = stringRedisTemplate.opsForValue().get(cacheKey);
+            metrics.recordGet(cacheKey, cached != null ? CacheMetrics.Tier.REMOTE : null, System.nanoTime() - start);
             if (cached != null) {
                 log.info("路径规划缓存命中: key={}", cacheKey);
                 return cached;
@@ -86,6 +101,7 @@ public class RoutePlanCacheService {
             
             // 存入缓存，设置永不过期
             stringRedisTemplate.opsForValue().set(cacheKey, routePlanJson);
+            metrics.recordPut(cacheKey);
             log.info("路径规划结果已缓存: key={}, size={} bytes", cacheKey, routePlanJson.length());
         } catch (JsonProcessingException e) {
             log.error("缓存路径规划失败，JSON格式无效: key={}, json={}", cacheKey, routePlanJson, e);
@@ -141,6 +157,7 @@ public class RoutePlanCacheService {
         try {
             Boolean deleted = stringRedisTemplate.delete(cacheKey);
             if (Boolean.TRUE.equals(deleted)) {
+                metrics.recordEvictions(1);
                 log.info("已清除路径规划缓存: key={}", cacheKey);
             } else {
                 log.debug("路径规划缓存不存在或清除失败: key={}", cacheKey);
@@ -155,10 +172,9 @@ public class RoutePlanCacheService {
      */
     public void evictAllRoutePlans() {
         try {
-            // 获取所有匹配的键
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
+            long deleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, CACHE_PREFIX + "*");
+            metrics.recordEvictions(deleted);
+            if (deleted > 0) {
                 log.info("已清除所有路径规划缓存: 共{}个", deleted);
             } else {
                 log.info("没有找到路径规划缓存");
@@ -169,18 +185,9 @@ public class RoutePlanCacheService {
     }
 
     /**
-     * 获取缓存统计信息
-     * 
-     * @return 缓存统计信息
+     * 获取缓存统计信息（命中、未命中、写入、删除次数和读取、加载耗时，见 CacheMetrics）
      */
-    public String getCacheStats() {
-        try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            int count = keys != null ? keys.size() : 0;
-            return String.format("路径规划缓存统计: 共%d个缓存项", count);
-        } catch (Exception e) {
-            log.error("获取缓存统计信息失败", e);
-            return "获取缓存统计信息失败: " + e.getMessage();
-        }
+    public Map<String, Object> getCacheStats() {
+        return metrics.getStats();
     }
 }
\ No newline at end of file
@@ -1,31 +1,51 @@
 package com.trip.web.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCache;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.model.vo.SearchPostVO;
 import com.trip.model.vo.SearchUserVO;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * 搜索缓存服务
- * 使用Redis缓存搜索结果，提高响应速度
+ * 使用两级缓存（本地 + Redis）缓存搜索结果，提高响应速度
+ *
+ * 搜索结果按其中的帖子/用户登记标签，帖子删除、行程或用户信息修改时按标签清除（见 TwoTierCacheManager.evictTags）。
+ * 新内容可能匹配已缓存的关键词，搜索是 LIKE '%keyword%'，能匹配到名称的关键词都是名称的子串，
+ * 因此只需删除名称各子串对应的缓存键，不需要清空所有搜索缓存。
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SearchCacheService {
 
-    private final StringRedisTemplate stringRedisTemplate;
-    private final ObjectMapper objectMapper;
+    private final TwoTierCacheManager twoTierCacheManager;
 
     private static final String POST_SEARCH_PREFIX = "search:post:";
     private static final String USER_SEARCH_PREFIX = "search:user:";
     private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(5); // 5分钟过期，搜索结果变化较快
+    private static final int MAX_SUBSTRING_TEXT_LENGTH = 64; // 超过该长度的名称子串过多，改为清空
+
+    private TwoTierCache<SearchPostVO> postSearchCache;
+    private TwoTierCache<SearchUserVO> userSearchCache;
+
+    @PostConstruct
+    public void init() {
+        postSearchCache = twoTierCacheManager.getCache("search-post", POST_SEARCH_PREFIX, CACHE_EXPIRATION, SearchPostVO.class);
+        userSearchCache = twoTierCacheManager.getCache("search-user", USER_SEARCH_PREFIX, CACHE_EXPIRATION, SearchUserVO.class);
+        postSearchCache.setTagger(result -> result.getResults().stream()
+                .map(item -> CacheTags.post(item.getPostId())).toList());
+        userSearchCache.setTagger(result -> result.getUsers().stream()
+                .map(user -> CacheTags.user(user.getUserId())).toList());
+    }
 
     /**
      * 生成帖子搜索缓存键
@@ -42,65 +62,41 @@ public class SearchCacheService {
     }
 
     /**
-     * 获取帖子搜索结果缓存
+     * 获取帖子搜索结果缓存（返回的对象是共享的，不能修改）
      */
     public SearchPostVO getPostSearchResult(String keyword) {
-        String cacheKey = generatePostSearchCacheKey(keyword);
-        try {
-            String cached = stringRedisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
-                log.info("帖子搜索缓存命中: keyword={}", keyword);
-                return objectMapper.readValue(cached, SearchPostVO.class);
-            }
-        } catch (JsonProcessingException e) {
-            log.error("解析帖子搜索缓存失败: keyword={}", keyword, e);
+        SearchPostVO cached = postSearchCache.get(generatePostSearchCacheKey(keyword));
+        if (cached != null) {
+            log.info("帖子搜索缓存命中: keyword={}", keyword);
         }
-        return null;
+        return cached;
     }
 
     /**
      * 缓存帖子搜索结果
      */
     public void cachePostSearchResult(String keyword, SearchPostVO searchResult) {
-        String cacheKey = generatePostSearchCacheKey(keyword);
-        try {
-            String jsonData = objectMapper.writeValueAsString(searchResult);
-            stringRedisTemplate.opsForValue().set(cacheKey, jsonData, CACHE_EXPIRATION);
-            log.info("帖子搜索结果已缓存: keyword={}, count={}", keyword, searchResult.getResults().size());
-        } catch (JsonProcessingException e) {
-            log.error("缓存帖子搜索结果失败: keyword={}", keyword, e);
-        }
+        postSearchCache.put(generatePostSearchCacheKey(keyword), searchResult);
+        log.info("帖子搜索结果已缓存: keyword={}, count={}", keyword, searchResult.getResults().size());
     }
 
     /**
-     * 获取用户搜索结果缓存
+     * 获取用户搜索结果缓存（返回的对象是共享的，不能修改）
      */
     public SearchUserVO getUserSearchResult(String keyword) {
-        String cacheKey = generateUserSearchCacheKey(keyword);
-        try {
-            String cached = stringRedisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
-                log.info("用户搜索缓存命中: keyword={}", keyword);
-                return objectMapper.readValue(cached, SearchUserVO.class);
-            }
-        } catch (JsonProcessingException e) {
-            log.error("解析用户搜索缓存失败: keyword={}", keyword, e);
+        SearchUserVO cached = userSearchCache.get(generateUserSearchCacheKey(keyword));
+        if (cached != null) {
+            log.info("用户搜索缓存命中: keyword={}", keyword);
         }
-        return null;
+        return cached;
     }
 
     /**
      * 缓存用户搜索结果
      */
     public void cacheUserSearchResult(String keyword, SearchUserVO searchResult) {
-        String cacheKey = generateUserSearchCacheKey(keyword);
-        try {
-            String jsonData = objectMapper.writeValueAsString(searchResult);
-            stringRedisTemplate.opsForValue().set(cacheKey, jsonData, CACHE_EXPIRATION);
-            log.info("用户搜索结果已缓存: keyword={}, count={}", keyword, searchResult.getUsers().size());
-        } catch (JsonProcessingException e) {
-            log.error("缓存用户搜索结果失败: keyword={}", keyword, e);
-        }
+        userSearchCache.put(generateUserSearchCacheKey(keyword), searchResult);
+        log.info("用户搜索结果已缓存: keyword={}, count={}", keyword, searchResult.getUsers().size());
     }
 
     /**
@@ -108,19 +104,7 @@ public class SearchCacheService {
      */
     public void evictAllSearchCache() {
         try {
-            var postKeys = stringRedisTemplate.keys(POST_SEARCH_PREFIX + "*");
-            var userKeys = stringRedisTemplate.keys(USER_SEARCH_PREFIX + "*");
-            
-            int deletedCount = 0;
-            if (postKeys != null && !postKeys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(postKeys);
-                deletedCount += deleted != null ? deleted.intValue() : 0;
-            }
-            if (userKeys != null && !userKeys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(userKeys);
-                deletedCount += deleted != null ? deleted.intValue() : 0;
-            }
-            
+            long deletedCount = postSearchCache.clear() + userSearchCache.clear();
             log.info("已清除所有搜索缓存: 共{}个", deletedCount);
         } catch (Exception e) {
             log.error("清除所有搜索缓存失败", e);
@@ -128,10 +112,44 @@ public class SearchCacheService {
     }
 
     /**
-     * 当有新帖子或用户信息变化时，清除搜索缓存
+     * 新帖子或行程改名后，清除关键词能匹配该行程名称的帖子搜索缓存
      */
-    public void evictSearchCacheOnDataChange() {
-        evictAllSearchCache();
-        log.info("数据变化，已清除所有搜索缓存");
+    public void evictPostSearchMatching(String tripName) {
+        evictMatching(postSearchCache, POST_SEARCH_PREFIX, tripName);
+    }
+
+    /**
+     * 用户改昵称后，清除关键词能匹配新昵称的用户搜索缓存
+     */
+    public void evictUserSearchMatching(String nickname) {
+        evictMatching(userSearchCache, USER_SEARCH_PREFIX, nickname);
+    }
+
+    private void evictMatching(TwoTierCache<?> cache, String prefix, String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        try {
+            String normalized = text.toLowerCase();
+            if (normalized.length() > MAX_SUBSTRING_TEXT_LENGTH) {
+                long deleted = cache.clear();
+                log.info("名称过长，已清空搜索缓存: cache={}, deleted={}", cache.getName(), deleted);
+                return;
+            }
+            Set<String> keys = new LinkedHashSet<>();
+            for (int i = 0; i < normalized.length(); i++) {
+                for (int j = i + 1; j <= normalized.length(); j++) {
+                    String keyword = normalized.substring(i, j).trim();
+                    if (!keyword.isEmpty()) {
+                        keys.add(prefix + keyword);
+                    }
+                }
+            }
+            long deleted = cache.evictAll(keys);
+            log.info("已清除匹配的搜索缓存: cache={}, text={}, candidates={}, deleted={}",
+                    cache.getName(), text, keys.size(), deleted);
+        } catch (Exception e) {
+            log.error("清除匹配的搜索缓存失败: cache={}, text={}", cache.getName(), text, e);
+        }
     }
-}
\ No newline at end of file
+}
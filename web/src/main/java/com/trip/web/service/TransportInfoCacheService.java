@@ -1,6 +1,9 @@
 package com.trip.web.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheMetrics;
+import com.trip.common.redis.RedisScanUtil;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -22,11 +25,20 @@ public class TransportInfoCacheService {
 
     private final StringRedisTemplate stringRedisTemplate;
     private final ObjectMapper objectMapper;
+    private final CacheMetrics cacheMetrics;
 
+    private static final String CACHE_NAME = "transport-info";
     private static final String CACHE_PREFIX = "transport_info:";
     // 缓存过期时间：30天（交通信息相对稳定，可以缓存较长时间）
     private static final long CACHE_EXPIRE_DAYS = 30;
 
+    private CacheMetrics.Recorder metrics;
+
+    @PostConstruct
+    public void init() {
+        metrics = cacheMetrics.recorder(CACHE_NAME);
+    }
+
     /**
      * 生成缓存键
      * 基于起点和终点的坐标以及交通方式生成唯一的缓存键
@@ -67,7 +79,9 @@ public class TransportInfoCacheService {
      */
     public Map<String, Object> getTransportInfo(String cacheKey) {
         try {
+            long start = System.nanoTime();
             String cached = stringRedisTemplate.opsForValue().get(cacheKey);
+            metrics.recordGet(cacheKey, cached != null ? CacheMetrics.Tier.REMOTE : null, System.nanoTime() - start);
             if (cached != null) {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> result = objectMapper.readValue(cached, Map.class);
@@ -99,6 +113,7 @@ public class TransportInfoCacheService {
                         CACHE_EXPIRE_DAYS, 
                         TimeUnit.DAYS
                     );
+                    metrics.recordPut(cacheKey);
                 } else {
                     log.warn("交通信息数据缺少必要字段，跳过缓存: key={}", cacheKey);
                 }
@@ -117,6 +132,7 @@ public class TransportInfoCacheService {
         try {
             Boolean deleted = stringRedisTemplate.delete(cacheKey);
             if (Boolean.TRUE.equals(deleted)) {
+                metrics.recordEvictions(1);
                 log.info("已清除交通信息缓存: key={}", cacheKey);
             }
         } catch (Exception e) {
@@ -129,9 +145,9 @@ public class TransportInfoCacheService {
      */
     public void evictAllTransportInfo() {
         try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
+            long deleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, CACHE_PREFIX + "*");
+            metrics.recordEvictions(deleted);
+            if (deleted > 0) {
                 log.info("已清除所有交通信息缓存: 共{}个", deleted);
             }
         } catch (Exception e) {
@@ -140,19 +156,10 @@ public class TransportInfoCacheService {
     }
 
     /**
-     * 获取缓存统计信息
-     * 
-     * @return 缓存统计信息
+     * 获取缓存统计信息（命中、未命中、写入、删除次数和读取、加载耗时，见 CacheMetrics）
      */
-    public String getCacheStats() {
-        try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            int count = keys != null ? keys.size() : 0;
-            return String.format("交通信息缓存统计: 共%d个缓存项", count);
-        } catch (Exception e) {
-            log.error("获取交通信息缓存统计信息失败", e);
-            return "获取缓存统计信息失败: " + e.getMessage();
-        }
+    public Map<String, Object> getCacheStats() {
+        return metrics.getStats();
     }
 }
 
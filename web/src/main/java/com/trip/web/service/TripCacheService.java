@@ -1,12 +1,13 @@
 package com.trip.web.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCache;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.model.vo.TripVO;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -14,19 +15,28 @@ import java.util.List;
 
 /**
  * 行程缓存服务
- * 使用Redis缓存用户行程列表，提高响应速度
+ * 使用两级缓存（本地 + Redis）缓存用户行程列表，提高响应速度
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TripCacheService {
 
-    private final StringRedisTemplate stringRedisTemplate;
-    private final ObjectMapper objectMapper;
+    private final TwoTierCacheManager twoTierCacheManager;
 
+    private static final String CACHE_NAME = "user-trips";
     private static final String CACHE_PREFIX = "trip:user:";
     private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(30); // 30分钟过期
 
+    private TwoTierCache<List<TripVO>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = twoTierCacheManager.getCache(CACHE_NAME, CACHE_PREFIX, CACHE_EXPIRATION,
+                new TypeReference<List<TripVO>>() {});
+        cache.setTagger(trips -> trips.stream().map(trip -> CacheTags.trip(trip.getTripId())).toList());
+    }
+
     /**
      * 生成缓存键
      */
@@ -35,43 +45,29 @@ public class TripCacheService {
     }
 
     /**
-     * 获取用户行程列表缓存
+     * 获取用户行程列表缓存（返回的列表是共享的，不能修改）
      */
     public List<TripVO> getUserTrips(Long userId) {
-        String cacheKey = generateCacheKey(userId);
-        try {
-            String cached = stringRedisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
-                log.info("用户行程缓存命中: userId={}", userId);
-                return objectMapper.readValue(cached, new TypeReference<List<TripVO>>() {});
-            }
-        } catch (JsonProcessingException e) {
-            log.error("解析用户行程缓存失败: userId={}", userId, e);
+        List<TripVO> cached = cache.get(generateCacheKey(userId));
+        if (cached != null) {
+            log.info("用户行程缓存命中: userId={}", userId);
         }
-        return null;
+        return cached;
     }
 
     /**
      * 缓存用户行程列表
      */
     public void cacheUserTrips(Long userId, List<TripVO> trips) {
-        String cacheKey = generateCacheKey(userId);
-        try {
-            String jsonData = objectMapper.writeValueAsString(trips);
-            stringRedisTemplate.opsForValue().set(cacheKey, jsonData, CACHE_EXPIRATION);
-            log.info("用户行程已缓存: userId={}, count={}", userId, trips.size());
-        } catch (JsonProcessingException e) {
-            log.error("缓存用户行程失败: userId={}", userId, e);
-        }
+        cache.put(generateCacheKey(userId), trips);
+        log.info("用户行程已缓存: userId={}, count={}", userId, trips.size());
     }
 
     /**
      * 清除用户行程缓存
      */
     public void evictUserTrips(Long userId) {
-        String cacheKey = generateCacheKey(userId);
-        Boolean deleted = stringRedisTemplate.delete(cacheKey);
-        if (Boolean.TRUE.equals(deleted)) {
+        if (cache.evict(generateCacheKey(userId))) {
             log.info("已清除用户行程缓存: userId={}", userId);
         }
     }
@@ -81,11 +77,8 @@ public class TripCacheService {
      */
     public void evictAllTrips() {
         try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
-                log.info("已清除所有行程缓存: 共{}个", deleted);
-            }
+            long deleted = cache.clear();
+            log.info("已清除所有行程缓存: 共{}个", deleted);
         } catch (Exception e) {
             log.error("清除所有行程缓存失败", e);
         }
@@ -102,4 +95,4 @@ public class TripCacheService {
             log.info("已清除行程相关用户缓存: tripId={}, userCount={}", tripId, userIds.size());
         }
     }
-}
\ No newline at end of file
+}
@@ -1,75 +1,76 @@
 package com.trip.web.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheEntry;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCache;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.model.vo.UserProfileVO;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 用户资料缓存服务
- * 使用Redis缓存用户资料信息，提高响应速度
+ * 使用两级缓存（本地 + Redis）缓存用户资料信息，提高响应速度
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserProfileCacheService {
 
-    private final StringRedisTemplate stringRedisTemplate;
-    private final ObjectMapper objectMapper;
+    private final TwoTierCacheManager twoTierCacheManager;
+    private final CacheLoaderService cacheLoaderService;
 
+    private static final String CACHE_NAME = "user-profile";
     private static final String CACHE_PREFIX = "user:profile:";
-    private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(20); // 20分钟过期
+    private static final Duration CACHE_EXPIRATION = Duration.ofMinutes(20); // 20分钟后软过期
+
+    private TwoTierCache<CacheEntry<UserProfileVO>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = twoTierCacheManager.getEntryCache(CACHE_NAME, CACHE_PREFIX, CACHE_EXPIRATION, UserProfileVO.class);
+        cache.setTagger(entry -> entry.absent() ? List.of() : tags(entry.value()));
+    }
 
     /**
-     * 生成缓存键
+     * 用户资料包含用户信息和该用户的帖子列表
      */
-    public String generateCacheKey(Long userId) {
-        return CACHE_PREFIX + userId;
+    private static List<String> tags(UserProfileVO profile) {
+        List<String> tags = new ArrayList<>();
+        tags.add(CacheTags.user(profile.getUserId()));
+        if (profile.getPosts() != null) {
+            profile.getPosts().forEach(post -> tags.add(CacheTags.post(post.getPostId())));
+        }
+        return tags;
     }
 
     /**
-     * 获取用户资料缓存
+     * 生成缓存键
      */
-    public UserProfileVO getUserProfile(Long userId) {
-        String cacheKey = generateCacheKey(userId);
-        try {
-            String cached = stringRedisTemplate.opsForValue().get(cacheKey);
-            if (cached != null) {
-                log.info("用户资料缓存命中: userId={}", userId);
-                return objectMapper.readValue(cached, UserProfileVO.class);
-            }
-        } catch (JsonProcessingException e) {
-            log.error("解析用户资料缓存失败: userId={}", userId, e);
-        }
-        return null;
+    public String generateCacheKey(Long userId) {
+        return CACHE_PREFIX + userId;
     }
 
     /**
-     * 缓存用户资料
+     * 获取用户资料，未命中时调用 loader 查询并缓存（返回的对象是共享的，不能修改）
+     * 用户不存在时短期缓存空值（见 CacheLoaderService）
      */
-    public void cacheUserProfile(Long userId, UserProfileVO userProfile) {
-        String cacheKey = generateCacheKey(userId);
-        try {
-            String jsonData = objectMapper.writeValueAsString(userProfile);
-            stringRedisTemplate.opsForValue().set(cacheKey, jsonData, CACHE_EXPIRATION);
-            log.info("用户资料已缓存: userId={}", userId);
-        } catch (JsonProcessingException e) {
-            log.error("缓存用户资料失败: userId={}", userId, e);
-        }
+    public UserProfileVO getUserProfile(Long userId, Supplier<UserProfileVO> loader) {
+        return cacheLoaderService.getCachingAbsent(cache, generateCacheKey(userId), CACHE_EXPIRATION, loader);
     }
 
     /**
      * 清除用户资料缓存
      */
     public void evictUserProfile(Long userId) {
-        String cacheKey = generateCacheKey(userId);
-        Boolean deleted = stringRedisTemplate.delete(cacheKey);
-        if (Boolean.TRUE.equals(deleted)) {
+        if (cache.evict(generateCacheKey(userId))) {
             log.info("已清除用户资料缓存: userId={}", userId);
         }
     }
@@ -79,13 +80,10 @@ public class UserProfileCacheService {
      */
     public void evictAllUserProfiles() {
         try {
-            var keys = stringRedisTemplate.keys(CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                Long deleted = stringRedisTemplate.delete(keys);
-                log.info("已清除所有用户资料缓存: 共{}个", deleted);
-            }
+            long deleted = cache.clear();
+            log.info("已清除所有用户资料缓存: 共{}个", deleted);
         } catch (Exception e) {
             log.error("清除所有用户资料缓存失败", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.trip.web.service;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ZSET 游标分页
+ * 游标为上一页最后一条的 (score, member)；同一分数的成员按 Redis 的字典序倒序排列，游标按同样规则跳过。
+ * 需要与MySQL的 id DESC 顺序衔接时，成员用 member(id) 补零到固定宽度，字典序即数值顺序（否则 "10" < "9"）。
+ */
+final class ZSetCursors {
+
+    // long 最大值的位数
+    private static final int ID_WIDTH = 19;
+
+    private ZSetCursors() {
+    }
+
+    /**
+     * 非负ID补零到固定宽度的成员
+     */
+    static String member(long id) {
+        String digits = Long.toString(id);
+        return digits.length() >= ID_WIDTH ? digits : "0".repeat(ID_WIDTH - digits.length()) + digits;
+    }
+
+    /**
+     * member(id) 生成的成员还原为ID
+     */
+    static long idOf(String member) {
+        return Long.parseLong(member);
+    }
+
+    /**
+     * 按分数倒序读取游标之后的条目：分数小于游标，或分数相同且成员字典序小于游标成员
+     */
+    static List<TypedTuple<String>> rangeAfter(StringRedisTemplate stringRedisTemplate, String key,
+                                               double cursorScore, String cursorMember, int size) {
+        List<TypedTuple<String>> result = new ArrayList<>(size);
+        long offset = 0;
+        while (result.size() < size) {
+            Set<TypedTuple<String>> batch = stringRedisTemplate.opsForZSet()
+                    .reverseRangeByScoreWithScores(key, Double.NEGATIVE_INFINITY, cursorScore, offset, size);
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            for (TypedTuple<String> entry : batch) {
+                boolean sameScore = entry.getScore() != null && entry.getScore() == cursorScore;
+                if (sameScore && entry.getValue().compareTo(cursorMember) >= 0) {
+                    continue;
+                }
+                if (result.size() < size) {
+                    result.add(entry);
+                }
+            }
+            offset += batch.size();
+            if (batch.size() < size) {
+                break;
+            }
+        }
+        return result;
+    }
+}
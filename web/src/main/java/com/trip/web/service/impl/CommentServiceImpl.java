@@ -8,6 +8,8 @@ import com.trip.model.entity.PostLike;
 import com.trip.model.vo.*;
 import com.trip.web.mapper.PostLikeMapper;
 import com.trip.web.service.CommentService;
+import com.trip.web.service.CommentsCacheService;
+import com.trip.web.service.CommunityTrendingService;
 import com.trip.web.mapper.CommentMapper;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -29,9 +31,19 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
     private CommentMapper commentMapper;
     @Resource
     private PostLikeMapper postLikeMapper;
+    @Resource
+    private CommunityTrendingService communityTrendingService;
+    @Resource
+    private CommentsCacheService commentsCacheService;
 
     @Override
     public CommentListVO getCommentsByPostId(Long postId) {
+        // 评论树在两级缓存中共享，返回后不能修改
+        CommentListVO cached = commentsCacheService.getComments(postId);
+        if (cached != null) {
+            return cached;
+        }
+
         //查询帖子涉及到到评论（不分父子评论）
         List<CommentVO> comments = commentMapper.getCommentsByPostId(postId);
         //对查询出来的commentVOS进行处理，区分父子评论
@@ -84,6 +96,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
         res.setPostId(postId);
         res.setComments(comments);
 
+        commentsCacheService.cacheComments(postId, res);
         return res;
     }
 
@@ -95,6 +108,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
         comment.setContent(dto.getContent());
         comment.setParentId(dto.getParentId());
         commentMapper.insert(comment);
+        communityTrendingService.recordComment(dto.getPostId());
+        commentsCacheService.evictCommentsOnChange(dto.getPostId());
 
         CommentCreatedVO res = new CommentCreatedVO();
         res.setCommentId(comment.getId());
@@ -105,6 +120,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
 
     @Override
     public CommentDeletedVO deleteComment(Long commentId) {
+        Comment target = commentMapper.selectById(commentId);
         List<Long> childCommentIds = commentMapper.getChildCommentIds(commentId);
 
         //修改逻辑为先删子评论、再删父评论，且删除子评论时要判断列表不为null、不为空
@@ -112,6 +128,9 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment>
             commentMapper.deleteBatchIds(childCommentIds);
         }
         commentMapper.deleteById(commentId);
+        if (target != null) {
+            commentsCacheService.evictCommentsOnChange(target.getPostId());
+        }
 
 
         CommentDeletedVO res = new CommentDeletedVO();
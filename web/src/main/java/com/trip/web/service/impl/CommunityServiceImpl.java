@@ -1,10 +1,11 @@
 package com.trip.web.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCacheManager;
+import com.trip.common.result.RenderedJson;
 import com.trip.model.dto.CommentCountDTO;
-import com.trip.model.dto.LikeCountDTO;
 import com.trip.model.dto.TripDTO;
 import com.trip.model.entity.*;
 import com.trip.model.vo.*;
@@ -14,12 +15,19 @@ import com.trip.web.service.*;
 import jakarta.annotation.Resource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -57,6 +65,8 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
     @Resource
     private final PostViewService postViewService;
     @Resource
+    private final PostLikeService postLikeService;
+    @Resource
     private final CommunityFeedCacheService communityFeedCacheService; // 添加社区缓存服务
     @Resource
     private final PostDetailCacheService postDetailCacheService; // 添加帖子详情缓存服务
@@ -64,139 +74,252 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
     private final UserProfileCacheService userProfileCacheService; // 添加用户资料缓存服务
     @Resource
     private final SearchCacheService searchCacheService; // 添加搜索缓存服务
+    @Resource
+    private final CommunityTimelineService communityTimelineService; // 社区时间线（帖子ID排序）
+    @Resource
+    private final ThreadPoolTaskExecutor queryExecutor; // 并行查询线程池
+    @Resource
+    private final CommunityTrendingService communityTrendingService; // 社区热门榜
+    @Resource
+    private final TwoTierCacheManager twoTierCacheManager; // 按标签清除缓存
+    @Resource
+    private final ResponseRenderService responseRenderService; // 预序列化响应
+    @Resource
+    private final IdBloomFilterService idBloomFilterService; // 帖子/用户ID布隆过滤器
 
     /**
-     * 1.首先对post表是分页查询数据的，查询到一系列的id as post_id。
+     * 1.从时间线 ZSET 按游标（或页码）取出本页的 post_id，按ID一次 MGET 读取已缓存的动态项，
+     *   只有未缓存的帖子执行下面 2-5 步的批量查询，结果按帖子单独缓存。
      * 2.根据这个post_id，关联查询trip表，得到id as trip_id、name as trip_name、region、start_date、end_date、description
      * 3.根据关系trip_user关系表，查询行程trip对应的user表中的用户，然后从user表中查询nickname。
      * 4.从graph_info中，需要查询两部分信息：
      *  4.1根据user表的id（user_id）查询用户头像的url（通过item_type = 1 and item_id = user_id进行过滤）
      *  4.2根据trip表的id（trip_Id）查询行程图片的url（通过item_type = 2 ans item_id = trip_id进行过滤）
      * 5.根据trip_id，查询comment表中count(*)的记录数 as commentCount
-     * 6.根据trip_id，查询post_like表中count(*)的记录数 as likeCount
-     * @param page
+     * 6.点赞数、浏览量每次从Redis批量读取最新值
+     * @param page 页码（未传游标时使用）
      * @param size
+     * @param cursor 上一页返回的游标，传入时忽略页码
+     * @param region 按行程地区筛选，为空时不筛选（读取该地区的时间线，动态项与总时间线共用缓存）
      * @return
      */
     @Override
-    public FeedPageVO getFeed(Integer page, Integer size) {
-        // 先尝试从缓存获取
-        FeedPageVO cachedFeed = communityFeedCacheService.getFeed(page, size);
-        if (cachedFeed != null) {
-            return cachedFeed;
-        }
-
-        // 缓存未命中，从数据库查询
-        log.info("社区动态缓存未命中，从数据库查询: page={}, size={}", page, size);
-
-        Page<Post> mpPage = new Page<>(page, size);
-
-        // 1. 分页查 post
-        Page<Post> postPage = this.page(
-                mpPage,
-                new LambdaQueryWrapper<Post>()
-                        .orderByDesc(Post::getCreateTime)
-        );
-
-        List<Post> records = postPage.getRecords();
-        if (records.isEmpty()) {
-            FeedPageVO empty = new FeedPageVO();
-            empty.setPage(page);
-            empty.setSize(size);
-            empty.setTotal(0L);
-            empty.setList(Collections.emptyList());
-            return empty;
-        }
-
-        // 收集 id
-        List<Long> postIds = records.stream().map(Post::getId).collect(Collectors.toList());
-        List<Long> tripIds = records.stream().map(Post::getTripId).collect(Collectors.toList());
+    public FeedPageVO getFeed(Integer page, Integer size, String cursor, String region) {
+        CommunityTimelineService.TimelinePage timeline = timelinePage(page, size, cursor, region);
+        FeedPageVO result = feedPage(page, size, timeline);
+        result.setList(getFeedItems(timeline.postIds()));
+        return result;
+    }
 
-        /*
-         * 2. 批量查 trip
-         */
-        Map<Long, Trip> tripMap = tripMapper.selectBatchIds(tripIds)
-                .stream().collect(Collectors.toMap(Trip::getId, t -> t));
+    @Override
+    public FeedPageVO getTrendingFeed(String cursor, Integer size) {
+        CommunityTrendingService.TrendingPage trending = communityTrendingService.page(cursor, size);
+        FeedPageVO result = trendingPage(size, trending);
+        result.setList(getFeedItems(trending.postIds()));
+        return result;
+    }
 
+    @Override
+    public RenderedJson renderFeed(Integer page, Integer size, String cursor, String region) {
+        CommunityTimelineService.TimelinePage timeline = timelinePage(page, size, cursor, region);
+        List<FeedPageVO.FeedItemVO> items = getSharedFeedItems(timeline.postIds());
+        return responseRenderService.renderFeed(feedPage(page, size, timeline), items, getFeedStats(items));
+    }
 
-        /*
-         * 3. 批量查 trip_user 中的创建者（role = 0）
-         */
-        List<TripUser> tripUsers = tripUserMapper.selectList(
-                new LambdaQueryWrapper<TripUser>()
-                        .in(TripUser::getTripId, tripIds)
-                        .eq(TripUser::getRole, 0)
-        );
+    @Override
+    public RenderedJson renderTrendingFeed(String cursor, Integer size) {
+        CommunityTrendingService.TrendingPage trending = communityTrendingService.page(cursor, size);
+        List<FeedPageVO.FeedItemVO> items = getSharedFeedItems(trending.postIds());
+        return responseRenderService.renderFeed(trendingPage(size, trending), items, getFeedStats(items));
+    }
 
-        Map<Long, Long> tripOwnerMap = tripUsers.stream()
-                .collect(Collectors.toMap(TripUser::getTripId, TripUser::getUserId));
+    private CommunityTimelineService.TimelinePage timelinePage(Integer page, Integer size, String cursor, String region) {
+        return cursor != null && !cursor.isBlank()
+                ? communityTimelineService.pageByCursor(region, cursor, size)
+                : communityTimelineService.pageByNumber(region, page, size);
+    }
 
+    private static FeedPageVO feedPage(Integer page, Integer size, CommunityTimelineService.TimelinePage timeline) {
+        FeedPageVO result = new FeedPageVO();
+        result.setPage(page);
+        result.setSize(size);
+        result.setTotal(timeline.total() >= 0 ? timeline.total() : null);
+        result.setNextCursor(timeline.nextCursor());
+        return result;
+    }
 
-        /*
-         * 4. 批量查 user 信息
-         */
-        List<Long> userIds = tripOwnerMap.values().stream().distinct().collect(Collectors.toList());
-        Map<Long, User> userMap = userMapper.selectBatchIds(userIds)
-                .stream().collect(Collectors.toMap(User::getId, u -> u));
+    private static FeedPageVO trendingPage(Integer size, CommunityTrendingService.TrendingPage trending) {
+        FeedPageVO result = new FeedPageVO();
+        result.setSize(size);
+        result.setNextCursor(trending.nextCursor());
+        return result;
+    }
 
+    /**
+     * 按帖子ID顺序获取动态项：缓存的动态项 + 未命中部分批量查询 + 最新点赞数、浏览量
+     */
+    private List<FeedPageVO.FeedItemVO> getFeedItems(List<Long> pagePostIds) {
+        List<FeedPageVO.FeedItemVO> items = getSharedFeedItems(pagePostIds);
+        List<StatVO> stats = getFeedStats(items);
+
+        // 缓存中的动态项在请求间共享，返回副本
+        List<FeedPageVO.FeedItemVO> list = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            FeedPageVO.FeedItemVO item = new FeedPageVO.FeedItemVO();
+            BeanUtils.copyProperties(items.get(i), item);
+            item.setStats(stats.get(i));
+            list.add(item);
+        }
+        return list;
+    }
 
-        /*
-         * 5. 批量查用户头像（item_type = 1）
-         */
-        Map<Long, String> avatarMap = graphInfoMapper.selectList(
-                        new LambdaQueryWrapper<GraphInfo>()
-                                .eq(GraphInfo::getItemType, 1)
-                                .in(GraphInfo::getItemId, userIds)
-                                .eq(GraphInfo::getIsDeleted, 0)
-                ).stream()
-                .collect(Collectors.toMap(
-                    GraphInfo::getItemId, 
-                    GraphInfo::getUrl,
-                    (existing, replacement) -> existing // 保留第一个
-                ));
+    /**
+     * 按帖子ID顺序获取动态项（缓存中共享的对象，不能修改）
+     * 每个帖子的动态项单独缓存，一次 MGET 读取，只有未缓存的帖子走数据库批量查询
+     */
+    private List<FeedPageVO.FeedItemVO> getSharedFeedItems(List<Long> pagePostIds) {
+        if (pagePostIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, FeedPageVO.FeedItemVO> items = communityFeedCacheService.getFeedItems(pagePostIds, missingIds -> {
+            log.info("社区动态项缓存未命中，从数据库查询: posts={}", missingIds.size());
+            return loadFeedItems(missingIds);
+        });
+        return pagePostIds.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
+    /**
+     * 动态项的统计（与 items 一一对应）：点赞数、浏览量变化频繁，不使用缓存中的值，各用一次 MGET 读取最新值覆盖
+     */
+    private List<StatVO> getFeedStats(List<FeedPageVO.FeedItemVO> items) {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> listedIds = items.stream().map(FeedPageVO.FeedItemVO::getPostId).collect(Collectors.toList());
+        CompletableFuture<Map<Long, Long>> likeCountFuture = supplyAsync(() -> postLikeService.getPostLikeCounts(listedIds));
+        Map<Long, Long> viewCountMap = postViewService.getViewCounts(listedIds);
+        Map<Long, Long> likeCountMap = join(likeCountFuture);
+        List<StatVO> stats = new ArrayList<>(items.size());
+        for (FeedPageVO.FeedItemVO item : items) {
+            StatVO stat = copyStats(item.getStats());
+            stat.setLikeCount(likeCountMap.getOrDefault(item.getPostId(), 0L).intValue());
+            stat.setViewCount(viewCountMap.getOrDefault(item.getPostId(), 0L).intValue());
+            stats.add(stat);
+        }
+        return stats;
+    }
 
-        /*
-         * 6. 批量查 Trip 封面图（item_type = 2）
-         */
-        Map<Long, List<String>> coverMap = graphInfoMapper.selectList(
-                        new LambdaQueryWrapper<GraphInfo>()
-                                .eq(GraphInfo::getItemType, 2)
-                                .in(GraphInfo::getItemId, tripIds)
-                ).stream()
-                .collect(Collectors.groupingBy(
-                        GraphInfo::getItemId,
-                        Collectors.mapping(GraphInfo::getUrl, Collectors.toList())
-                ));
+    private static StatVO copyStats(StatVO cached) {
+        StatVO stats = new StatVO();
+        if (cached != null) {
+            BeanUtils.copyProperties(cached, stats);
+        }
+        return stats;
+    }
 
+    /**
+     * 批量查询帖子的动态项（点赞数、浏览量由调用方填充）
+     * @param pagePostIds 帖子ID
+     * @return 帖子ID到动态项的映射，已删除或行程、作者缺失的帖子不在结果中
+     */
+    private Map<Long, FeedPageVO.FeedItemVO> loadFeedItems(List<Long> pagePostIds) {
+        Map<Long, FeedPageVO.FeedItemVO> result = new HashMap<>();
 
-        /*
-         * 7. 批量查 commentCount
-         */
-        Map<Long, CommentCountDTO> commentCountMap =
-                commentMapper.countByPostIds(postIds);
+        // 按ID批量查 post（已删除的帖子不会返回）
+        List<Post> records = postMapper.selectBatchIds(pagePostIds);
+        if (records.isEmpty()) {
+            return result;
+        }
 
+        // 收集 id
+        List<Long> postIds = records.stream().map(Post::getId).collect(Collectors.toList());
+        List<Long> tripIds = records.stream().map(Post::getTripId).distinct().collect(Collectors.toList());
 
         /*
-         * 8. 批量查 likeCount
+         * 2-7 相互独立的查询并行执行，总耗时约为最慢的一条链路：
+         * trip、封面图、评论数各自独立；trip_user 查到创建者后，user 和头像再并行查询
          */
-        Map<Long, LikeCountDTO> likeCountMap =
-                postLikeMapper.countByPostIds(postIds);
-
+        CompletableFuture<Map<Long, Trip>> tripFuture = supplyAsync(() ->
+                tripMapper.selectBatchIds(tripIds)
+                        .stream().collect(Collectors.toMap(Trip::getId, t -> t)));
+
+        // 3. 批量查 trip_user 中的创建者（role = 0）
+        CompletableFuture<Map<Long, Long>> tripOwnerFuture = supplyAsync(() ->
+                tripUserMapper.selectList(
+                        new LambdaQueryWrapper<TripUser>()
+                                .in(TripUser::getTripId, tripIds)
+                                .eq(TripUser::getRole, 0)
+                ).stream().collect(Collectors.toMap(TripUser::getTripId, TripUser::getUserId)));
+
+        CompletableFuture<List<Long>> userIdsFuture = tripOwnerFuture.thenApply(owners ->
+                owners.values().stream().distinct().collect(Collectors.toList()));
+
+        // 4. 批量查 user 信息
+        CompletableFuture<Map<Long, User>> userFuture = userIdsFuture.thenComposeAsync(userIds ->
+                userIds.isEmpty()
+                        ? CompletableFuture.completedFuture(Collections.<Long, User>emptyMap())
+                        : supplyAsync(() -> userMapper.selectBatchIds(userIds)
+                                .stream().collect(Collectors.toMap(User::getId, u -> u))),
+                queryExecutor);
+
+        // 5. 批量查用户头像（item_type = 1）
+        CompletableFuture<Map<Long, String>> avatarFuture = userIdsFuture.thenComposeAsync(userIds ->
+                userIds.isEmpty()
+                        ? CompletableFuture.completedFuture(Collections.<Long, String>emptyMap())
+                        : supplyAsync(() -> graphInfoMapper.selectList(
+                                        new LambdaQueryWrapper<GraphInfo>()
+                                                .eq(GraphInfo::getItemType, 1)
+                                                .in(GraphInfo::getItemId, userIds)
+                                                .eq(GraphInfo::getIsDeleted, 0)
+                                ).stream()
+                                .collect(Collectors.toMap(
+                                        GraphInfo::getItemId,
+                                        GraphInfo::getUrl,
+                                        (existing, replacement) -> existing // 保留第一个
+                                ))),
+                queryExecutor);
+
+        // 6. 批量查 Trip 封面图（item_type = 2）
+        CompletableFuture<Map<Long, List<String>>> coverFuture = supplyAsync(() ->
+                graphInfoMapper.selectList(
+                                new LambdaQueryWrapper<GraphInfo>()
+                                        .eq(GraphInfo::getItemType, 2)
+                                        .in(GraphInfo::getItemId, tripIds)
+                        ).stream()
+                        .collect(Collectors.groupingBy(
+                                GraphInfo::getItemId,
+                                Collectors.mapping(GraphInfo::getUrl, Collectors.toList())
+                        )));
+
+        // 7. 批量查 commentCount
+        CompletableFuture<Map<Long, CommentCountDTO>> commentCountFuture = supplyAsync(() ->
+                commentMapper.countByPostIds(postIds));
+
+        Map<Long, Trip> tripMap = join(tripFuture);
+        Map<Long, Long> tripOwnerMap = join(tripOwnerFuture);
+        Map<Long, User> userMap = join(userFuture);
+        Map<Long, String> avatarMap = join(avatarFuture);
+        Map<Long, List<String>> coverMap = join(coverFuture);
+        Map<Long, CommentCountDTO> commentCountMap = join(commentCountFuture);
 
         /*
-         * 9. 组装 VO
+         * 8. 组装 VO
          */
-        List<FeedPageVO.FeedItemVO> list = new ArrayList<>();
-
         for (Post post : records) {
 
             Long tripId = post.getTripId();
             Trip trip = tripMap.get(tripId);
 
             Long ownerId = tripOwnerMap.get(tripId);
+            User user = ownerId == null ? null : userMap.get(ownerId);
+            if (trip == null || user == null) {
+                // 行程或作者已删除的帖子不展示
+                continue;
+            }
             AuthorVO author = new AuthorVO();
-            User user = userMap.get(ownerId);
             author.setUserId(user.getId());
             author.setNickname(user.getNickname());
             author.setUsername(user.getUsername());
@@ -215,40 +338,52 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
 
             StatVO stats = new StatVO();
             CommentCountDTO commentCountDTO = commentCountMap.getOrDefault(post.getId(), null);
-            LikeCountDTO likeCountDTO = likeCountMap.getOrDefault(post.getId(), null);
             stats.setCommentCount(commentCountDTO == null ? 0 : commentCountDTO.getCommentCount());
-            stats.setLikeCount(likeCountDTO == null ? 0 : likeCountDTO.getLikeCount());
-            // 从Redis获取浏览量
-            Long viewCount = postViewService.getViewCount(post.getId());
-            stats.setViewCount(viewCount.intValue());
             vo.setStats(stats);
 
             vo.setCreateTime(post.getCreateTime());
 
-            list.add(vo);
+            result.put(post.getId(), vo);
         }
-
-        FeedPageVO result = new FeedPageVO();
-        result.setPage(page);
-        result.setSize(size);
-        result.setTotal(postPage.getTotal());
-        result.setList(list);
-
-        // 缓存查询结果
-        communityFeedCacheService.cacheFeed(page, size, result);
-
         return result;
     }
 
     @Override
     public PostDetailVO getPostDetail(Long postId) {
-        // 先尝试从缓存获取
-        PostDetailVO cachedDetail = postDetailCacheService.getPostDetail(postId);
-        if (cachedDetail != null) {
-            return cachedDetail;
+        if (!idBloomFilterService.mightContainPost(postId)) {
+            return null;
         }
+        // 缓存未命中（或后台刷新）时才从数据库查询
+        PostDetailVO cached = postDetailCacheService.getPostDetail(postId, () -> loadPostDetail(postId));
+        if (cached == null) {
+            return null;
+        }
+        // 缓存中的详情在请求间共享，调用方会覆盖浏览量，返回副本
+        PostDetailVO vo = new PostDetailVO();
+        BeanUtils.copyProperties(cached, vo);
+        vo.setStats(copyStats(cached.getStats()));
+        return vo;
+    }
 
-        // 缓存未命中，从数据库查询
+    @Override
+    public RenderedJson renderPostDetail(Long postId, Integer viewCount) {
+        if (!idBloomFilterService.mightContainPost(postId)) {
+            return null;
+        }
+        PostDetailVO cached = postDetailCacheService.getPostDetail(postId, () -> loadPostDetail(postId));
+        if (cached == null) {
+            return null;
+        }
+        StatVO stats = copyStats(cached.getStats());
+        if (cached.getStats() == null) {
+            stats.setLikeCount(0);
+            stats.setCommentCount(0);
+        }
+        stats.setViewCount(viewCount);
+        return responseRenderService.renderPostDetail(cached, stats);
+    }
+
+    private PostDetailVO loadPostDetail(Long postId) {
         log.info("帖子详情缓存未命中，从数据库查询: postId={}", postId);
 
         //数据查询
@@ -256,11 +391,20 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
         if(post == null){
             return null;
         }
-        Trip trip = tripMapper.selectById(post.getTripId());//从trip中获取一些数据
-        List<PlaceDayTypeVO> days = placeMapper.getPlaceDayTypeByTripId(trip.getId());
-        List<String> images = graphInfoMapper.getTripImagesByTripId(trip.getId());
-        AuthorVO author = tripUserMapper.getAuthorByTripId(trip.getId());
-        StatVO stats = postMapper.getStatsByPostId(post.getId(),author.getUserId());
+        // 以下查询只依赖 tripId，并行执行；统计需要作者ID，接在作者查询之后
+        Long tripId = post.getTripId();
+        CompletableFuture<Trip> tripFuture = supplyAsync(() -> tripMapper.selectById(tripId));//从trip中获取一些数据
+        CompletableFuture<List<PlaceDayTypeVO>> daysFuture = supplyAsync(() -> placeMapper.getPlaceDayTypeByTripId(tripId));
+        CompletableFuture<List<String>> imagesFuture = supplyAsync(() -> graphInfoMapper.getTripImagesByTripId(tripId));
+        CompletableFuture<AuthorVO> authorFuture = supplyAsync(() -> tripUserMapper.getAuthorByTripId(tripId));
+        CompletableFuture<StatVO> statsFuture = authorFuture.thenApplyAsync(author ->
+                postMapper.getStatsByPostId(postId, author.getUserId()), queryExecutor);
+
+        Trip trip = join(tripFuture);
+        List<PlaceDayTypeVO> days = join(daysFuture);
+        List<String> images = join(imagesFuture);
+        AuthorVO author = join(authorFuture);
+        StatVO stats = join(statsFuture);
 
         //数据封装
         PostDetailVO vo = new PostDetailVO();
@@ -278,10 +422,6 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
         vo.setAuthor(author);
         vo.setStats(stats);
         vo.setCreateTime(post.getCreateTime());
-
-        // 缓存查询结果
-        postDetailCacheService.cachePostDetail(postId, vo);
-
         return vo;
     }
 
@@ -294,7 +434,8 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
     @Override
     public PostCreatedVO createPost(Long userId,TripDTO dto) {
 //        如果dto中的行程已经被删除了，那么这里就不能再进行创建了
-        if (tripMapper.selectById(dto.getTripId()) == null) {
+        Trip trip = tripMapper.selectById(dto.getTripId());
+        if (trip == null) {
             return null;
         }
 
@@ -302,12 +443,14 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
         post.setUserId(userId);
         post.setTripId(dto.getTripId());
         postMapper.insert(post);
+        // 该ID之前可能被请求过并缓存了空值
+        postDetailCacheService.evictPostDetail(post.getId());
 
-        // 清除社区动态缓存，因为有新帖子
-        communityFeedCacheService.evictFeedOnPostChange();
+        // 加入时间线（已缓存的动态项不受影响，不需要清除）
+        communityTimelineService.addPost(post.getId(), post.getCreateTime(), trip.getRegion());
         
-        // 清除搜索缓存，因为有新帖子
-        searchCacheService.evictSearchCacheOnDataChange();
+        // 新帖子可能匹配已缓存的搜索关键词，只清除能匹配该行程名称的关键词
+        searchCacheService.evictPostSearchMatching(trip.getName());
 
         PostCreatedVO res = new PostCreatedVO();
         res.setPostId(post.getId());
@@ -316,18 +459,37 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
         return res;
     }
 
+    @Override
+    public void deletePost(Long postId) {
+        Post post = this.getById(postId);
+        Trip trip = post != null && post.getTripId() != null ? tripMapper.selectById(post.getTripId()) : null;
+        this.removeById(postId);
+
+        // 移出时间线（含所在地区的时间线），后续动态页不再包含该帖子
+        communityTimelineService.removePost(postId, trip != null ? trip.getRegion() : null);
+        communityTrendingService.removePost(postId);
+        communityFeedCacheService.evictFeedOnPostChange(postId);
+        postDetailCacheService.evictPostRelatedCache(postId);
+        // 按标签清除包含该帖子的其他缓存（搜索结果、作者资料、评论列表）
+        twoTierCacheManager.evictTag(CacheTags.post(postId));
+    }
+
     @Override
     public UserProfileVO getUserProfile(Long userId) {
-        // 先尝试从缓存获取
-        UserProfileVO cachedProfile = userProfileCacheService.getUserProfile(userId);
-        if (cachedProfile != null) {
-            return cachedProfile;
+        // 一定不存在的用户直接返回，不读缓存和数据库
+        if (!idBloomFilterService.mightContainUser(userId)) {
+            return null;
         }
+        return userProfileCacheService.getUserProfile(userId, () -> loadUserProfile(userId));
+    }
 
-        // 缓存未命中，从数据库查询
+    private UserProfileVO loadUserProfile(Long userId) {
         log.info("用户资料缓存未命中，从数据库查询: userId={}", userId);
 
         AuthorVO authorVO = userMapper.getAuthorVoByUserId(userId);
+        if (authorVO == null) {
+            return null;
+        }
         UserPostsStatsVO stats = userMapper.getUserPostStatsByUserId(userId);
         List<UserPostVO> posts = userMapper.getUserPostsByUserId(userId);
 
@@ -338,10 +500,6 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
         res.setAvatar(authorVO.getAvatar());
         res.setStats(stats);
         res.setPosts(posts);
-
-        // 缓存查询结果
-        userProfileCacheService.cacheUserProfile(userId, res);
-
         return res;
     }
 
@@ -407,5 +565,26 @@ public class CommunityServiceImpl extends ServiceImpl<PostMapper, Post> implemen
         log.info("用户 {} 已分享的行程ID: {}", userId, tripIds);
         return tripIds;
     }
-}
 
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, queryExecutor);
+    }
+
+    /**
+     * 等待并行查询结果，查询抛出的异常原样抛出，由全局异常处理
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.trip.model.entity.PostCollect;
 import com.trip.model.vo.PostCollectVO;
 import com.trip.web.mapper.PostCollectMapper;
+import com.trip.web.service.CommunityTrendingService;
 import com.trip.web.service.PostCollectService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +20,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class PostCollectServiceImpl implements PostCollectService {
     
     private final PostCollectMapper postCollectMapper;
+    private final CommunityTrendingService communityTrendingService;
     
     @Override
     @Transactional
@@ -60,6 +62,7 @@ public class PostCollectServiceImpl implements PostCollectService {
             result.setIsCollected(true);
             result.setCollectCount(postCollectMapper.getCollectCount(postId));
             result.setMessage("收藏成功");
+            communityTrendingService.recordCollect(postId, true);
             
         } catch (Exception e) {
             log.error("收藏帖子失败: postId={}, userId={}", postId, userId, e);
@@ -99,6 +102,7 @@ public class PostCollectServiceImpl implements PostCollectService {
             result.setIsCollected(false);
             result.setCollectCount(postCollectMapper.getCollectCount(postId));
             result.setMessage("取消收藏成功");
+            communityTrendingService.recordCollect(postId, false);
             
             log.info("用户 {} 取消收藏帖子 {}", userId, postId);
             
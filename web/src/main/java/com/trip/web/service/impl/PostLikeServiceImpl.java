@@ -1,29 +1,48 @@
 package com.trip.web.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.trip.common.constant.RedisConstant;
+import com.trip.common.redis.RedisScanUtil;
+import com.trip.model.dto.LikeCountDTO;
 import com.trip.model.entity.PostLike;
 import com.trip.model.vo.PostLikeVO;
 import com.trip.web.mapper.PostLikeMapper;
+import com.trip.web.service.CommunityTrendingService;
+import com.trip.web.service.PostLikeCounterService;
+import com.trip.web.service.PostLikeMemberService;
+import com.trip.web.service.PostLikeRebuildService;
 import com.trip.web.service.PostLikeService;
+import com.trip.web.service.PostLikeWriteBehindService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Redis-based 帖子点赞服务实现
  * 
  * Redis Key 设计:
  * 1. 点赞计数: "post:like:count:{postId}" -> 点赞总数
- * 2. 用户点赞状态: "post:like:user:{postId}" -> Set<userId> (使用Redis Set存储点赞用户ID)
- * 3. 点赞变更队列: "post:like:changes" -> List<changeRecord> (用于异步同步到MySQL)
+ * 2. 用户点赞状态: "post:like:user:{postId}" -> Set<userId>，或 bitmap 模式下的分片位图（见 PostLikeMemberService）
+ *    加载标记 "post:like:loaded:{postId}" 与当前存储模式一致时成员数据才完整；读路径只回填计数，不回填成员
+ *    热点帖子的计数增量按速率自动分片到 "post:like:count:{postId}:s:{i}"，读取时求和（见 PostLikeCounterService）
+ * 3. 点赞变更流: "post:like:stream" -> Stream{postId, userId, action} (消费者组 post-like-sync 负责写回MySQL)
+ * 
+ * 点赞/取消点赞通过 lua/post_like_toggle.lua 原子执行，一次网络往返完成
+ * 成员检查、集合变更、计数更新、续期和变更记录，避免 SISMEMBER 与 SADD 之间的竞态。
  * 
  * 一致性策略:
- * 1. 写入顺序: Redis -> MySQL (先更新缓存，再异步同步数据库)
+ * 1. 写入顺序: Redis -> MySQL (先更新缓存，变更由 PostLikeWriteBehindService 在后台批量写回数据库)
  * 2. 读取策略: 优先从Redis读取，Redis miss时从MySQL加载并缓存
  * 3. 失败兜底: Redis操作失败时直接操作MySQL，MySQL操作失败时回滚Redis
  * 4. 数据恢复: 提供从MySQL重建Redis缓存的方法
@@ -35,190 +54,135 @@ public class PostLikeServiceImpl implements PostLikeService {
 
     private final StringRedisTemplate stringRedisTemplate;
     private final PostLikeMapper postLikeMapper;
+    private final PostLikeWriteBehindService postLikeWriteBehindService;
+    private final PostLikeMemberService postLikeMemberService;
+    private final PostLikeCounterService postLikeCounterService;
+    private final PostLikeRebuildService postLikeRebuildService;
+    private final CommunityTrendingService communityTrendingService;
     
     // Redis Key 前缀
-    private static final String LIKE_COUNT_PREFIX = "post:like:count:";
-    private static final String LIKE_USER_PREFIX = "post:like:user:";
-    private static final String LIKE_CHANGES_KEY = "post:like:changes";
+    private static final String LIKE_COUNT_PREFIX = RedisConstant.POST_LIKE_COUNT_PREFIX;
+    private static final String LIKE_USER_PREFIX = RedisConstant.POST_LIKE_USER_PREFIX;
+    private static final String LIKE_LOADED_PREFIX = RedisConstant.POST_LIKE_LOADED_PREFIX;
+    private static final String LIKE_STREAM_KEY = RedisConstant.POST_LIKE_STREAM_KEY;
+
+    // 变更流近似最大长度，正常情况下消费后即删除，只在写回长时间中断时起保护作用
+    private static final long LIKE_STREAM_MAX_LEN = 1_000_000L;
     
     // 缓存过期时间（7天）
-    private static final long CACHE_EXPIRE_DAYS = 7;
+    private static final long CACHE_EXPIRE_DAYS = RedisConstant.POST_LIKE_CACHE_TTL_DAYS;
+
+    // 等待其他请求预热同一帖子的最长时间
+    private static final long WARM_LOCK_SECONDS = 10L;
+    private static final int WARM_WAIT_ATTEMPTS = 20;
+    private static final long WARM_WAIT_MILLIS = 50L;
+
+    // 点赞切换脚本返回的状态码
+    private static final long TOGGLE_COLD = -1L;
+    private static final long TOGGLE_UNCHANGED = 0L;
+
+    /**
+     * 点赞/取消点赞原子脚本：成员检查、集合变更、计数、续期、变更记录在一次EVALSHA中完成
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> LIKE_TOGGLE_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    static {
+        LIKE_TOGGLE_SCRIPT.setLocation(new ClassPathResource("lua/post_like_toggle.lua"));
+        LIKE_TOGGLE_SCRIPT.setResultType(List.class);
+    }
 
     @Override
-    @Transactional
     public PostLikeVO likePost(Long postId, Long userId) {
-        String countKey = LIKE_COUNT_PREFIX + postId;
-        String userSetKey = LIKE_USER_PREFIX + postId;
-        String userIdStr = String.valueOf(userId);
-        
-        try {
-            // 1. 检查Redis中用户是否已点赞
-            Boolean isAlreadyLiked = stringRedisTemplate.opsForSet().isMember(userSetKey, userIdStr);
-            
-            if (Boolean.TRUE.equals(isAlreadyLiked)) {
-                // 用户已点赞，返回当前状态
-                Long currentCount = getCurrentLikeCount(postId);
-                log.info("用户已点赞，返回当前状态: postId={}, userId={}, count={}", postId, userId, currentCount);
-                return new PostLikeVO().withLiked(true).withPostId(postId).withLikeCount(currentCount.intValue());
-            }
-            
-            // 2. Redis中添加点赞记录
-            Long addResult = stringRedisTemplate.opsForSet().add(userSetKey, userIdStr);
-            if (addResult != null && addResult > 0) {
-                // 3. 增加点赞计数
-                Long newCount = stringRedisTemplate.opsForValue().increment(countKey);
-                
-                // 4. 设置过期时间
-                stringRedisTemplate.expire(countKey, CACHE_EXPIRE_DAYS, TimeUnit.DAYS);
-                stringRedisTemplate.expire(userSetKey, CACHE_EXPIRE_DAYS, TimeUnit.DAYS);
-                
-                // 5. 记录变更到队列（用于异步同步MySQL）
-                recordLikeChange(postId, userId, "LIKE");
-                
-                // 6. 异步同步到MySQL
-                asyncSyncToMySQL(postId, userId, true);
-                
-                log.info("点赞成功: postId={}, userId={}, newCount={}", postId, userId, newCount);
-                return new PostLikeVO().withLiked(true).withPostId(postId).withLikeCount(newCount.intValue());
-            } else {
-                // Redis操作失败，降级到MySQL
-                log.warn("Redis点赞操作失败，降级到MySQL: postId={}, userId={}", postId, userId);
-                return fallbackToMySQL(postId, userId, true);
-            }
-            
-        } catch (Exception e) {
-            log.error("Redis点赞操作异常，降级到MySQL: postId={}, userId={}, error={}", postId, userId, e.getMessage());
-            return fallbackToMySQL(postId, userId, true);
-        }
+        return toggleLike(postId, userId, true);
     }
 
     @Override
-    @Transactional
     public PostLikeVO unlikePost(Long postId, Long userId) {
-        String countKey = LIKE_COUNT_PREFIX + postId;
-        String userSetKey = LIKE_USER_PREFIX + postId;
-        String userIdStr = String.valueOf(userId);
-        
-        try {
-            // 1. 检查Redis中用户是否已点赞
-            Boolean isLiked = stringRedisTemplate.opsForSet().isMember(userSetKey, userIdStr);
-            
-            if (Boolean.FALSE.equals(isLiked)) {
-                // 用户未点赞，返回当前状态
-                Long currentCount = getCurrentLikeCount(postId);
-                log.info("用户未点赞，返回当前状态: postId={}, userId={}, count={}", postId, userId, currentCount);
-                return new PostLikeVO().withLiked(false).withPostId(postId).withLikeCount(currentCount.intValue());
-            }
-            
-            // 2. Redis中移除点赞记录
-            Long removeResult = stringRedisTemplate.opsForSet().remove(userSetKey, userIdStr);
-            if (removeResult != null && removeResult > 0) {
-                // 3. 减少点赞计数
-                Long newCount = stringRedisTemplate.opsForValue().decrement(countKey);
-                // 确保计数不为负数
-                if (newCount < 0) {
-                    stringRedisTemplate.opsForValue().set(countKey, "0");
-                    newCount = 0L;
-                }
-                
-                // 4. 记录变更到队列
-                recordLikeChange(postId, userId, "UNLIKE");
-                
-                // 5. 异步同步到MySQL
-                asyncSyncToMySQL(postId, userId, false);
-                
-                log.info("取消点赞成功: postId={}, userId={}, newCount={}", postId, userId, newCount);
-                return new PostLikeVO().withLiked(false).withPostId(postId).withLikeCount(newCount.intValue());
-            } else {
-                // Redis操作失败，降级到MySQL
-                log.warn("Redis取消点赞操作失败，降级到MySQL: postId={}, userId={}", postId, userId);
-                return fallbackToMySQL(postId, userId, false);
-            }
-            
-        } catch (Exception e) {
-            log.error("Redis取消点赞操作异常，降级到MySQL: postId={}, userId={}, error={}", postId, userId, e.getMessage());
-            return fallbackToMySQL(postId, userId, false);
-        }
+        return toggleLike(postId, userId, false);
     }
 
     @Override
     public boolean isPostLikedByUser(Long postId, Long userId) {
-        String userSetKey = LIKE_USER_PREFIX + postId;
-        String userIdStr = String.valueOf(userId);
-        
-        try {
-            // 1. 先从Redis查询
-            Boolean isLiked = stringRedisTemplate.opsForSet().isMember(userSetKey, userIdStr);
-            if (isLiked != null) {
-                log.debug("Redis缓存命中 - 用户点赞状态: postId={}, userId={}, isLiked={}", postId, userId, isLiked);
-                return isLiked;
-            }
-            
-            // 2. Redis miss，从MySQL加载并缓存
-            log.debug("Redis缓存未命中，从MySQL加载点赞状态: postId={}, userId={}", postId, userId);
-            boolean mysqlResult = loadLikeStatusFromMySQL(postId, userId);
-            
-            // 3. 缓存到Redis
-            if (mysqlResult) {
-                stringRedisTemplate.opsForSet().add(userSetKey, userIdStr);
-                stringRedisTemplate.expire(userSetKey, CACHE_EXPIRE_DAYS, TimeUnit.DAYS);
-            }
-            
-            return mysqlResult;
-            
-        } catch (Exception e) {
-            log.error("查询点赞状态异常，降级到MySQL: postId={}, userId={}, error={}", postId, userId, e.getMessage());
-            return loadLikeStatusFromMySQL(postId, userId);
-        }
+        return Boolean.TRUE.equals(getUserLikeStatuses(Collections.singletonList(postId), userId).get(postId));
     }
 
     @Override
     public Long getPostLikeCount(Long postId) {
-        String countKey = LIKE_COUNT_PREFIX + postId;
-        
-        try {
-            // 1. 先从Redis查询
-            String countStr = stringRedisTemplate.opsForValue().get(countKey);
-            if (countStr != null) {
-                Long count = Long.valueOf(countStr);
-                log.debug("Redis缓存命中 - 帖子点赞数: postId={}, count={}", postId, count);
-                return count;
-            }
-            
-            // 2. Redis miss，从MySQL加载并缓存
-            log.debug("Redis缓存未命中，从MySQL加载点赞数: postId={}", postId);
-            Long mysqlCount = loadLikeCountFromMySQL(postId);
-            
-            // 3. 缓存到Redis
-            stringRedisTemplate.opsForValue().set(countKey, String.valueOf(mysqlCount), CACHE_EXPIRE_DAYS, TimeUnit.DAYS);
-            
-            return mysqlCount;
-            
-        } catch (Exception e) {
-            log.error("查询点赞数异常，降级到MySQL: postId={}, error={}", postId, e.getMessage());
-            return loadLikeCountFromMySQL(postId);
-        }
+        return getPostLikeCounts(Collections.singletonList(postId)).getOrDefault(postId, 0L);
     }
 
+    /**
+     * 一次 MGET 读取全部计数（含分片），未命中的帖子通过一条分组SQL加载，并在一个pipeline中回填
+     */
     @Override
     public Map<Long, Long> getPostLikeCounts(List<Long> postIds) {
         Map<Long, Long> result = new HashMap<>();
-        
-        for (Long postId : postIds) {
-            result.put(postId, getPostLikeCount(postId));
+        List<Long> ids = distinctIds(postIds);
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        List<Long> missIds = new ArrayList<>();
+        try {
+            result.putAll(postLikeCounterService.readCounts(ids));
+            ids.stream().filter(id -> !result.containsKey(id)).forEach(missIds::add);
+            log.debug("批量查询点赞数: total={}, miss={}", ids.size(), missIds.size());
+        } catch (Exception e) {
+            log.error("批量查询点赞数异常，降级到MySQL: postIds={}, error={}", ids, e.getMessage());
+            result.putAll(loadLikeCountsFromMySQL(ids, false));
+            return result;
+        }
+
+        if (!missIds.isEmpty()) {
+            result.putAll(loadLikeCountsFromMySQL(missIds, true));
         }
-        
         return result;
     }
 
+    /**
+     * 一次pipeline查询加载标记和成员（SISMEMBER 或 GETBIT），成员未加载的帖子通过一条SQL查询点赞状态
+     */
     @Override
     public Map<Long, Boolean> getUserLikeStatuses(List<Long> postIds, Long userId) {
         Map<Long, Boolean> result = new HashMap<>();
-        
-        for (Long postId : postIds) {
-            result.put(postId, isPostLikedByUser(postId, userId));
+        List<Long> ids = distinctIds(postIds);
+        if (ids.isEmpty()) {
+            return result;
+        }
+        if (userId == null) {
+            ids.forEach(id -> result.put(id, false));
+            return result;
+        }
+
+        List<Long> missIds = new ArrayList<>();
+        try {
+            List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (Long postId : ids) {
+                    postLikeMemberService.queueMembershipCheck(conn, postId, userId);
+                }
+                return null;
+            });
+            for (int i = 0; i < ids.size(); i++) {
+                if (postLikeMemberService.isLoaded(replies.get(2 * i))) {
+                    result.put(ids.get(i), postLikeMemberService.isMember(replies.get(2 * i + 1)));
+                } else {
+                    missIds.add(ids.get(i));
+                }
+            }
+            log.debug("批量查询点赞状态: userId={}, total={}, miss={}", userId, ids.size(), missIds.size());
+        } catch (Exception e) {
+            log.error("批量查询点赞状态异常，降级到MySQL: userId={}, error={}", userId, e.getMessage());
+            result.clear();
+            missIds = ids;
+        }
+
+        if (!missIds.isEmpty()) {
+            result.putAll(loadLikeStatusesFromMySQL(missIds, userId));
         }
-        
         return result;
     }
 
@@ -229,23 +193,9 @@ public class PostLikeServiceImpl implements PostLikeService {
                 // 同步单个帖子
                 syncSinglePostFromMySQL(postId);
             } else {
-                // 同步所有帖子（分页处理，避免内存溢出）
-                int pageSize = 1000;
-                int offset = 0;
-                
-                while (true) {
-                    List<Long> postIds = postLikeMapper.getDistinctPostIds(offset, pageSize);
-                    if (postIds.isEmpty()) {
-                        break;
-                    }
-                    
-                    for (Long pid : postIds) {
-                        syncSinglePostFromMySQL(pid);
-                    }
-                    
-                    offset += pageSize;
-                    log.info("已同步{}个帖子的点赞数据到Redis", offset);
-                }
+                // 同步所有帖子（键集分页顺序读取，线程池批量pipeline写入）
+                Map<String, Object> progress = postLikeRebuildService.rebuild();
+                log.info("全量重建点赞缓存完成: {}", progress);
             }
             
             log.info("点赞数据同步完成: postId={}", postId);
@@ -257,22 +207,10 @@ public class PostLikeServiceImpl implements PostLikeService {
 
     @Override
     public void syncLikeDataToMySQL() {
-        // 这个方法用于定期将Redis中的变更同步到MySQL
-        // 可以通过定时任务调用，或者在应用关闭时调用
+        // 变更队列由 PostLikeWriteBehindService 在后台持续消费，这里立即消费全部积压记录
         try {
-            // 处理变更队列中的记录
-            while (true) {
-                String changeRecord = stringRedisTemplate.opsForList().rightPop(LIKE_CHANGES_KEY);
-                if (changeRecord == null) {
-                    break;
-                }
-                
-                // 解析变更记录并同步到MySQL
-                processLikeChange(changeRecord);
-            }
-            
-            log.info("点赞数据同步到MySQL完成");
-            
+            int processed = postLikeWriteBehindService.drainAll();
+            log.info("点赞数据同步到MySQL完成: 共{}条变更", processed);
         } catch (Exception e) {
             log.error("同步点赞数据到MySQL失败: error={}", e.getMessage());
         }
@@ -281,22 +219,23 @@ public class PostLikeServiceImpl implements PostLikeService {
     @Override
     public void clearLikeCache() {
         try {
-            // 清除点赞计数缓存
-            Set<String> countKeys = stringRedisTemplate.keys(LIKE_COUNT_PREFIX + "*");
-            if (countKeys != null && !countKeys.isEmpty()) {
-                stringRedisTemplate.delete(countKeys);
-                log.info("已清除点赞计数缓存: 共{}个", countKeys.size());
-            }
-            
+            // 变更流中是尚未写回MySQL的数据，不能删除，清除缓存前先全部写回
+            postLikeWriteBehindService.drainAll();
+
+            // 清除点赞计数缓存（SCAN 分批删除，不阻塞 Redis）
+            long countDeleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, LIKE_COUNT_PREFIX + "*");
+            log.info("已清除点赞计数缓存: 共{}个", countDeleted);
+
+            // 先清除加载标记，避免点赞脚本在集合删除后仍认为缓存完整
+            RedisScanUtil.deleteByPattern(stringRedisTemplate, LIKE_LOADED_PREFIX + "*");
+
             // 清除用户点赞状态缓存
-            Set<String> userKeys = stringRedisTemplate.keys(LIKE_USER_PREFIX + "*");
-            if (userKeys != null && !userKeys.isEmpty()) {
-                stringRedisTemplate.delete(userKeys);
-                log.info("已清除用户点赞状态缓存: 共{}个", userKeys.size());
-            }
-            
-            // 清除变更队列
-            stringRedisTemplate.delete(LIKE_CHANGES_KEY);
+            long userDeleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, LIKE_USER_PREFIX + "*");
+            log.info("已清除用户点赞状态缓存: 共{}个", userDeleted);
+
+            // 清除 bitmap 模式的分片位图及分片索引
+            long bitmapDeleted = RedisScanUtil.deleteByPattern(stringRedisTemplate, RedisConstant.POST_LIKE_BITMAP_PREFIX + "*");
+            log.info("已清除点赞位图缓存: 共{}个", bitmapDeleted);
             
         } catch (Exception e) {
             log.error("清除点赞缓存失败", e);
@@ -306,62 +245,78 @@ public class PostLikeServiceImpl implements PostLikeService {
     // ========== 私有辅助方法 ==========
 
     /**
-     * 获取当前点赞数（优先从Redis，失败时从MySQL）
+     * 通过Lua脚本原子地完成点赞/取消点赞（一次网络往返）
      */
-    private Long getCurrentLikeCount(Long postId) {
+    private PostLikeVO toggleLike(Long postId, Long userId, boolean isLike) {
+        String action = isLike ? "LIKE" : "UNLIKE";
         try {
-            return getPostLikeCount(postId);
-        } catch (Exception e) {
-            log.error("获取点赞数失败: postId={}", postId, e);
-            return 0L;
-        }
-    }
+            List<Long> result = executeToggleScript(postId, userId, action);
+            if (result != null && !result.isEmpty() && result.get(0) == TOGGLE_COLD) {
+                // 计数或点赞用户集合未预热（首次访问或已过期），先从MySQL预热再重试，避免在不完整的缓存上计数
+                log.debug("点赞计数缓存未命中，从MySQL预热: postId={}", postId);
+                warmColdPost(postId);
+                result = executeToggleScript(postId, userId, action);
+            }
+
+            if (result == null || result.size() < 2 || result.get(0) == TOGGLE_COLD) {
+                // Redis操作失败，降级到MySQL
+                log.warn("Redis点赞脚本执行失败，降级到MySQL: postId={}, userId={}, action={}", postId, userId, action);
+                return fallbackToMySQL(postId, userId, isLike);
+            }
+
+            boolean changed = result.get(0) != TOGGLE_UNCHANGED;
+            long count = result.get(1);
+            if (result.size() > 2 && result.get(2) == 1L) {
+                // 热点帖子：脚本只变更成员，计数增量写入随机分片
+                count = postLikeCounterService.applyStriped(postId, changed ? (isLike ? 1 : -1) : 0);
+            }
+            if (changed) {
+                postLikeCounterService.recordChange(postId);
+            }
+            if (!changed) {
+                log.info("点赞状态未变化，返回当前状态: postId={}, userId={}, action={}, count={}", postId, userId, action, count);
+                return new PostLikeVO().withLiked(isLike).withPostId(postId).withLikeCount((int) count);
+            }
+
+            log.info("点赞状态变更成功: postId={}, userId={}, action={}, newCount={}", postId, userId, action, count);
+            communityTrendingService.recordLike(postId, isLike);
+            return new PostLikeVO().withLiked(isLike).withPostId(postId).withLikeCount((int) count);
 
-    /**
-     * 记录点赞变更到队列
-     */
-    private void recordLikeChange(Long postId, Long userId, String action) {
-        try {
-            String changeRecord = String.format("%d:%d:%s:%d", postId, userId, action, System.currentTimeMillis());
-            stringRedisTemplate.opsForList().leftPush(LIKE_CHANGES_KEY, changeRecord);
         } catch (Exception e) {
-            log.error("记录点赞变更失败: postId={}, userId={}, action={}", postId, userId, action, e);
+            log.error("Redis点赞操作异常，降级到MySQL: postId={}, userId={}, action={}, error={}", postId, userId, action, e.getMessage());
+            return fallbackToMySQL(postId, userId, isLike);
         }
     }
 
     /**
-     * 异步同步到MySQL
+     * 执行点赞切换脚本，返回 {status, count, striped}
      */
-    private void asyncSyncToMySQL(Long postId, Long userId, boolean isLike) {
-        // 这里可以使用异步任务或消息队列
-        // 为了简化，这里直接同步执行
-        try {
-            if (isLike) {
-                // 检查是否已存在
-                PostLike existingLike = postLikeMapper.selectOne(
-                    new LambdaQueryWrapper<PostLike>()
-                        .eq(PostLike::getPostId, postId)
-                        .eq(PostLike::getUserId, userId)
-                );
-                
-                if (existingLike == null) {
-                    PostLike postLike = new PostLike();
-                    postLike.setPostId(postId);
-                    postLike.setUserId(userId);
-                    postLikeMapper.insert(postLike);
-                    log.debug("MySQL点赞记录插入成功: postId={}, userId={}", postId, userId);
-                }
-            } else {
-                int deletedCount = postLikeMapper.delete(
-                    new LambdaQueryWrapper<PostLike>()
-                        .eq(PostLike::getPostId, postId)
-                        .eq(PostLike::getUserId, userId)
-                );
-                log.debug("MySQL点赞记录删除成功: postId={}, userId={}, deletedCount={}", postId, userId, deletedCount);
-            }
-        } catch (Exception e) {
-            log.error("异步同步到MySQL失败: postId={}, userId={}, isLike={}, error={}", postId, userId, isLike, e.getMessage());
-        }
+    @SuppressWarnings("unchecked")
+    private List<Long> executeToggleScript(Long postId, Long userId, String action) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                String.valueOf(userId),
+                action,
+                String.valueOf(TimeUnit.DAYS.toSeconds(CACHE_EXPIRE_DAYS)),
+                String.valueOf(postId),
+                String.valueOf(LIKE_STREAM_MAX_LEN),
+                postLikeMemberService.getMode(),
+                String.valueOf(postLikeMemberService.bitOffset(userId)),
+                String.valueOf(postLikeMemberService.chunkOf(userId)),
+                String.valueOf(PostLikeMemberService.CHUNK_ARRAY_MAX)
+        ));
+        return stringRedisTemplate.execute(
+                LIKE_TOGGLE_SCRIPT,
+                Arrays.asList(
+                        postLikeMemberService.memberKey(postId, userId),
+                        LIKE_COUNT_PREFIX + postId,
+                        LIKE_STREAM_KEY,
+                        LIKE_LOADED_PREFIX + postId,
+                        postLikeMemberService.chunkIndexKey(postId),
+                        postLikeCounterService.stripesKey(postId),
+                        RedisConstant.POST_LIKE_PENDING_PREFIX + postId
+                ),
+                args.toArray()
+        );
     }
 
     /**
@@ -370,19 +325,11 @@ public class PostLikeServiceImpl implements PostLikeService {
     private PostLikeVO fallbackToMySQL(Long postId, Long userId, boolean isLike) {
         try {
             if (isLike) {
-                // 检查是否已存在
-                PostLike existingLike = postLikeMapper.selectOne(
-                    new LambdaQueryWrapper<PostLike>()
-                        .eq(PostLike::getPostId, postId)
-                        .eq(PostLike::getUserId, userId)
-                );
-                
-                if (existingLike == null) {
-                    PostLike postLike = new PostLike();
-                    postLike.setPostId(postId);
-                    postLike.setUserId(userId);
-                    postLikeMapper.insert(postLike);
-                }
+                // 已存在（包括已逻辑删除）的记录由唯一索引合并
+                PostLike postLike = new PostLike();
+                postLike.setPostId(postId);
+                postLike.setUserId(userId);
+                postLikeMapper.batchUpsertLikes(Collections.singletonList(postLike));
                 
                 Integer likeCount = postLikeMapper.countByPostId(postId);
                 return new PostLikeVO().withLiked(true).withPostId(postId).withLikeCount(likeCount);
@@ -404,20 +351,62 @@ public class PostLikeServiceImpl implements PostLikeService {
     }
 
     /**
-     * 从MySQL加载点赞状态
+     * 从MySQL批量加载点赞状态（一条SQL）
      */
-    private boolean loadLikeStatusFromMySQL(Long postId, Long userId) {
+    private Map<Long, Boolean> loadLikeStatusesFromMySQL(List<Long> postIds, Long userId) {
+        Map<Long, Boolean> result = new HashMap<>();
         try {
-            PostLike existingLike = postLikeMapper.selectOne(
-                new LambdaQueryWrapper<PostLike>()
-                    .eq(PostLike::getPostId, postId)
-                    .eq(PostLike::getUserId, userId)
-            );
-            return existingLike != null;
+            Set<Long> liked = new HashSet<>(postLikeMapper.selectLikedPostIds(userId, postIds));
+            postIds.forEach(id -> result.put(id, liked.contains(id)));
         } catch (Exception e) {
-            log.error("从MySQL加载点赞状态失败: postId={}, userId={}", postId, userId, e);
-            return false;
+            log.error("从MySQL批量加载点赞状态失败: userId={}, postIds={}", userId, postIds, e);
+            postIds.forEach(id -> result.put(id, false));
         }
+        return result;
+    }
+
+    /**
+     * 从MySQL批量加载点赞数（一条分组SQL），backfill 为 true 时在一个pipeline中回填Redis
+     */
+    private Map<Long, Long> loadLikeCountsFromMySQL(List<Long> postIds, boolean backfill) {
+        Map<Long, Long> result = new HashMap<>();
+        Map<Long, LikeCountDTO> counts;
+        try {
+            counts = postLikeMapper.countByPostIds(postIds);
+        } catch (Exception e) {
+            // 数据库异常时不回填，避免把 0 写入缓存
+            log.error("从MySQL批量加载点赞数失败: postIds={}", postIds, e);
+            postIds.forEach(id -> result.put(id, 0L));
+            return result;
+        }
+
+        for (Long postId : postIds) {
+            LikeCountDTO dto = counts != null ? counts.get(postId) : null;
+            result.put(postId, dto != null && dto.getLikeCount() != null ? dto.getLikeCount().longValue() : 0L);
+        }
+
+        if (backfill) {
+            try {
+                Expiration expiration = Expiration.from(CACHE_EXPIRE_DAYS, TimeUnit.DAYS);
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection conn = (StringRedisConnection) connection;
+                    // SET NX：并发预热或点赞脚本已写入的计数不被覆盖
+                    result.forEach((postId, count) -> conn.set(LIKE_COUNT_PREFIX + postId, String.valueOf(count),
+                            expiration, RedisStringCommands.SetOption.ifAbsent()));
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("回填点赞数缓存失败: postIds={}, error={}", postIds, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private static List<Long> distinctIds(List<Long> postIds) {
+        if (postIds == null || postIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return postIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
     }
 
     /**
@@ -433,30 +422,68 @@ public class PostLikeServiceImpl implements PostLikeService {
         }
     }
 
+    /**
+     * 点赞时发现帖子未预热，持锁从MySQL预热
+     * 获得锁后先确认仍未预热：其他请求已预热并写入点赞后，再次整体覆盖会丢掉这些点赞（变更流写回时又以Redis为准，
+     * MySQL中的点赞也会被删除）。未获得锁时等待其他请求预热完成。
+     */
+    private void warmColdPost(Long postId) {
+        String lockKey = RedisConstant.POST_LIKE_WARM_LOCK_PREFIX + postId;
+        String owner = UUID.randomUUID().toString();
+        for (int attempt = 0; attempt < WARM_WAIT_ATTEMPTS; attempt++) {
+            Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, owner, WARM_LOCK_SECONDS, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(locked)) {
+                try {
+                    if (!isWarm(postId)) {
+                        syncSinglePostFromMySQL(postId);
+                    }
+                } finally {
+                    stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), owner);
+                }
+                return;
+            }
+            if (isWarm(postId)) {
+                return;
+            }
+            try {
+                Thread.sleep(WARM_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.warn("等待点赞缓存预热超时: postId={}", postId);
+    }
+
+    /**
+     * 与点赞脚本的判断一致：加载标记与当前存储模式一致且计数存在
+     */
+    private boolean isWarm(Long postId) {
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            conn.get(postLikeMemberService.loadedKey(postId));
+            conn.exists(LIKE_COUNT_PREFIX + postId);
+            return null;
+        });
+        return postLikeMemberService.isLoaded(replies.get(0)) && Boolean.TRUE.equals(replies.get(1));
+    }
+
     /**
      * 同步单个帖子的数据从MySQL到Redis
      */
     private void syncSinglePostFromMySQL(Long postId) {
         try {
-            // 1. 加载点赞数
+            // 1. 加载点赞数（写入时清除分片计数，避免重复计入）
             Long likeCount = loadLikeCountFromMySQL(postId);
-            String countKey = LIKE_COUNT_PREFIX + postId;
-            stringRedisTemplate.opsForValue().set(countKey, String.valueOf(likeCount), CACHE_EXPIRE_DAYS, TimeUnit.DAYS);
             
             // 2. 加载点赞用户列表
             List<PostLike> likes = postLikeMapper.selectList(
                 new LambdaQueryWrapper<PostLike>().eq(PostLike::getPostId, postId)
             );
+            List<Long> userIds = likes.stream().map(PostLike::getUserId).collect(Collectors.toList());
             
-            if (!likes.isEmpty()) {
-                String userSetKey = LIKE_USER_PREFIX + postId;
-                String[] userIds = likes.stream()
-                    .map(like -> String.valueOf(like.getUserId()))
-                    .toArray(String[]::new);
-                
-                stringRedisTemplate.opsForSet().add(userSetKey, userIds);
-                stringRedisTemplate.expire(userSetKey, CACHE_EXPIRE_DAYS, TimeUnit.DAYS);
-            }
+            // 3. 按当前存储模式一次pipeline写入成员、计数和加载标记
+            postLikeMemberService.replaceMembers(postId, userIds, likeCount, TimeUnit.DAYS.toSeconds(CACHE_EXPIRE_DAYS));
             
             log.debug("同步帖子数据到Redis完成: postId={}, likeCount={}, userCount={}", postId, likeCount, likes.size());
             
@@ -464,26 +491,4 @@ public class PostLikeServiceImpl implements PostLikeService {
             log.error("同步单个帖子数据失败: postId={}", postId, e);
         }
     }
-
-    /**
-     * 处理点赞变更记录
-     */
-    private void processLikeChange(String changeRecord) {
-        try {
-            String[] parts = changeRecord.split(":");
-            if (parts.length >= 3) {
-                Long postId = Long.valueOf(parts[0]);
-                Long userId = Long.valueOf(parts[1]);
-                String action = parts[2];
-                
-                if ("LIKE".equals(action)) {
-                    asyncSyncToMySQL(postId, userId, true);
-                } else if ("UNLIKE".equals(action)) {
-                    asyncSyncToMySQL(postId, userId, false);
-                }
-            }
-        } catch (Exception e) {
-            log.error("处理点赞变更记录失败: changeRecord={}", changeRecord, e);
-        }
-    }
 }
\ No newline at end of file
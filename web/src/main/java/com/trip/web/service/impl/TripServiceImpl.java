@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.common.exception.LeaseException;
 import com.trip.common.result.ResultCodeEnum;
 import com.trip.model.dto.PlaceCreateDTO;
@@ -30,6 +32,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.stream.Collectors;
@@ -59,6 +62,11 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip>
     private final RoutePlanCacheService routePlanCacheService;
     private final LLMCacheService llmCacheService;
     private final TripCacheService tripCacheService; // 添加行程缓存服务
+    private final CommunityTimelineService communityTimelineService;
+    private final CommunityTrendingService communityTrendingService;
+    private final CommunityFeedCacheService communityFeedCacheService;
+    private final SearchCacheService searchCacheService;
+    private final TwoTierCacheManager twoTierCacheManager;
     
     // 添加必要的Mapper依赖
     private final BookMapper bookMapper;
@@ -321,6 +329,18 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip>
 
         // 清除相关用户的行程缓存
         tripCacheService.evictTripRelatedCache(tripId, userIds);
+
+        // 行程的帖子移出时间线（含地区时间线）和热门榜
+        for (Post post : posts) {
+            communityTimelineService.removePost(post.getId(), trip.getRegion());
+            communityTrendingService.removePost(post.getId());
+        }
+
+        // 按标签清除包含该行程或其帖子的缓存（帖子详情、动态项、搜索结果、用户资料等）
+        List<String> tags = new ArrayList<>();
+        tags.add(CacheTags.trip(tripId));
+        posts.forEach(post -> tags.add(CacheTags.post(post.getId())));
+        twoTierCacheManager.evictTags(tags);
     }
 
     @Override
@@ -356,6 +376,8 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip>
         if (dto.getDescription() != null) {
             trip.setDescription(dto.getDescription());
         }
+        String oldName = trip.getName();
+        String oldRegion = trip.getRegion();
         if (dto.getRegion() != null) {
             trip.setRegion(dto.getRegion());
         }
@@ -376,6 +398,30 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip>
         // 清除相关用户的行程缓存
         tripCacheService.evictTripRelatedCache(tripId, userIds);
 
+        // 按标签清除包含该行程的缓存（帖子详情、动态项、成员的行程列表）
+        twoTierCacheManager.evictTag(CacheTags.trip(tripId));
+
+        boolean nameChanged = !Objects.equals(oldName, trip.getName());
+        boolean regionChanged = !Objects.equals(oldRegion, trip.getRegion());
+        if (nameChanged || regionChanged) {
+            List<Post> posts = postMapper.selectList(new LambdaQueryWrapper<Post>()
+                    .select(Post::getId, Post::getCreateTime)
+                    .eq(Post::getTripId, tripId)
+                    .eq(Post::getIsDeleted, 0));
+            // 地区变化时，行程的帖子移到新地区的时间线，并清除带旧地区的动态项
+            if (regionChanged && !posts.isEmpty()) {
+                communityTimelineService.moveRegion(posts, oldRegion, trip.getRegion());
+                communityFeedCacheService.evictFeedItems(posts.stream().map(Post::getId).toList());
+            }
+            // 搜索结果包含行程名称和地区：清除包含这些帖子的结果，以及能匹配新名称的关键词
+            if (!posts.isEmpty()) {
+                twoTierCacheManager.evictTags(posts.stream().map(post -> CacheTags.post(post.getId())).toList());
+                if (nameChanged) {
+                    searchCacheService.evictPostSearchMatching(trip.getName());
+                }
+            }
+        }
+
         // 转换为VO返回
         TripVO vo = new TripVO();
         vo.setTripId(trip.getId());
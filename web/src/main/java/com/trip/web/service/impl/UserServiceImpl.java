@@ -1,10 +1,13 @@
 package com.trip.web.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.trip.common.cache.CacheTags;
+import com.trip.common.cache.TwoTierCacheManager;
 import com.trip.common.exception.LeaseException;
 import com.trip.common.result.ResultCodeEnum;
 import com.trip.model.entity.User;
 import com.trip.model.vo.UserVO;
+import com.trip.web.service.SearchCacheService;
 import com.trip.web.service.UserService;
 import com.trip.web.mapper.UserMapper;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +29,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 
     private final GraphInfoServiceImpl graphInfoService;
     private final PasswordEncoder passwordEncoder;
+    private final TwoTierCacheManager twoTierCacheManager;
+    private final SearchCacheService searchCacheService;
 
     @Override
     public UserVO getCurrentUserInfo(Long userId){
@@ -67,6 +72,10 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         }
         user.setNickname(newNickname);
         this.updateById(user);
+
+        // 清除包含该用户信息的缓存，以及能匹配新昵称的用户搜索结果
+        twoTierCacheManager.evictTag(CacheTags.user(userId));
+        searchCacheService.evictUserSearchMatching(newNickname);
     }
 
     @Override
@@ -92,6 +101,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         // 更新用户的 avatarId
         user.setAvatarId(graphId);
         this.updateById(user);
+        twoTierCacheManager.evictTag(CacheTags.user(userId));
 
         // 返回可访问链接
         return graphInfoService.getImageUrlById(graphId);
@@ -126,5 +136,6 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         // 逻辑删除用户
         user.setIsDeleted((byte) 1);
         this.updateById(user);
+        twoTierCacheManager.evictTag(CacheTags.user(userId));
     }
 }
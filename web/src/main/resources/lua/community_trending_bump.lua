@@ -0,0 +1,49 @@
+-- 热门榜计分：按时间指数衰减的互动分数
+-- 分数 = Σ 权重 × e^((事件时间 - epoch) / tau)，等价于所有分数同时按 e^(-Δt/tau) 衰减，但每次只需 ZINCRBY 一个帖子。
+-- 指数超过阈值时以当前时间为新 epoch，用 ZUNIONSTORE WEIGHTS 把全部分数整体缩小（惰性归一化），避免分数无限增大丢失精度。
+-- KEYS[1] 热门榜 ZSET   community:trending
+-- KEYS[2] 当前 epoch    community:trending:epoch
+-- ARGV[1] 当前时间（秒）
+-- ARGV[2] tau（秒）
+-- ARGV[3] 归一化阈值（指数）
+-- ARGV[4] 最小保留分数（归一化时移除低于该值的帖子）
+-- ARGV[5] 最多保留的帖子数
+-- ARGV[6..] postId, 权重 成对出现（服务只写入正向事件；负权重抵消到最小保留分数以下时移除帖子）
+-- 返回当前 epoch
+
+local now = tonumber(ARGV[1])
+local tau = tonumber(ARGV[2])
+
+local epoch = tonumber(redis.call('GET', KEYS[2]))
+if not epoch then
+    epoch = now
+    redis.call('SET', KEYS[2], epoch)
+end
+
+local exponent = (now - epoch) / tau
+if exponent > tonumber(ARGV[3]) then
+    if redis.call('EXISTS', KEYS[1]) == 1 then
+        redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', string.format('%.17g', math.exp(-exponent)))
+        redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[4])
+    end
+    epoch = now
+    redis.call('SET', KEYS[2], epoch)
+    exponent = 0
+end
+
+local factor = math.exp(exponent)
+-- 按当前 epoch 换算的最小保留分数，负向权重抵消后留下的浮点残差也按此移除
+local floor = tonumber(ARGV[4]) * factor
+for i = 6, #ARGV, 2 do
+    local weight = tonumber(ARGV[i + 1])
+    local score = tonumber(redis.call('ZINCRBY', KEYS[1], weight * factor, ARGV[i]))
+    if weight < 0 and score < floor then
+        redis.call('ZREM', KEYS[1], ARGV[i])
+    end
+end
+
+local over = redis.call('ZCARD', KEYS[1]) - tonumber(ARGV[5])
+if over > 0 then
+    redis.call('ZREMRANGEBYRANK', KEYS[1], 0, over - 1)
+end
+return epoch
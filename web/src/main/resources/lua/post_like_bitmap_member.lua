@@ -0,0 +1,13 @@
+-- bitmap 模式的成员检查：分片可能是偏移量集合（稀疏）或位图（稠密）
+-- KEYS[1] 用户所在分片 post:like:bm:{postId}:{chunk}
+-- ARGV[1] 分片内偏移量
+-- 返回 1 已点赞，0 未点赞
+
+local kind = redis.call('TYPE', KEYS[1]).ok
+if kind == 'string' then
+    return redis.call('GETBIT', KEYS[1], ARGV[1])
+end
+if kind == 'set' then
+    return redis.call('SISMEMBER', KEYS[1], ARGV[1])
+end
+return 0
@@ -0,0 +1,14 @@
+-- 将分片计数的总和加回主计数key（分片由调用方逐个 GETDEL 取出，脚本只访问主key）
+-- KEYS[1] 点赞计数 post:like:count:{postId}
+-- ARGV[1] 分片总和
+-- 返回合并后的计数；主key已过期时返回 -1，分片直接丢弃，下次访问从MySQL重新加载
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+local count = redis.call('INCRBY', KEYS[1], ARGV[1])
+if count < 0 then
+    redis.call('SET', KEYS[1], '0', 'KEEPTTL')
+    count = 0
+end
+return count
@@ -0,0 +1,14 @@
+-- 成员写入完成后写入计数和加载标记，标记值为 "存储模式:重置时间"
+-- 重置时间取 Redis 服务器时间（毫秒），与变更流记录ID的时间戳同源：ID 不晚于该时间的变更可能未反映在重置后的成员中
+-- KEYS[1] 点赞计数     post:like:count:{postId}
+-- KEYS[2] 集合加载标记 post:like:loaded:{postId}
+-- ARGV[1] 点赞数
+-- ARGV[2] 存储模式 set / bitmap
+-- ARGV[3] 过期时间（秒）
+-- 返回重置时间
+
+local now = redis.call('TIME')
+local resetAt = tonumber(now[1]) * 1000 + math.floor(tonumber(now[2]) / 1000)
+redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[3])
+redis.call('SET', KEYS[2], ARGV[2] .. ':' .. resetAt, 'EX', ARGV[3])
+return resetAt
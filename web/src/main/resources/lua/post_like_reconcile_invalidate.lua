@@ -0,0 +1,10 @@
+-- 对账发现点赞用户与MySQL不一致时删除加载标记，下次访问时从MySQL完整重建
+-- KEYS[1] 集合加载标记 post:like:loaded:{postId}
+-- KEYS[2] 待写回记录数 post:like:pending:{postId}
+-- 返回 1 已删除，0 快照之后有新的待写回变更（不一致可能来自这些变更，留到下一轮）
+
+if tonumber(redis.call('GET', KEYS[2]) or '0') > 0 then
+    return 0
+end
+redis.call('DEL', KEYS[1])
+return 1
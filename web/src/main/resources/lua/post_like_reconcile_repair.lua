@@ -0,0 +1,25 @@
+-- 对账修复：计数仍等于快照值时才覆盖（CAS），快照之后发生过点赞变更则放弃本次修复
+-- 分片中的帖子计数不只在主key中，不修复；分片key不在此脚本中访问（见 PostLikeCounterService 的部署拓扑说明）
+-- KEYS[1] 点赞计数       post:like:count:{postId}
+-- KEYS[2] 待写回记录数   post:like:pending:{postId}
+-- KEYS[3] 计数分片标记   post:like:count:{postId}:stripes
+-- ARGV[1] 快照时的计数
+-- ARGV[2] 修复后的计数
+-- ARGV[3] 是否要求该帖子没有待写回的变更 1 / 0（以MySQL为准修复时为 1）
+-- 返回 1 已修复，0 计数已变化或有待写回的变更，-1 计数处于分片状态（热点帖子，跳过）
+
+if redis.call('EXISTS', KEYS[3]) == 1 then
+    return -1
+end
+local current = redis.call('GET', KEYS[1])
+if not current then
+    return 0
+end
+if math.max(tonumber(current), 0) ~= tonumber(ARGV[1]) then
+    return 0
+end
+if ARGV[3] == '1' and tonumber(redis.call('GET', KEYS[2]) or '0') > 0 then
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[2], 'KEEPTTL')
+return 1
@@ -0,0 +1,57 @@
+-- 对账快照：一次读取一组帖子的计数、点赞用户基数和待写回记录数，保证同一时刻的一致视图
+-- 每个帖子依次声明 5 + 位图分片数 个 key：
+--   点赞计数 post:like:count:{postId}、加载标记 post:like:loaded:{postId}、待写回记录数 post:like:pending:{postId}、
+--   点赞用户集合 post:like:user:{postId}（bitmap 模式为分片索引 post:like:bm:{postId}:chunks）、
+--   计数分片标记 post:like:count:{postId}:stripes、位图分片 post:like:bm:{postId}:{chunk}（调用方预先读取分片索引）
+-- 计数分片 key 不在此脚本中读取，分片中的帖子计数不完整，count 返回 -1 跳过对账
+-- ARGV[1] 存储模式 set / bitmap
+-- ARGV[2..] 每个帖子的位图分片数，与帖子顺序一致
+-- 返回 {loaded1, count1, card1, pending1, loaded2, ...}
+--   loaded 为 1 表示成员按当前模式完整加载；count 为 -1 表示计数未缓存或处于分片状态；
+--   card 为 -1 表示成员未加载，-2 表示分片索引在预先读取之后有变化；pending 为该帖子尚未写回MySQL的变更数
+
+local mode = ARGV[1]
+local result = {}
+local k = 1
+
+for i = 2, #ARGV do
+    local chunks = tonumber(ARGV[i])
+    local countKey, loadedKey, pendingKey, memberKey, stripesKey = KEYS[k], KEYS[k + 1], KEYS[k + 2], KEYS[k + 3], KEYS[k + 4]
+    local chunkStart = k + 5
+    k = chunkStart + chunks
+
+    local count = -1
+    local base = redis.call('GET', countKey)
+    if base and redis.call('EXISTS', stripesKey) == 0 then
+        count = math.max(tonumber(base), 0)
+    end
+
+    local marker = redis.call('GET', loadedKey)
+    local loaded = marker ~= false and (marker == mode or string.sub(marker, 1, #mode + 1) == mode .. ':')
+    local card = -1
+    if loaded then
+        if mode == 'bitmap' then
+            if redis.call('SCARD', memberKey) ~= chunks then
+                card = -2
+            else
+                card = 0
+                for c = chunkStart, k - 1 do
+                    if redis.call('TYPE', KEYS[c]).ok == 'set' then
+                        card = card + redis.call('SCARD', KEYS[c])
+                    else
+                        card = card + redis.call('BITCOUNT', KEYS[c])
+                    end
+                end
+            end
+        else
+            card = redis.call('SCARD', memberKey)
+        end
+    end
+
+    result[#result + 1] = loaded and 1 or 0
+    result[#result + 1] = count
+    result[#result + 1] = card
+    result[#result + 1] = tonumber(redis.call('GET', pendingKey) or '0')
+end
+
+return result
@@ -0,0 +1,69 @@
+-- 将单个帖子的点赞用户集合原子地转换为分片存储
+-- KEYS[1] 点赞用户集合   post:like:user:{postId}
+-- KEYS[2] 集合加载标记   post:like:loaded:{postId}
+-- KEYS[3] 位图分片索引   post:like:bm:{postId}:chunks
+-- KEYS[4..] 集合成员所在的分片 post:like:bm:{postId}:{chunk}，与 ARGV[3..] 一一对应
+-- ARGV[1] 分片位数
+-- ARGV[2] 分片以集合存储的最大成员数，超过后写为位图
+-- ARGV[3..] 分片编号
+-- 返回转换的成员数；-1 表示集合未完整加载（已删除，下次访问时从MySQL预热）；
+--   -2 表示集合中有成员所在的分片未在 KEYS 中（读取后集合有变化），调用方重新读取后重试
+
+-- 标记值为 "存储模式:重置时间"（旧版标记只有存储模式），转换后保留重置时间
+local marker = redis.call('GET', KEYS[2]) or ''
+local mode, resetAt = string.match(marker, '^(%a+)(.*)$')
+if mode == 'bitmap' then
+    -- 已按位图模式预热过，旧集合只是残留
+    redis.call('DEL', KEYS[1])
+    return 0
+end
+if mode ~= 'set' then
+    redis.call('DEL', KEYS[1])
+    return -1
+end
+
+local chunkKeys = {}
+for i = 3, #ARGV do
+    chunkKeys[ARGV[i]] = KEYS[i + 1]
+end
+
+local bits = tonumber(ARGV[1])
+local members = redis.call('SMEMBERS', KEYS[1])
+local offsets = {}
+for _, member in ipairs(members) do
+    local userId = tonumber(member)
+    if userId and userId >= 0 then
+        local chunk = tostring(math.floor(userId / bits))
+        if not chunkKeys[chunk] then
+            return -2
+        end
+        offsets[chunk] = offsets[chunk] or {}
+        table.insert(offsets[chunk], userId % bits)
+    end
+end
+
+-- 分片沿用标记的剩余过期时间
+local ttl = redis.call('PTTL', KEYS[2])
+local arrayMax = tonumber(ARGV[2])
+for chunk, list in pairs(offsets) do
+    local key = chunkKeys[chunk]
+    redis.call('DEL', key)
+    if #list <= arrayMax then
+        redis.call('SADD', key, unpack(list))
+    else
+        for _, offset in ipairs(list) do
+            redis.call('SETBIT', key, offset, 1)
+        end
+    end
+    redis.call('SADD', KEYS[3], chunk)
+    if ttl > 0 then
+        redis.call('PEXPIRE', key, ttl)
+    end
+end
+if ttl > 0 and next(offsets) ~= nil then
+    redis.call('PEXPIRE', KEYS[3], ttl)
+end
+
+redis.call('SET', KEYS[2], 'bitmap' .. resetAt, 'KEEPTTL')
+redis.call('DEL', KEYS[1])
+return #members
@@ -0,0 +1,20 @@
+-- 写回MySQL成功后确认并删除变更记录，同时递减各帖子的待写回记录数
+-- KEYS[1] 点赞变更流   post:like:stream
+-- KEYS[2..] 待写回记录数 post:like:pending:{postId}
+-- ARGV[1] 消费者组
+-- ARGV[2..] 成对出现：记录ID、所属帖子在 KEYS 中的下标（0 表示无法解析帖子，只确认不递减）
+-- 返回本次确认的记录数；已被其他消费者确认的记录不重复递减
+
+local acked = 0
+for i = 2, #ARGV, 2 do
+    local id = ARGV[i]
+    local keyIndex = tonumber(ARGV[i + 1])
+    if redis.call('XACK', KEYS[1], ARGV[1], id) == 1 then
+        acked = acked + 1
+        if keyIndex > 0 and redis.call('DECR', KEYS[keyIndex]) <= 0 then
+            redis.call('DEL', KEYS[keyIndex])
+        end
+    end
+    redis.call('XDEL', KEYS[1], id)
+end
+return acked
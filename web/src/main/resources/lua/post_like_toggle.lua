@@ -0,0 +1,102 @@
+-- 点赞/取消点赞原子脚本：一次 EVALSHA 完成成员检查、成员变更、计数更新、续期和追加变更流
+-- 计数处于分片状态（热点帖子）时脚本不写计数，增量由客户端写入随机分片，避免所有点赞集中写同一个key
+-- KEYS[1] 点赞成员key     set 模式: post:like:user:{postId}；bitmap 模式: 用户所在分片 post:like:bm:{postId}:{chunk}
+-- KEYS[2] 点赞计数       post:like:count:{postId}
+-- KEYS[3] 点赞变更流     post:like:stream
+-- KEYS[4] 集合加载标记   post:like:loaded:{postId}（值为 "加载时的存储模式:重置时间"）
+-- KEYS[5] 位图分片索引   post:like:bm:{postId}:chunks（仅 bitmap 模式使用）
+-- KEYS[6] 计数分片标记   post:like:count:{postId}:stripes（存在时计数增量写入 post:like:count:{postId}:s:{i}）
+-- KEYS[7] 待写回记录数   post:like:pending:{postId}
+-- ARGV[1] userId
+-- ARGV[2] 操作类型 LIKE / UNLIKE
+-- ARGV[3] 过期时间（秒）
+-- ARGV[4] postId
+-- ARGV[5] 变更流最大长度（近似裁剪）
+-- ARGV[6] 存储模式 set / bitmap
+-- ARGV[7] 位偏移量（userId % 分片位数）
+-- ARGV[8] 分片编号（userId / 分片位数）
+-- ARGV[9] 分片以集合存储的最大成员数，超过后转为位图
+-- 返回 {status, count, striped}：status = 1 状态已变更，0 状态未变化，-1 缓存未预热（需要先从MySQL加载）；
+--   striped = 1 表示计数处于分片状态，count 为 -1，由客户端写入分片并计算总数
+
+-- 读路径只回填计数，计数存在不代表成员完整；标记的模式与当前模式不一致时（切换存储模式后）同样视为未预热
+local marker = redis.call('GET', KEYS[4])
+local loaded = marker and (marker == ARGV[6] or string.sub(marker, 1, #ARGV[6] + 1) == ARGV[6] .. ':')
+if not loaded or redis.call('EXISTS', KEYS[2]) == 0 then
+    return {-1, 0}
+end
+
+local bitmap = ARGV[6] == 'bitmap'
+local changed
+if bitmap then
+    -- 稀疏分片是分片内偏移量的集合（intset），成员数超过阈值后转为位图
+    local kind = redis.call('TYPE', KEYS[1]).ok
+    if ARGV[2] == 'LIKE' then
+        if kind == 'string' then
+            changed = 1 - redis.call('SETBIT', KEYS[1], ARGV[7], 1)
+        else
+            changed = redis.call('SADD', KEYS[1], ARGV[7])
+            if changed == 1 and redis.call('SCARD', KEYS[1]) > tonumber(ARGV[9]) then
+                local offsets = redis.call('SMEMBERS', KEYS[1])
+                redis.call('DEL', KEYS[1])
+                for _, offset in ipairs(offsets) do
+                    redis.call('SETBIT', KEYS[1], offset, 1)
+                end
+            end
+        end
+        redis.call('SADD', KEYS[5], ARGV[8])
+    elseif kind == 'string' then
+        -- 先 GETBIT，避免对未点赞用户 SETBIT 0
+        if redis.call('GETBIT', KEYS[1], ARGV[7]) == 1 then
+            redis.call('SETBIT', KEYS[1], ARGV[7], 0)
+            changed = 1
+        else
+            changed = 0
+        end
+    elseif kind == 'set' then
+        changed = redis.call('SREM', KEYS[1], ARGV[7])
+    else
+        changed = 0
+    end
+elseif ARGV[2] == 'LIKE' then
+    changed = redis.call('SADD', KEYS[1], ARGV[1])
+else
+    changed = redis.call('SREM', KEYS[1], ARGV[1])
+end
+
+local striped = redis.call('EXISTS', KEYS[6]) == 1
+
+if changed == 0 then
+    if striped then
+        return {0, -1, 1}
+    end
+    return {0, tonumber(redis.call('GET', KEYS[2])), 0}
+end
+
+local count = -1
+if striped then
+    -- 计数增量由客户端写入分片
+elseif ARGV[2] == 'LIKE' then
+    count = redis.call('INCR', KEYS[2])
+else
+    count = redis.call('DECR', KEYS[2])
+    -- 确保计数不为负数
+    if count < 0 then
+        redis.call('SET', KEYS[2], '0', 'KEEPTTL')
+        count = 0
+    end
+end
+
+redis.call('EXPIRE', KEYS[1], ARGV[3])
+if bitmap then
+    -- 只续期写入的分片和分片索引；加载标记不续期，其余分片的剩余时间都不短于标记，标记先过期后整体重新加载
+    redis.call('EXPIRE', KEYS[5], ARGV[3])
+else
+    redis.call('EXPIRE', KEYS[4], ARGV[3])
+end
+redis.call('EXPIRE', KEYS[2], ARGV[3])
+redis.call('XADD', KEYS[3], 'MAXLEN', '~', ARGV[5], '*', 'postId', ARGV[4], 'userId', ARGV[1], 'action', ARGV[2])
+redis.call('INCR', KEYS[7])
+redis.call('EXPIRE', KEYS[7], ARGV[3])
+
+return {1, count, striped and 1 or 0}
@@ -0,0 +1,44 @@
+-- 记录帖子浏览：一次 EVALSHA 完成原始浏览计数、UV 去重和展示浏览量计数（支持批量写入缓冲的浏览）
+-- KEYS[1] 浏览量（按天去重）  post:view:{postId}
+-- KEYS[2] 原始浏览量          post:pv:{postId}
+-- KEYS[3] 累计独立访客 HLL    post:uv:{postId}
+-- KEYS[4] 当天独立访客 HLL    post:uv:{postId}:{yyyyMMdd}
+-- KEYS[5] 待持久化帖子集合    post:view_dirty
+-- ARGV[1] 原始浏览次数
+-- ARGV[2] 匿名浏览次数（不去重，直接计入浏览量）
+-- ARGV[3] 当天 HLL 过期时间（秒）
+-- ARGV[4] postId
+-- ARGV[5..] 登录用户ID
+-- 返回 {当前浏览量, 本次新增浏览量}；浏览量为 -1 表示未缓存，需要先从MySQL加载（不做任何修改）
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {-1, 0}
+end
+
+redis.call('INCRBY', KEYS[2], ARGV[1])
+
+local added = tonumber(ARGV[2])
+if #ARGV >= 5 then
+    -- 去重后的新增浏览取当天 HLL 基数估算值的变化：PFADD 的返回值只表示寄存器是否变化，
+    -- 基数较大时新用户常常不改变任何寄存器，按返回值累加会持续少计，展示浏览量与 UV 统计偏离
+    local before = redis.call('PFCOUNT', KEYS[4])
+    -- 分批 PFADD，避免 unpack 超过 Lua 栈限制
+    for i = 5, #ARGV, 1000 do
+        local viewers = {}
+        for j = i, math.min(i + 999, #ARGV) do
+            viewers[#viewers + 1] = ARGV[j]
+        end
+        redis.call('PFADD', KEYS[3], unpack(viewers))
+        redis.call('PFADD', KEYS[4], unpack(viewers))
+    end
+    local after = redis.call('PFCOUNT', KEYS[4])
+    if after > before then
+        added = added + after - before
+    end
+    redis.call('EXPIRE', KEYS[4], ARGV[3])
+end
+if added > 0 then
+    redis.call('SADD', KEYS[5], ARGV[4])
+    return {redis.call('INCRBY', KEYS[1], added), added}
+end
+return {tonumber(redis.call('GET', KEYS[1]) or '0'), 0}
@@ -0,0 +1,19 @@
+-- 记录帖子浏览（key 去重方式）：一次 EVALSHA 完成用户标记检查、浏览量计数和待持久化登记
+-- KEYS[1] 浏览量           post:view:{postId}
+-- KEYS[2] 待持久化帖子集合 post:view_dirty
+-- KEYS[3] 用户浏览标记     post:user_view:{postId}:{userId}（匿名浏览时不传）
+-- ARGV[1] postId
+-- ARGV[2] 用户浏览标记过期时间（秒）
+-- 返回当前浏览量；-1 表示未缓存，需要先从MySQL加载（不做任何修改）
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return -1
+end
+
+-- 用户在标记有效期内已浏览过，不增加计数
+if KEYS[3] and not redis.call('SET', KEYS[3], '1', 'NX', 'EX', ARGV[2]) then
+    return tonumber(redis.call('GET', KEYS[1]))
+end
+
+redis.call('SADD', KEYS[2], ARGV[1])
+return redis.call('INCR', KEYS[1])
@@ -0,0 +1,102 @@
+package com.trip.web.test;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trip.common.cache.CacheCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缓存值编解码测试：各格式往返、LZ4 压缩、旧版 JSON 文本识别
+ */
+@Slf4j
+public class CacheCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JavaType mapType = objectMapper.getTypeFactory()
+            .constructMapType(LinkedHashMap.class, String.class, Object.class);
+
+    /**
+     * JSON、Smile 两种格式，压缩阈值以下和以上都能还原
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Map<String, Object> small = sample(3);
+        Map<String, Object> large = sample(500);
+        for (CacheCodec.Format format : CacheCodec.Format.values()) {
+            CacheCodec codec = new CacheCodec(objectMapper, format, 256);
+
+            byte[] smallBytes = codec.encode(small);
+            byte[] largeBytes = codec.encode(large);
+            assertEquals(small, codec.decode(smallBytes, mapType));
+            assertEquals(large, codec.decode(largeBytes, mapType));
+
+            // 标记字节：低 4 位为格式，0x10 表示压缩
+            assertEquals(0, smallBytes[0] & 0x10, "小于阈值的值不压缩");
+            assertNotEquals(0, largeBytes[0] & 0x10, "重复内容超过阈值应压缩");
+            log.info("编解码往返: format={}, small={}B, large={}B", format, smallBytes.length, largeBytes.length);
+        }
+    }
+
+    /**
+     * 一种格式写入的值由另一种格式配置的实例读取（切换格式不影响已有缓存）
+     */
+    @Test
+    public void testDecodeIndependentOfConfiguredFormat() throws IOException {
+        Map<String, Object> value = sample(50);
+        byte[] smile = new CacheCodec(objectMapper, CacheCodec.Format.SMILE, 64).encode(value);
+        byte[] json = new CacheCodec(objectMapper, CacheCodec.Format.JSON, 0).encode(value);
+
+        assertEquals(value, new CacheCodec(objectMapper, CacheCodec.Format.JSON, 0).decode(smile, mapType));
+        assertEquals(value, new CacheCodec(objectMapper, CacheCodec.Format.SMILE, 64).decode(json, mapType));
+    }
+
+    /**
+     * 升级前写入的 JSON 文本没有标记字节，按 JSON 解析
+     */
+    @Test
+    public void testLegacyJsonText() throws IOException {
+        CacheCodec codec = new CacheCodec(objectMapper, CacheCodec.Format.SMILE, 64);
+        Map<String, Object> value = sample(2);
+        byte[] legacy = objectMapper.writeValueAsBytes(value);
+        assertEquals(value, codec.decode(legacy, mapType));
+
+        // 以空白开头的旧值同样按文本解析
+        byte[] padded = (" " + new String(legacy, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        assertEquals(value, codec.decode(padded, mapType));
+    }
+
+    /**
+     * 未知格式标记报错，不按其他格式误解析
+     */
+    @Test
+    public void testUnknownFormat() {
+        CacheCodec codec = new CacheCodec(objectMapper, CacheCodec.Format.JSON, 0);
+        byte[] bytes = {0x0F, '{', '}'};
+        assertThrows(IOException.class, () -> codec.decode(bytes, mapType));
+    }
+
+    private static Map<String, Object> sample(int items) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("postId", 42);
+        value.put("title", "测试帖子");
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", i);
+            item.put("content", "重复内容 repeated content");
+            list.add(item);
+        }
+        value.put("items", list);
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+package com.trip.web.test;
+
+import com.trip.common.cache.IdBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ID 布隆过滤器测试：无漏判、误判率、maxId 之后的新ID、序列化往返
+ */
+@Slf4j
+public class IdBloomFilterTest {
+
+    private static final double FPP = 0.01;
+
+    /**
+     * 放入的ID一定判断为可能存在
+     */
+    @Test
+    public void testNoFalseNegatives() {
+        long[] ids = evenIds(10_000);
+        IdBloomFilter filter = IdBloomFilter.build(ids, ids.length, ids[ids.length - 1], FPP);
+        for (long id : ids) {
+            assertTrue(filter.mightContain(id), "漏判: " + id);
+        }
+    }
+
+    /**
+     * maxId 以内未放入的ID，误判率接近期望值
+     */
+    @Test
+    public void testFalsePositiveRate() {
+        long[] ids = evenIds(10_000);
+        IdBloomFilter filter = IdBloomFilter.build(ids, ids.length, ids[ids.length - 1], FPP);
+        int falsePositives = 0;
+        int checked = 0;
+        for (long id = 1; id < ids[ids.length - 1]; id += 2) {
+            checked++;
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / checked;
+        log.info("布隆过滤器误判率: {} ({}/{}), hashCount={}, bits={}",
+                rate, falsePositives, checked, filter.getHashCount(), filter.getBitCount());
+        assertTrue(rate < FPP * 3, "误判率过高: " + rate);
+    }
+
+    /**
+     * 建立之后新增的ID（大于 maxId）一律视为可能存在
+     */
+    @Test
+    public void testIdsAfterMaxIdPass() {
+        long[] ids = evenIds(100);
+        long maxId = ids[ids.length - 1];
+        IdBloomFilter filter = IdBloomFilter.build(ids, ids.length, maxId, FPP);
+        assertTrue(filter.mightContain(maxId + 1));
+        assertTrue(filter.mightContain(Long.MAX_VALUE));
+    }
+
+    /**
+     * 只使用数组前 count 个ID，空过滤器可以建立
+     */
+    @Test
+    public void testCountAndEmpty() {
+        long[] ids = {2, 4, 6, 0, 0};
+        IdBloomFilter filter = IdBloomFilter.build(ids, 3, 6, FPP);
+        assertTrue(filter.mightContain(2) && filter.mightContain(4) && filter.mightContain(6));
+
+        IdBloomFilter empty = IdBloomFilter.build(new long[0], 0, 0, FPP);
+        assertTrue(empty.getBitCount() >= Long.SIZE);
+        assertTrue(empty.mightContain(1));
+    }
+
+    /**
+     * 序列化往返后参数和判断结果一致，长度错误的数据被拒绝
+     */
+    @Test
+    public void testBytesRoundTrip() {
+        long[] ids = evenIds(1_000);
+        IdBloomFilter filter = IdBloomFilter.build(ids, ids.length, ids[ids.length - 1], FPP);
+        IdBloomFilter restored = IdBloomFilter.fromBytes(filter.toBytes());
+
+        assertEquals(filter.getHashCount(), restored.getHashCount());
+        assertEquals(filter.getMaxId(), restored.getMaxId());
+        assertEquals(filter.getBuiltAt(), restored.getBuiltAt());
+        assertEquals(filter.getBitCount(), restored.getBitCount());
+        for (long id = 0; id <= filter.getMaxId() + 10; id++) {
+            assertEquals(filter.mightContain(id), restored.mightContain(id), "序列化后判断不一致: " + id);
+        }
+
+        byte[] bytes = filter.toBytes();
+        assertThrows(IllegalArgumentException.class, () -> IdBloomFilter.fromBytes(new byte[bytes.length - 3]));
+        assertThrows(IllegalArgumentException.class, () -> IdBloomFilter.fromBytes(new byte[4]));
+    }
+
+    private static long[] evenIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (i + 1) * 2L;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,175 @@
+package com.trip.web.test;
+
+import com.trip.web.service.PostLikeMemberService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 点赞切换脚本（lua/post_like_toggle.lua）测试
+ * 所有key（包括变更流）使用独立的测试前缀，不影响真实的点赞数据和写回任务
+ */
+@Slf4j
+@SpringBootTest
+public class PostLikeScriptTest {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TOGGLE_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        TOGGLE_SCRIPT.setLocation(new ClassPathResource("lua/post_like_toggle.lua"));
+        TOGGLE_SCRIPT.setResultType(List.class);
+    }
+
+    private static final long POST_ID = 1L;
+    private static final String TTL = "600";
+
+    private final String prefix = "test:like_script:" + System.nanoTime() + ":";
+    private final String memberKey = prefix + "user";
+    private final String countKey = prefix + "count";
+    private final String streamKey = prefix + "stream";
+    private final String loadedKey = prefix + "loaded";
+    private final String chunkIndexKey = prefix + "bm:chunks";
+    private final String stripesKey = prefix + "count:stripes";
+    private final String pendingKey = prefix + "pending";
+    private final List<String> createdKeys = new ArrayList<>(List.of(
+            memberKey, countKey, streamKey, loadedKey, chunkIndexKey, stripesKey, pendingKey));
+
+    @AfterEach
+    public void cleanup() {
+        stringRedisTemplate.delete(createdKeys);
+    }
+
+    /**
+     * 未预热（无加载标记、标记模式不一致或计数不存在）时返回 -1，不做任何修改
+     */
+    @Test
+    public void testColdPost() {
+        assertEquals(List.of(-1L, 0L), toggleSet(7L, "LIKE"));
+
+        stringRedisTemplate.opsForValue().set(loadedKey, "bitmap:0");
+        stringRedisTemplate.opsForValue().set(countKey, "0");
+        assertEquals(List.of(-1L, 0L), toggleSet(7L, "LIKE"));
+
+        stringRedisTemplate.opsForValue().set(loadedKey, "set:0");
+        stringRedisTemplate.delete(countKey);
+        assertEquals(List.of(-1L, 0L), toggleSet(7L, "LIKE"));
+
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(memberKey)));
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(streamKey)));
+        assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(pendingKey)));
+    }
+
+    /**
+     * set 模式：重复点赞、重复取消不改变计数，只有状态变化时追加变更流和待写回计数
+     */
+    @Test
+    public void testSetModeIdempotent() {
+        warm("set:" + System.currentTimeMillis(), 0);
+
+        assertEquals(List.of(1L, 1L, 0L), toggleSet(7L, "LIKE"));
+        assertEquals(List.of(0L, 1L, 0L), toggleSet(7L, "LIKE"));
+        assertEquals(List.of(1L, 2L, 0L), toggleSet(8L, "LIKE"));
+        assertEquals(List.of(1L, 1L, 0L), toggleSet(7L, "UNLIKE"));
+        assertEquals(List.of(0L, 1L, 0L), toggleSet(7L, "UNLIKE"));
+
+        assertEquals(Boolean.FALSE, stringRedisTemplate.opsForSet().isMember(memberKey, "7"));
+        assertEquals(Boolean.TRUE, stringRedisTemplate.opsForSet().isMember(memberKey, "8"));
+        assertEquals("1", stringRedisTemplate.opsForValue().get(countKey));
+        assertEquals(3L, stringRedisTemplate.opsForStream().size(streamKey));
+        assertEquals("3", stringRedisTemplate.opsForValue().get(pendingKey));
+    }
+
+    /**
+     * 计数偏小时取消点赞不会把计数减为负数
+     */
+    @Test
+    public void testCountNeverNegative() {
+        warm("set", 0);
+        stringRedisTemplate.opsForSet().add(memberKey, "7");
+
+        assertEquals(List.of(1L, 0L, 0L), toggleSet(7L, "UNLIKE"));
+        assertEquals("0", stringRedisTemplate.opsForValue().get(countKey));
+    }
+
+    /**
+     * 计数处于分片状态时脚本只变更成员，返回 striped = 1，计数由客户端写入分片
+     */
+    @Test
+    public void testStripedCount() {
+        warm("set", 5);
+        stringRedisTemplate.opsForValue().set(stripesKey, "1");
+
+        assertEquals(List.of(1L, -1L, 1L), toggleSet(7L, "LIKE"));
+        assertEquals(List.of(0L, -1L, 1L), toggleSet(7L, "LIKE"));
+        assertEquals("5", stringRedisTemplate.opsForValue().get(countKey));
+        assertEquals(Boolean.TRUE, stringRedisTemplate.opsForSet().isMember(memberKey, "7"));
+    }
+
+    /**
+     * bitmap 模式：分片先以偏移量集合存储，超过阈值后转为位图，转换后点赞状态不变
+     */
+    @Test
+    public void testBitmapChunkPromotion() {
+        warm("bitmap:" + System.currentTimeMillis(), 0);
+        long chunk = 3;
+        String chunkKey = prefix + "bm:" + chunk;
+        createdKeys.add(chunkKey);
+        long base = chunk * PostLikeMemberService.CHUNK_BITS;
+
+        // 阈值为2，第3个点赞时转为位图
+        assertEquals(List.of(1L, 1L, 0L), toggleBitmap(chunkKey, base + 1, chunk, "LIKE", 2));
+        assertEquals(List.of(1L, 2L, 0L), toggleBitmap(chunkKey, base + 2, chunk, "LIKE", 2));
+        assertEquals("set", stringRedisTemplate.type(chunkKey).code());
+        assertEquals(List.of(0L, 2L, 0L), toggleBitmap(chunkKey, base + 2, chunk, "LIKE", 2));
+
+        assertEquals(List.of(1L, 3L, 0L), toggleBitmap(chunkKey, base + 3, chunk, "LIKE", 2));
+        assertEquals("string", stringRedisTemplate.type(chunkKey).code());
+        for (long offset = 1; offset <= 3; offset++) {
+            assertEquals(Boolean.TRUE, stringRedisTemplate.opsForValue().getBit(chunkKey, offset));
+        }
+
+        assertEquals(List.of(1L, 2L, 0L), toggleBitmap(chunkKey, base + 2, chunk, "UNLIKE", 2));
+        assertEquals(List.of(0L, 2L, 0L), toggleBitmap(chunkKey, base + 2, chunk, "UNLIKE", 2));
+        assertEquals(Boolean.FALSE, stringRedisTemplate.opsForValue().getBit(chunkKey, 2));
+        assertEquals(Boolean.TRUE, stringRedisTemplate.opsForSet().isMember(chunkIndexKey, String.valueOf(chunk)));
+        log.info("位图分片转换后的内存: {} bytes", stringRedisTemplate.opsForValue().size(chunkKey));
+    }
+
+    private void warm(String marker, long count) {
+        stringRedisTemplate.opsForValue().set(loadedKey, marker);
+        stringRedisTemplate.opsForValue().set(countKey, String.valueOf(count));
+    }
+
+    private List<Long> toggleSet(Long userId, String action) {
+        return toggle(memberKey, userId, action, PostLikeMemberService.MODE_SET, 0, 0,
+                PostLikeMemberService.CHUNK_ARRAY_MAX);
+    }
+
+    private List<Long> toggleBitmap(String chunkKey, long userId, long chunk, String action, int arrayMax) {
+        return toggle(chunkKey, userId, action, PostLikeMemberService.MODE_BITMAP,
+                userId % PostLikeMemberService.CHUNK_BITS, chunk, arrayMax);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> toggle(String key, long userId, String action, String mode,
+                              long offset, long chunk, int arrayMax) {
+        return stringRedisTemplate.execute(TOGGLE_SCRIPT,
+                List.of(key, countKey, streamKey, loadedKey, chunkIndexKey, stripesKey, pendingKey),
+                String.valueOf(userId), action, TTL, String.valueOf(POST_ID), "1000", mode,
+                String.valueOf(offset), String.valueOf(chunk), String.valueOf(arrayMax));
+    }
+}
@@ -0,0 +1,150 @@
+package com.trip.web.test;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 浏览记录脚本（lua/post_view_record.lua、lua/post_view_record_key.lua）测试
+ * 所有key（包括待持久化集合）使用独立的测试前缀，不会被持久化任务写入MySQL
+ */
+@Slf4j
+@SpringBootTest
+public class PostViewScriptTest {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RECORD_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> RECORD_KEY_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        RECORD_SCRIPT.setLocation(new ClassPathResource("lua/post_view_record.lua"));
+        RECORD_SCRIPT.setResultType(List.class);
+        RECORD_KEY_SCRIPT.setLocation(new ClassPathResource("lua/post_view_record_key.lua"));
+        RECORD_KEY_SCRIPT.setResultType(Long.class);
+    }
+
+    private static final String POST_ID = "1";
+    private static final String TTL = "600";
+
+    private final String prefix = "test:view_script:" + System.nanoTime() + ":";
+    private final String countKey = prefix + "view";
+    private final String rawKey = prefix + "pv";
+    private final String uvKey = prefix + "uv";
+    private final String dailyUvKey = prefix + "uv:today";
+    private final String dirtyKey = prefix + "dirty";
+    private final List<String> createdKeys = new ArrayList<>(List.of(countKey, rawKey, uvKey, dailyUvKey, dirtyKey));
+
+    @AfterEach
+    public void cleanup() {
+        stringRedisTemplate.delete(createdKeys);
+    }
+
+    /**
+     * 浏览量未缓存时返回 -1，不做任何修改
+     */
+    @Test
+    public void testColdPost() {
+        assertEquals(List.of(-1L, 0L), record(1, 0, "5"));
+        assertEquals(-1L, recordWithKey(5L));
+        for (String key : createdKeys) {
+            assertFalse(Boolean.TRUE.equals(stringRedisTemplate.hasKey(key)), "未预热时写入了 " + key);
+        }
+    }
+
+    /**
+     * HLL 去重：同一用户当天只计一次，匿名浏览每次都计数，原始浏览量全部计入
+     */
+    @Test
+    public void testHllDedup() {
+        stringRedisTemplate.opsForValue().set(countKey, "10");
+
+        assertEquals(List.of(11L, 1L), record(1, 0, "5"));
+        assertEquals(List.of(11L, 0L), record(1, 0, "5"));
+        assertEquals(List.of(12L, 1L), record(1, 0, "6"));
+        assertEquals(List.of(13L, 1L), record(1, 1));
+        assertEquals(List.of(14L, 1L), record(1, 1));
+
+        assertEquals("5", stringRedisTemplate.opsForValue().get(rawKey));
+        assertEquals(2L, stringRedisTemplate.opsForHyperLogLog().size(uvKey));
+        assertEquals(2L, stringRedisTemplate.opsForHyperLogLog().size(dailyUvKey));
+        assertEquals(Boolean.TRUE, stringRedisTemplate.opsForSet().isMember(dirtyKey, POST_ID));
+        assertTrue(Boolean.TRUE.equals(stringRedisTemplate.hasKey(dailyUvKey))
+                && stringRedisTemplate.getExpire(dailyUvKey) > 0);
+    }
+
+    /**
+     * 批量写入大量用户：新增浏览量取当天 UV 估算值的变化，与 UV 统计一致（不会因 PFADD 返回值少计）
+     */
+    @Test
+    public void testBatchMatchesUniqueViewers() {
+        stringRedisTemplate.opsForValue().set(countKey, "0");
+        int viewers = 5000;
+        String[] userIds = new String[viewers];
+        for (int i = 0; i < viewers; i++) {
+            userIds[i] = String.valueOf(100_000 + i);
+        }
+
+        List<Long> result = record(viewers, 0, userIds);
+        Long uniqueViewers = stringRedisTemplate.opsForHyperLogLog().size(dailyUvKey);
+        log.info("批量写入{}个用户: 新增浏览量={}, 当天UV={}", viewers, result.get(1), uniqueViewers);
+
+        assertEquals(uniqueViewers, result.get(1));
+        assertEquals(uniqueViewers, result.get(0));
+        assertTrue(Math.abs(uniqueViewers - viewers) < viewers * 0.03, "UV 估算误差过大: " + uniqueViewers);
+
+        // 同一批用户再次浏览不增加浏览量
+        assertEquals(List.of(uniqueViewers, 0L), record(viewers, 0, userIds));
+    }
+
+    /**
+     * key 去重：用户标记有效期内同一用户只计一次，匿名浏览每次都计数
+     */
+    @Test
+    public void testKeyDedup() {
+        stringRedisTemplate.opsForValue().set(countKey, "10");
+        createdKeys.add(userKey(5L));
+        createdKeys.add(userKey(6L));
+
+        assertEquals(11L, recordWithKey(5L));
+        assertEquals(11L, recordWithKey(5L));
+        assertEquals(12L, recordWithKey(6L));
+        assertEquals(13L, recordWithKey(null));
+        assertEquals(14L, recordWithKey(null));
+
+        assertEquals(Boolean.TRUE, stringRedisTemplate.opsForSet().isMember(dirtyKey, POST_ID));
+        assertTrue(stringRedisTemplate.getExpire(userKey(5L)) > 0);
+    }
+
+    private String userKey(Long userId) {
+        return prefix + "user_view:" + userId;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> record(int raw, int anonymous, String... userIds) {
+        List<String> args = new ArrayList<>(List.of(String.valueOf(raw), String.valueOf(anonymous), TTL, POST_ID));
+        args.addAll(List.of(userIds));
+        return stringRedisTemplate.execute(RECORD_SCRIPT,
+                List.of(countKey, rawKey, uvKey, dailyUvKey, dirtyKey), args.toArray());
+    }
+
+    private Long recordWithKey(Long userId) {
+        List<String> keys = new ArrayList<>(List.of(countKey, dirtyKey));
+        if (userId != null) {
+            keys.add(userKey(userId));
+        }
+        return stringRedisTemplate.execute(RECORD_KEY_SCRIPT, keys, POST_ID, TTL);
+    }
+}
@@ -0,0 +1,111 @@
+package com.trip.web.test;
+
+import com.trip.common.constant.RedisConstant;
+import com.trip.web.service.CommunityTimelineService;
+import com.trip.web.service.CommunityTimelineService.TimelinePage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 社区时间线游标测试
+ * 使用单独的测试地区和不会与真实帖子冲突的大ID，测试结束后移出时间线
+ */
+@Slf4j
+@SpringBootTest
+public class TimelineCursorTest {
+
+    @Autowired
+    private CommunityTimelineService communityTimelineService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 位数不同的两个ID：未补零时 "100000000000" 的字典序小于 "99999999999"
+    private static final long NEWER_ID = 100_000_000_000L;
+    private static final long OLDER_ID = 99_999_999_999L;
+    private static final long EARLIER_ID = 99_999_999_998L;
+
+    /**
+     * 同一秒的帖子按ID数值倒序，游标逐页衔接且不重复、不遗漏
+     */
+    @Test
+    public void testSameSecondOrderAndPaging() {
+        String region = "cursor-test-" + System.nanoTime();
+        // 毫秒部分 >= 500，分数四舍五入到下一秒
+        long second = (System.currentTimeMillis() / 1000) * 1000;
+        Date createTime = new Date(second + 600);
+        try {
+            communityTimelineService.addPost(OLDER_ID, createTime, region);
+            communityTimelineService.addPost(NEWER_ID, createTime, region);
+            communityTimelineService.addPost(EARLIER_ID, new Date(second - 2000), region);
+
+            TimelinePage first = communityTimelineService.pageByCursor(region, null, 1);
+            log.info("第一页: {}", first);
+            assertEquals(List.of(NEWER_ID), first.postIds());
+            assertEquals((second + 1000) + ":" + NEWER_ID, first.nextCursor());
+
+            List<Long> all = new ArrayList<>(first.postIds());
+            String cursor = first.nextCursor();
+            while (cursor != null) {
+                TimelinePage page = communityTimelineService.pageByCursor(region, cursor, 1);
+                log.info("游标 {} 的下一页: {}", cursor, page);
+                all.addAll(page.postIds());
+                cursor = page.nextCursor();
+            }
+            assertEquals(List.of(NEWER_ID, OLDER_ID, EARLIER_ID), all);
+
+            TimelinePage byNumber = communityTimelineService.pageByNumber(region, 1, 3);
+            assertEquals(List.of(NEWER_ID, OLDER_ID, EARLIER_ID), byNumber.postIds());
+            assertEquals((second - 2000) + ":" + EARLIER_ID, byNumber.nextCursor());
+        } finally {
+            communityTimelineService.removePost(NEWER_ID, region);
+            communityTimelineService.removePost(OLDER_ID, region);
+            communityTimelineService.removePost(EARLIER_ID, region);
+        }
+    }
+
+    /**
+     * 地区名与截断地区集合的key后缀相同时，地区 ZSET 不与集合冲突，时间线保持可用
+     */
+    @Test
+    public void testRegionNamedTrimmed() {
+        String region = "trimmed";
+        // 先确保时间线已加载
+        communityTimelineService.pageByCursor(null, 1);
+        try {
+            communityTimelineService.addPost(NEWER_ID, new Date(), region);
+
+            assertEquals(Boolean.TRUE, stringRedisTemplate.hasKey(RedisConstant.COMMUNITY_TIMELINE_LOADED_KEY),
+                    "加入地区时间线失败，加载标记被删除");
+            TimelinePage page = communityTimelineService.pageByCursor(region, null, 10);
+            log.info("地区 trimmed 的第一页: {}", page);
+            assertEquals(NEWER_ID, page.postIds().get(0));
+        } finally {
+            communityTimelineService.removePost(NEWER_ID, region);
+        }
+    }
+
+    /**
+     * 格式错误的游标被拒绝
+     */
+    @Test
+    public void testInvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> communityTimelineService.pageByCursor("abc", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> communityTimelineService.pageByCursor(":1", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> communityTimelineService.pageByCursor("1700000000000:-1", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> communityTimelineService.pageByCursor("1700000000000:x", 10));
+    }
+}